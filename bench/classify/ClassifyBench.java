@@ -0,0 +1,439 @@
+package classify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+
+// Medição dos caminhos principais (leitura, inserção, pesquisas, agregados,
+// construção/validação de Student e escrita) sobre turmas sintéticas
+// geradas por RosterGenerator. Cada medição faz várias invocações de
+// aquecimento e depois várias medidas; o resultado é o tempo por operação.
+//
+// Os resultados são gravados em JSON Lines (um objecto por medição), para
+// comparar execuções com --compare. As mesmas medições existem com JMH em
+// jmh/ (mvn -Pjmh verify, ver pom.xml).
+//
+// Utilização:
+//   ClassifyBench [--rows 10000,100000,...] [--warmup N] [--iterations N]
+//                 [--only nome1,nome2] [--out resultados.jsonl]
+//   ClassifyBench --compare antes.jsonl depois.jsonl
+public class ClassifyBench {
+
+    interface Benchmark {
+        // Devolve um valor qualquer, para o JIT não eliminar o trabalho
+        Object run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = parseOptions(args);
+        if (options.containsKey("compare")) {
+            compare(Paths.get(options.get("compare")), Paths.get(options.get("compare2")));
+            return;
+        }
+
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "5"));
+        List<String> only = options.containsKey("only")
+                ? Arrays.asList(options.get("only").split(","))
+                : List.of();
+        Path outFile = Paths.get(options.getOrDefault("out", "bench-results.jsonl"));
+
+        var results = new ArrayList<String>();
+        for (String rowsOption : options.getOrDefault("rows", "10000,100000").split(",")) {
+            int rows = Integer.parseInt(rowsOption.strip());
+            var workDir = Files.createTempDirectory("classify-bench");
+            try {
+                var benchmarks = new ClassifyBench(workDir, rows).benchmarks();
+                for (var entry : benchmarks.entrySet()) {
+                    if (!only.isEmpty() && !only.contains(entry.getKey())) {
+                        continue;
+                    }
+                    String json = measure(entry.getKey(), rows, entry.getValue(), warmup, iterations);
+                    results.add(json);
+                    out.println(json);
+                }
+            }
+            finally {
+                deleteTree(workDir);
+            }
+        }
+        Files.write(outFile, results);
+        out.println("Resultados em " + outFile.toAbsolutePath());
+    }
+
+    ClassifyBench(Path workDir, int rows) throws IOException {
+        this.workDir = workDir;
+        this.rows = rows;
+        this.csv = workDir.resolve("turma.csv");
+        RosterGenerator.generate(this.csv, rows, 42);
+
+        this.students = new StudentCollection();
+        try (var input = Files.newInputStream(this.csv)) {
+            new StudentCsvReader(input).read(this.students::add);
+        }
+        this.copies = new ArrayList<>(rows);
+        for (Student st : this.students) {
+            this.copies.add(st);
+        }
+
+        // amostras para pesquisas e validação
+        var random = new Random(7);
+        this.emails = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i += 1) {
+            this.emails[i] = this.copies.get(random.nextInt(rows)).getEmail();
+        }
+        this.nameParts = new String[NAME_QUERIES];
+        for (int i = 0; i < NAME_QUERIES; i += 1) {
+            String name = this.copies.get(random.nextInt(rows)).getName();
+            int start = random.nextInt(name.length() - 3);
+            this.nameParts[i] = name.substring(start, start + 3);
+        }
+        this.fields = new String[Math.min(rows, VALIDATION_ROWS)][];
+        for (int i = 0; i < this.fields.length; i += 1) {
+            Student st = this.copies.get(i);
+            this.fields[i] = new String[] {
+                    st.getName(), st.getEmail(), st.getBirthDate().toString(),
+                    String.valueOf((int) st.getGrade()), st.getStatus()
+            };
+        }
+    }
+
+    Map<String, Benchmark> benchmarks() {
+        var benchmarks = new LinkedHashMap<String, Benchmark>();
+        benchmarks.put("readStudents.stream", new Batch(this.rows, () -> {
+            var target = new StudentCollection();
+            try (var input = Files.newInputStream(this.csv)) {
+                new StudentCsvReader(input).read(target::add);
+            }
+            return target;
+        }));
+        benchmarks.put("readStudents.mapped", new Batch(this.rows, () -> {
+            var target = new StudentCollection();
+            new MappedStudentReader(this.csv).read(target::add);
+            return target;
+        }));
+        benchmarks.put("readStudents.parallel", new Batch(this.rows, () -> {
+            var target = new StudentCollection();
+            return new ParallelStudentLoader().load(this.csv, target, ex -> { throw ex; });
+        }));
+        // cópias novas (sem colecção) em cada invocação, fora do tempo medido
+        var fresh = new ArrayList<Student>(this.rows);
+        benchmarks.put("StudentCollection.add", new Batch(this.rows, () -> {
+            fresh.clear();
+            for (Student st : this.copies) {
+                fresh.add(Student.restore(
+                        st.getName(), st.getEmail(), st.getBirthDate(), st.getGrade(), st.getStatus()
+                ));
+            }
+        }, () -> {
+            var target = new StudentCollection();
+            for (Student st : fresh) {
+                target.add(st);
+            }
+            return target;
+        }));
+        benchmarks.put("Student.new", new Batch(this.fields.length, () -> {
+            Student last = null;
+            for (String[] f : this.fields) {
+                last = new Student(f[0], f[1], f[2], f[3], f[4]);
+            }
+            return last;
+        }));
+        // validação de nome e email: String.matches (compila a expressão em
+        // cada chamada), Pattern pré-compilado e StudentValidator
+        benchmarks.put("validate.matches", new Batch(this.fields.length, () -> {
+            int valid = 0;
+            for (String[] f : this.fields) {
+                valid += f[0].matches(NAME_REGEX) && f[1].matches(Utils.EMAIL_REGEX) ? 1 : 0;
+            }
+            return valid;
+        }));
+        benchmarks.put("validate.pattern", new Batch(this.fields.length, () -> {
+            int valid = 0;
+            for (String[] f : this.fields) {
+                valid += NAME_PATTERN.matcher(f[0]).matches() && EMAIL_PATTERN.matcher(f[1]).matches() ? 1 : 0;
+            }
+            return valid;
+        }));
+        benchmarks.put("validate.checker", new Batch(this.fields.length, () -> {
+            int valid = 0;
+            for (String[] f : this.fields) {
+                valid += StudentValidator.isValidName(f[0]) && StudentValidator.isValidEmail(f[1]) ? 1 : 0;
+            }
+            return valid;
+        }));
+        benchmarks.put("searchByEmail", new Batch(QUERIES, () -> {
+            int found = 0;
+            for (String email : this.emails) {
+                found += this.students.searchByEmail(email) != null ? 1 : 0;
+            }
+            return found;
+        }));
+        benchmarks.put("searchByName", new Batch(NAME_QUERIES, () -> {
+            int found = 0;
+            for (String part : this.nameParts) {
+                found += this.students.searchByName(part).size();
+            }
+            return found;
+        }));
+        benchmarks.put("searchByGrades", new Batch(QUERIES, () -> {
+            int found = 0;
+            for (int i = 0; i < QUERIES; i += 1) {
+                int min = i % 200;
+                found += this.students.searchByGrades(min, min + 10).size();
+            }
+            return found;
+        }));
+        // estatuto, intervalo e parte do nome: encadeando pesquisas e com
+        // StudentQuery
+        benchmarks.put("query.chained", new Batch(NAME_QUERIES, () -> {
+            int found = 0;
+            for (int i = 0; i < NAME_QUERIES; i += 1) {
+                int min = i % 180;
+                for (Student st : this.students.searchByGrades(min, min + 20).searchByName(this.nameParts[i], true)) {
+                    found += st.getStatus().equals("BOLS") ? 1 : 0;
+                }
+            }
+            return found;
+        }));
+        benchmarks.put("query.combined", new Batch(NAME_QUERIES, () -> {
+            long found = 0;
+            for (int i = 0; i < NAME_QUERIES; i += 1) {
+                int min = i % 180;
+                found += this.students.query()
+                                      .status(StudentStatus.BOLS)
+                                      .grades(min, min + 20)
+                                      .nameContains(this.nameParts[i])
+                                      .count();
+            }
+            return found;
+        }));
+        benchmarks.put("query.top25ByName", new Batch(QUERIES, () -> {
+            int found = 0;
+            for (int i = 0; i < QUERIES; i += 1) {
+                found += this.students.query()
+                                      .status(StudentStatus.TRAB)
+                                      .orderBy(StudentOrder.NAME)
+                                      .limit(25)
+                                      .list()
+                                      .size();
+            }
+            return found;
+        }));
+        benchmarks.put("average", new Batch(QUERIES, () -> {
+            double sum = 0;
+            for (int i = 0; i < QUERIES; i += 1) {
+                sum += this.students.average();
+            }
+            return sum;
+        }));
+        // uma página de 25 em cada ordem, desenhada como na listagem
+        benchmarks.put("page.render", new Batch(QUERIES, () -> {
+            var table = new StudentTable();
+            var orders = StudentOrder.values();
+            int total = this.students.size();
+            int chars = 0;
+            for (int i = 0; i < QUERIES; i += 1) {
+                int cursor = (int) ((long) i * 7919 % total);
+                var page = this.students.page(orders[i % orders.length], cursor, 25);
+                chars += table.render(page, this.students.statistics()).length();
+            }
+            return chars;
+        }));
+        benchmarks.put("writeStudents.save", new Batch(this.rows, () -> {
+            new StudentCsvWriter(StudentCsvWriter.Layout.SAVE)
+                    .write(this.workDir.resolve("save.csv"), "", this.students);
+            return null;
+        }));
+        benchmarks.put("writeStudents.export", new Batch(this.rows, () -> {
+            new StudentCsvWriter(StudentCsvWriter.Layout.EXPORT)
+                    .write(this.workDir.resolve("export.csv"), "MÉDIA\n\n", this.students);
+            return null;
+        }));
+        benchmarks.put("export.html", new Batch(this.rows, () -> {
+            StudentExport.export(this.students, List.of(this.workDir.resolve("turma.html")));
+            return null;
+        }));
+        benchmarks.put("export.xlsx", new Batch(this.rows, () -> {
+            StudentExport.export(this.students, List.of(this.workDir.resolve("turma.xlsx")));
+            return null;
+        }));
+        // os três formatos numa só passagem
+        benchmarks.put("export.all", new Batch(this.rows, () -> {
+            StudentExport.export(this.students, List.of(
+                    this.workDir.resolve("all.csv"), this.workDir.resolve("all.html"), this.workDir.resolve("all.xlsx")
+            ));
+            return null;
+        }));
+        benchmarks.put("snapshot.write", new Batch(this.rows, () -> {
+            StudentSnapshot.write(this.workDir.resolve("turma.snap"), this.students);
+            return null;
+        }));
+        benchmarks.put("snapshot.read", new Batch(this.rows, () -> {
+            Path snapshot = this.workDir.resolve("turma.snap");
+            if (!Files.exists(snapshot)) {
+                StudentSnapshot.write(snapshot, this.students);
+            }
+            return StudentSnapshot.read(snapshot);
+        }));
+        return benchmarks;
+    }
+
+    // Uma invocação faz ops operações; o tempo é dividido por ops. setUp
+    // corre antes de cada invocação, fora do tempo medido
+    static class Batch implements Benchmark {
+        Batch(int ops, Benchmark body) {
+            this(ops, () -> { }, body);
+        }
+
+        Batch(int ops, Runnable setUp, Benchmark body) {
+            this.ops = ops;
+            this.setUp = setUp;
+            this.body = body;
+        }
+
+        @Override
+        public Object run() throws Exception {
+            return this.body.run();
+        }
+
+        final int ops;
+        final Runnable setUp;
+        final Benchmark body;
+    }
+
+    private static String measure(
+            String name,
+            int rows,
+            Benchmark benchmark,
+            int warmup,
+            int iterations
+    ) throws Exception {
+        int ops = benchmark instanceof Batch ? ((Batch) benchmark).ops : 1;
+        Runnable setUp = benchmark instanceof Batch ? ((Batch) benchmark).setUp : () -> { };
+        for (int i = 0; i < warmup; i += 1) {
+            setUp.run();
+            sink = benchmark.run();
+        }
+        double[] nsPerOp = new double[iterations];
+        for (int i = 0; i < iterations; i += 1) {
+            setUp.run();
+            long start = System.nanoTime();
+            sink = benchmark.run();
+            nsPerOp[i] = (double) (System.nanoTime() - start) / ops;
+        }
+
+        double mean = Arrays.stream(nsPerOp).average().orElse(Double.NaN);
+        double variance = Arrays.stream(nsPerOp).map(x -> (x - mean) * (x - mean)).sum()
+                          / Math.max(1, iterations - 1);
+        return String.format(
+                Locale.ROOT,
+                "{\"benchmark\":\"%s\",\"rows\":%d,\"opsPerInvocation\":%d,\"iterations\":%d,"
+                + "\"unit\":\"ns/op\",\"mean\":%.3f,\"min\":%.3f,\"max\":%.3f,\"stddev\":%.3f,"
+                + "\"opsPerSecond\":%.1f}",
+                name, rows, ops, iterations, mean,
+                Arrays.stream(nsPerOp).min().orElse(Double.NaN),
+                Arrays.stream(nsPerOp).max().orElse(Double.NaN),
+                Math.sqrt(variance), 1e9 / mean
+        );
+    }
+
+    // Tempo médio por operação de cada medição comum aos dois ficheiros
+    private static void compare(Path before, Path after) throws IOException {
+        Map<String, Double> old = readMeans(before);
+        Map<String, Double> now = readMeans(after);
+        out.printf("%-28s %10s %14s %14s %8s%n", "BENCHMARK", "ROWS", "ANTES ns/op", "DEPOIS ns/op", "RÁCIO");
+        for (var entry : now.entrySet()) {
+            Double previous = old.get(entry.getKey());
+            if (previous == null) {
+                continue;
+            }
+            String[] key = entry.getKey().split("@");
+            out.printf(
+                    "%-28s %10s %14.1f %14.1f %7.2fx%n",
+                    key[0], key[1], previous, entry.getValue(), previous / entry.getValue()
+            );
+        }
+    }
+
+    private static Map<String, Double> readMeans(Path file) throws IOException {
+        var means = new LinkedHashMap<String, Double>();
+        for (String line : Files.readAllLines(file)) {
+            Matcher m = RESULT_PATTERN.matcher(line);
+            if (m.find()) {
+                means.put(m.group(1) + "@" + m.group(2), Double.parseDouble(m.group(3)));
+            }
+        }
+        return means;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        var options = new HashMap<String, String>();
+        for (int i = 0; i < args.length; i += 1) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                usage();
+            }
+            String name = args[i].substring(2);
+            options.put(name, args[++i]);
+            if (name.equals("compare")) {
+                if (i + 1 >= args.length) {
+                    usage();
+                }
+                options.put("compare2", args[++i]);
+            }
+        }
+        return options;
+    }
+
+    private static void usage() {
+        err.println("Utilização: ClassifyBench [--rows 10000,100000] [--warmup N] [--iterations N]");
+        err.println("                          [--only nome1,nome2] [--out resultados.jsonl]");
+        err.println("            ClassifyBench --compare antes.jsonl depois.jsonl");
+        System.exit(2);
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    private static final String NAME_REGEX = "^[a-zA-Z]{2,} [a-zA-Z]{2,}$";
+    private static final Pattern NAME_PATTERN = Pattern.compile(NAME_REGEX);
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(Utils.EMAIL_REGEX);
+    private static final int QUERIES = 10_000;
+    private static final int NAME_QUERIES = 100;
+    private static final int VALIDATION_ROWS = 100_000;
+    private static final Pattern RESULT_PATTERN = Pattern.compile(
+            "\"benchmark\":\"([^\"]+)\",\"rows\":(\\d+).*\"mean\":([0-9.]+)"
+    );
+
+    // Destino dos valores calculados (evita que o trabalho seja eliminado)
+    static volatile Object sink;
+
+    private final Path workDir;
+    private final int rows;
+    private final Path csv;
+    private final StudentCollection students;
+    private final List<Student> copies;
+    private final String[] emails;
+    private final String[] nameParts;
+    private final String[][] fields;
+}
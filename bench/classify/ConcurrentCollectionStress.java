@@ -0,0 +1,189 @@
+package classify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+
+// Teste de carga da ConcurrentStudentCollection: várias threads lêem
+// (iteração, pesquisa por email, média) enquanto outras alteram, inserem e
+// removem estudantes. Termina com código 1 se alguma leitura vir um
+// estudante num estado impossível.
+//
+// As alterações mantêm o invariante estatuto == classificação % 3 (posição
+// em VALID_STUDENT_STATUS), mudando sempre os dois campos juntos; um
+// estudante visto a meio de uma alteração quebra-o. As mudanças de email
+// alternam entre sN@... e sN@alt.pt, e a pesquisa por um email tem de
+// devolver um estudante com esse email (ou nenhum).
+//
+// Para apanhar alterações perdidas, há também COUNTERS estudantes contador
+// (cN@contador.pt, nunca removidos nem renomeados) cuja classificação os
+// escritores incrementam (módulo 201) e contam; no fim, a classificação de
+// cada contador tem de corresponder ao número de incrementos feitos.
+//
+// Utilização: ConcurrentCollectionStress [SEGUNDOS] [LEITORES] [ESCRITORES]
+public class ConcurrentCollectionStress {
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int writers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        var students = new ConcurrentStudentCollection();
+        for (int i = 0; i < ROWS; i += 1) {
+            students.add(student(i, i % 201));
+        }
+        for (int c = 0; c < COUNTERS; c += 1) {
+            students.add(counter(c));
+        }
+        var increments = new AtomicLongArray(COUNTERS);
+
+        var stop = new AtomicBoolean();
+        var reads = new AtomicLong();
+        var writes = new AtomicLong();
+        var violations = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int r = 0; r < readers; r += 1) {
+            long seed = r;
+            threads.add(new Thread(() -> {
+                var random = new Random(seed);
+                while (!stop.get()) {
+                    for (Student st : students) {
+                        if (!consistent(st)) {
+                            report(violations, "torn student: " + st.getEmail() + " " + st.getGrade()
+                                               + " " + st.getStatus());
+                        }
+                    }
+                    for (int i = 0; i < 1000; i += 1) {
+                        String email = email(random.nextInt(ROWS * 2), random.nextBoolean());
+                        var st = students.searchByEmail(email);
+                        if (st != null && (!st.getEmail().equals(email) || !consistent(st))) {
+                            report(violations, "search " + email + " returned " + st.getEmail());
+                        }
+                    }
+                    double average = students.average();
+                    if (!(average >= 0 && average <= 200)) {
+                        report(violations, "average " + average);
+                    }
+                    reads.incrementAndGet();
+                }
+            }, "reader-" + r));
+        }
+
+        for (int w = 0; w < writers; w += 1) {
+            long seed = 100 + w;
+            threads.add(new Thread(() -> {
+                var random = new Random(seed);
+                while (!stop.get()) {
+                    int id = random.nextInt(ROWS * 2);
+                    boolean alt = random.nextBoolean();
+                    String email = email(id, alt);
+                    switch (random.nextInt(5)) {
+                        case 0:
+                        case 1:
+                            int grade = random.nextInt(201);
+                            students.update(email, st -> {
+                                st.setGrade(grade);
+                                st.setStatus(Student.VALID_STUDENT_STATUS[grade % 3]);
+                            });
+                            break;
+                        case 2:
+                            try {
+                                students.updateEmail(email, email(id, !alt));
+                            }
+                            catch (DuplicateValueException ex) {
+                                // o outro email do mesmo número já existe
+                            }
+                            break;
+                        case 3:
+                            int c = random.nextInt(COUNTERS);
+                            var updated = students.update(counterEmail(c), st -> {
+                                int next = ((int) st.getGrade() + 1) % 201;
+                                st.setGrade(next);
+                                st.setStatus(Student.VALID_STUDENT_STATUS[next % 3]);
+                            });
+                            if (updated != null) {
+                                increments.incrementAndGet(c);
+                            }
+                            break;
+                        default:
+                            if (!students.remove(email)) {
+                                try {
+                                    students.add(student(id, random.nextInt(201)));
+                                }
+                                catch (DuplicateValueException ex) {
+                                    // existe com o outro email
+                                }
+                            }
+                    }
+                    writes.incrementAndGet();
+                }
+            }, "writer-" + w));
+        }
+
+        for (var thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (var thread : threads) {
+            thread.join();
+        }
+
+        for (int c = 0; c < COUNTERS; c += 1) {
+            var st = students.searchByEmail(counterEmail(c));
+            long expected = increments.get(c) % 201;
+            if (st == null || (long) st.getGrade() != expected) {
+                report(violations, "lost updates on " + counterEmail(c) + ": "
+                                   + (st == null ? "missing" : st.getGrade() + " != " + expected));
+            }
+        }
+
+        out.printf(
+                "%d s, %d leitores, %d escritores: %d passagens de leitura, %d alterações, "
+                + "%d estudantes no fim, %d violações%n",
+                seconds, readers, writers, reads.get(), writes.get(), students.size(), violations.get()
+        );
+        System.exit(violations.get() == 0 ? 0 : 1);
+    }
+
+    private static boolean consistent(Student st) {
+        return Student.statusCode(st.getStatus()) == (int) st.getGrade() % 3;
+    }
+
+    private static Student student(int id, int grade) {
+        return new Student(
+                "Aluno Numero", email(id, false), "2000-01-01",
+                String.valueOf(grade), Student.VALID_STUDENT_STATUS[grade % 3]
+        );
+    }
+
+    private static Student counter(int id) {
+        return new Student(
+                "Aluno Contador", counterEmail(id), "2000-01-01", "0", Student.VALID_STUDENT_STATUS[0]
+        );
+    }
+
+    private static String counterEmail(int id) {
+        return "c" + id + "@contador.pt";
+    }
+
+    private static String email(int id, boolean alt) {
+        return "s" + id + (alt ? "@alt.pt" : "@escola.pt");
+    }
+
+    private static void report(AtomicLong violations, String msg) {
+        if (violations.incrementAndGet() <= 10) {
+            err.println(msg);
+        }
+    }
+
+    private static final int ROWS = 10_000;
+    private static final int COUNTERS = 8;
+}
@@ -0,0 +1,259 @@
+package classify;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.out;
+
+// Servidor SMTP mínimo, em memória, para testar o BulkMailer sem enviar
+// emails: aceita sessões em simultâneo (EHLO com PIPELINING, AUTH, MAIL,
+// RCPT, DATA, RSET, NOOP, QUIT) e conta as mensagens recebidas por
+// destinatário. Pode simular falhas: endereços com "bounce" são recusados
+// (550), um em cada transientEvery destinatários dá um erro temporário (451)
+// e a palavra-passe WRONG_PASSWORD é recusada (535).
+//
+// main envia uma mensagem a cada estudante de uma turma sintética, primeiro
+// com uma ligação por mensagem (como docs/EmailSender.txt) e depois com o
+// BulkMailer, confirma que cada estudante recebeu exactamente uma mensagem
+// e que um segundo envio com o mesmo ficheiro de progresso não envia nada.
+// Por fim confirma que uma autenticação recusada termina o envio, sem abrir
+// uma ligação por estudante.
+//
+// Utilização: FakeSmtpServer [ESTUDANTES] [PARALELISMO] [MENSAGENS_POR_SEGUNDO]
+public class FakeSmtpServer implements AutoCloseable {
+
+    FakeSmtpServer(int transientEvery) throws IOException {
+        this.transientEvery = transientEvery;
+        this.socket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::acceptLoop, "fake-smtp");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    int getPort() {
+        return this.socket.getLocalPort();
+    }
+
+    int received(String email) {
+        var count = this.received.get(email);
+        return count == null ? 0 : count.get();
+    }
+
+    long getSessions() {
+        return this.sessions.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+        this.sessionThreads.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        try {
+            while (true) {
+                var client = this.socket.accept();
+                this.sessionThreads.execute(() -> session(client));
+            }
+        }
+        catch (IOException ex) {
+            // servidor fechado
+        }
+    }
+
+    private void session(Socket client) {
+        this.sessions.incrementAndGet();
+        try (client;
+             var in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             var out = new BufferedWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8))) {
+            reply(out, "220 fake-smtp ready");
+            String rcpt = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String cmd = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (cmd) {
+                    case "EHLO":
+                        out.write("250-fake-smtp\r\n250-PIPELINING\r\n250 AUTH PLAIN\r\n");
+                        break;
+                    case "AUTH":
+                        String token = new String(
+                                Base64.getDecoder().decode(line.substring(line.lastIndexOf(' ') + 1)),
+                                StandardCharsets.UTF_8
+                        );
+                        out.write(token.endsWith("\0" + WRONG_PASSWORD)
+                                  ? "535 authentication failed\r\n"
+                                  : "235 ok\r\n");
+                        break;
+                    case "MAIL":
+                        rcpt = null;
+                        out.write("250 ok\r\n");
+                        break;
+                    case "RCPT":
+                        String to = line.substring(line.indexOf('<') + 1, line.lastIndexOf('>'));
+                        if (to.contains("bounce")) {
+                            out.write("550 no such user\r\n");
+                        }
+                        else if (this.transientEvery > 0 && this.rcpts.incrementAndGet() % this.transientEvery == 0) {
+                            out.write("451 try again later\r\n");
+                        }
+                        else {
+                            rcpt = to;
+                            out.write("250 ok\r\n");
+                        }
+                        break;
+                    case "DATA":
+                        if (rcpt == null) {
+                            out.write("554 no valid recipients\r\n");
+                            break;
+                        }
+                        reply(out, "354 end with .");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // corpo descartado
+                        }
+                        this.received.computeIfAbsent(rcpt, k -> new AtomicInteger()).incrementAndGet();
+                        rcpt = null;
+                        out.write("250 queued\r\n");
+                        break;
+                    case "RSET":
+                        rcpt = null;
+                        out.write("250 ok\r\n");
+                        break;
+                    case "NOOP":
+                        out.write("250 ok\r\n");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 bye");
+                        return;
+                    default:
+                        out.write("502 command not implemented\r\n");
+                }
+                // respostas acumuladas enquanto houver comandos em espera
+                // (PIPELINING)
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        }
+        catch (IOException ex) {
+            // cliente desligou
+        }
+    }
+
+    private static void reply(BufferedWriter out, String line) throws IOException {
+        out.write(line);
+        out.write("\r\n");
+        out.flush();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 0;
+
+        var students = new StudentCollection();
+        var csv = Files.createTempFile("classify-mail", ".csv");
+        var progress = Files.createTempFile("classify-mail", ".progress");
+        Files.delete(progress);
+        try (var server = new FakeSmtpServer(50)) {
+            RosterGenerator.generate(csv, rows, 42);
+            try (var input = Files.newInputStream(csv)) {
+                new StudentCsvReader(input).read(students::add);
+            }
+            students.add(new Student("Endereco Inexistente", "bounce@mail.com", "2000-01-01", "100", "REG"));
+
+            var settings = new SmtpSettings(
+                    "localhost", server.getPort(), "secretaria@escola.pt", null, null, SmtpSettings.SecurityMode.PLAIN
+            );
+            var subject = new MessageTemplate("Classificação final");
+            var body = new MessageTemplate(
+                    "Olá {name},\n\na sua classificação final é {grade} ({textualGrade}).\n"
+            );
+
+            // referência: uma ligação por mensagem, uma mensagem de cada vez
+            int baseline = Math.min(rows, 500);
+            long start = System.nanoTime();
+            int i = 0;
+            for (Student st : students) {
+                if (i++ == baseline) {
+                    break;
+                }
+                try (var conn = new SmtpConnection(settings)) {
+                    conn.send("referencia-" + st.getEmail(), subject.render(st), body.render(st));
+                }
+                catch (SmtpException ex) {
+                    // 451 simulado
+                }
+            }
+            double baselineRate = baseline * 1e9 / (System.nanoTime() - start);
+            out.printf("Uma ligação por mensagem: %.0f mensagens/s%n", baselineRate);
+
+            long sessionsBefore = server.getSessions();
+            var report = new BulkMailer(settings, parallelism, rate, 4).send(students, subject, body, progress);
+            out.println("BulkMailer: " + report);
+            out.printf("Ligações abertas: %d%n", server.getSessions() - sessionsBefore);
+            out.println("Falhas: " + report.getFailures());
+
+            int wrong = 0;
+            for (Student st : students) {
+                int expected = st.getEmail().contains("bounce") ? 0 : 1;
+                if (server.received(st.getEmail()) != expected) {
+                    wrong += 1;
+                }
+            }
+            out.printf("Estudantes sem exactamente uma mensagem: %d%n", wrong);
+
+            var again = new BulkMailer(settings, parallelism, rate, 4).send(students, subject, body, progress);
+            out.println("Segundo envio (retoma): " + again);
+
+            var wrongSettings = new SmtpSettings(
+                    "localhost", server.getPort(), "secretaria@escola.pt", "secretaria", WRONG_PASSWORD,
+                    SmtpSettings.SecurityMode.PLAIN
+            );
+            Files.delete(progress);
+            sessionsBefore = server.getSessions();
+            boolean aborted = false;
+            try {
+                new BulkMailer(wrongSettings, parallelism, rate, 4).send(students, subject, body, progress);
+            }
+            catch (SmtpException ex) {
+                aborted = ex.isPermanent();
+                out.println("Autenticação recusada: " + ex.getMessage());
+            }
+            long wrongSessions = server.getSessions() - sessionsBefore;
+            out.printf("Envio terminado: %s, ligações abertas: %d%n", aborted, wrongSessions);
+
+            boolean ok = wrong == 0 && report.getFailures().size() == 1 && again.getSent() == 0
+                         && aborted && wrongSessions <= parallelism;
+            System.exit(ok ? 0 : 1);
+        }
+        finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(progress);
+        }
+    }
+
+    static final String WRONG_PASSWORD = "errada";
+
+    private final int transientEvery;
+    private final ServerSocket socket;
+    private final Thread acceptor;
+    private final ExecutorService sessionThreads = Executors.newCachedThreadPool();
+    private final Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+    private final AtomicInteger rcpts = new AtomicInteger();
+    private final AtomicLong sessions = new AtomicLong();
+}
@@ -0,0 +1,137 @@
+package classify;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.lang.System.out;
+
+// Carrega LINHAS estudantes sintéticos numa StudentCollection, numa
+// ColumnarStudentStore, numa OffHeapStudentStore com buffers directos e
+// noutra com ficheiros mapeados, e mede para cada uma o heap ocupado (depois
+// de uma recolha; para a ColumnarStudentStore, também quantas vezes menos
+// do que a StudentCollection), a média e as pesquisas por email. No fim reabre os
+// ficheiros só para leitura e confirma que os dados são os mesmos.
+//
+// Utilização: OffHeapStoreBench [LINHAS]
+public class OffHeapStoreBench {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("classify-offheap");
+        try {
+            long base = usedHeap();
+            var collection = new StudentCollection();
+            load(collection::add, rows);
+            long collectionHeap = usedHeap() - base;
+            report("StudentCollection", collectionHeap, collection, collection::searchByEmail, rows);
+            collection = null;
+
+            base = usedHeap();
+            var columnar = new ColumnarStudentStore(rows);
+            load(columnar::add, rows);
+            columnar.trimToSize();
+            long columnarHeap = usedHeap() - base;
+            report("ColumnarStudentStore", columnarHeap, columnar, columnar::searchByEmail, rows);
+            out.printf("  %.1f vezes menos heap do que StudentCollection%n", collectionHeap / (double) columnarHeap);
+            columnar = null;
+
+            base = usedHeap();
+            try (var direct = OffHeapStudentStore.allocate(rows)) {
+                load(direct::add, rows);
+                report("OffHeapStudentStore (directo)", usedHeap() - base, direct, direct::searchByEmail, rows);
+                out.printf("  fora do heap: %.1f MiB%n", direct.getOffHeapBytes() / 1048576.0);
+            }
+
+            Path file = dir.resolve("turma");
+            double average;
+            base = usedHeap();
+            try (var mapped = OffHeapStudentStore.open(file)) {
+                load(mapped::add, rows);
+                report("OffHeapStudentStore (mapeado)", usedHeap() - base, mapped, mapped::searchByEmail, rows);
+                average = mapped.average();
+            }
+
+            try (var reopened = OffHeapStudentStore.openReadOnly(file)) {
+                var random = new Random(1);
+                int found = 0;
+                for (int i = 0; i < 1000; i += 1) {
+                    int row = random.nextInt(rows);
+                    Student st = reopened.searchByEmail(email(row));
+                    if (st != null && st.getEmail().equals(email(row))) {
+                        found += 1;
+                    }
+                }
+                out.printf("Reaberto só para leitura: %d estudantes, média %s, %d/1000 encontrados%n",
+                           reopened.size(), reopened.average() == average ? "igual" : "DIFERENTE", found);
+            }
+        }
+        finally {
+            try (var paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private static void load(Consumer<Student> add, int rows) {
+        var random = new Random(rows);
+        for (int i = 0; i < rows; i += 1) {
+            add.accept(new Student(
+                    pick(random, RosterGenerator.FIRST_NAMES) + " " + pick(random, RosterGenerator.LAST_NAMES),
+                    email(i),
+                    LocalDate.of(1950 + random.nextInt(55), 1 + random.nextInt(12), 1 + random.nextInt(28)),
+                    random.nextInt(201),
+                    pick(random, Student.VALID_STUDENT_STATUS)
+            ));
+        }
+    }
+
+    private static void report(
+            String name,
+            long heap,
+            Iterable<Student> students,
+            Function<String, Student> searchByEmail,
+            int rows
+    ) {
+        long start = System.nanoTime();
+        double sum = 0;
+        for (Student st : students) {
+            sum += st.getGrade();
+        }
+        double scanMs = (System.nanoTime() - start) / 1e6;
+
+        var random = new Random(2);
+        int queries = 100_000;
+        int found = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i += 1) {
+            if (searchByEmail.apply(email(random.nextInt(rows))) != null) {
+                found += 1;
+            }
+        }
+        double searchUs = (System.nanoTime() - start) / 1e3 / queries;
+        out.printf("%-30s heap %7.1f MiB (%5.1f bytes/estudante), percorrer %6.1f ms (média %.2f), "
+                   + "searchByEmail %.2f us (%d)%n",
+                   name, heap / 1048576.0, heap / (double) rows, scanMs, sum / rows, searchUs, found);
+    }
+
+    private static String email(int row) {
+        return "s" + row + "@" + RosterGenerator.DOMAINS[row % RosterGenerator.DOMAINS.length];
+    }
+
+    private static <T> T pick(Random random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i += 1) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,93 @@
+package classify;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static java.lang.System.out;
+
+// Gera TURMAS turmas sintéticas de LINHAS estudantes (com emails repetidos
+// entre turmas, como um estudante inscrito em várias) e mede:
+// - a leitura de todas com 1 thread e com uma por processador;
+// - pesquisas de um estudante em todas as turmas com um orçamento de
+//   ORÇAMENTO estudantes em memória: só com o índice (gradesByClass) e
+//   com os estudantes (gradesOf, que com um orçamento menor do que o total
+//   obriga a voltar a ler turmas descarregadas).
+//
+// Utilização: RosterEngineBench [TURMAS] [LINHAS] [ORÇAMENTO]
+public class RosterEngineBench {
+
+    public static void main(String[] args) throws Exception {
+        int classes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        long budget = args.length > 2 ? Long.parseLong(args[2]) : (long) classes * rows / 4;
+
+        Path dir = Files.createTempDirectory("classify-school");
+        try {
+            List<Path> files = new ArrayList<>();
+            for (int i = 0; i < classes; i += 1) {
+                Path file = dir.resolve(String.format("turma%03d.csv", i));
+                RosterGenerator.generate(file, rows, i);
+                files.add(file);
+            }
+
+            int cpus = Runtime.getRuntime().availableProcessors();
+            for (int threads : new int[] { 1, cpus }) {
+                try (var engine = new RosterEngine(Long.MAX_VALUE)) {
+                    long start = System.nanoTime();
+                    engine.loadAll(files, threads);
+                    double ms = (System.nanoTime() - start) / 1e6;
+                    out.printf("loadAll %d turmas x %d, %d threads: %.0f ms (%.0f linhas/ms)%n",
+                               classes, rows, threads, ms, classes * (double) rows / ms);
+                }
+            }
+
+            try (var engine = new RosterEngine(budget)) {
+                engine.loadAll(files, cpus);
+                out.printf("Orçamento %d: %d turmas em memória (%d estudantes)%n",
+                           budget, engine.getResidentClasses(), engine.getResidentRows());
+
+                var random = new Random(1);
+                int queries = 100_000;
+                long found = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < queries; i += 1) {
+                    found += engine.gradesByClass(email(random, rows)).size();
+                }
+                double us = (System.nanoTime() - start) / 1e3 / queries;
+                out.printf("gradesByClass: %.1f us/pesquisa, %.1f turmas por estudante%n",
+                           us, found / (double) queries);
+
+                queries = 200;
+                long loads = engine.getLoads();
+                found = 0;
+                start = System.nanoTime();
+                for (int i = 0; i < queries; i += 1) {
+                    found += engine.gradesOf(email(random, rows)).size();
+                }
+                us = (System.nanoTime() - start) / 1e3 / queries;
+                out.printf("gradesOf: %.1f us/pesquisa, %.1f turmas por estudante, %.1f turmas relidas por pesquisa%n",
+                           us, found / (double) queries, (engine.getLoads() - loads) / (double) queries);
+
+                start = System.nanoTime();
+                double average = engine.schoolAverage();
+                out.printf("schoolAverage %.2f em %.0f us%n", average, (System.nanoTime() - start) / 1e3);
+            }
+        }
+        finally {
+            try (var paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    // Emails dos primeiros estudantes de cada turma: os que se repetem
+    // entre turmas (mesmo número, domínio ao acaso)
+    private static String email(Random random, int rows) {
+        return "s" + random.nextInt(Math.min(rows, 50)) + "@"
+               + RosterGenerator.DOMAINS[random.nextInt(RosterGenerator.DOMAINS.length)];
+    }
+}
@@ -0,0 +1,74 @@
+package classify;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static java.lang.System.err;
+
+// Gera turmas sintéticas no formato de turma01.csv
+// (NOME,EMAIL,DATA,CLASSIFICAÇÃO,ESTATUTO), com emails únicos e nomes que
+// passam a validação de Student.
+//
+// Utilização: RosterGenerator LINHAS FICHEIRO_CSV [SEMENTE]
+public class RosterGenerator {
+
+    public static void generate(Path file, int rows, long seed) throws IOException {
+        var random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            var line = new StringBuilder(64);
+            for (int i = 0; i < rows; i += 1) {
+                line.setLength(0);
+                line.append(pick(random, FIRST_NAMES)).append(' ')
+                    .append(pick(random, LAST_NAMES)).append(',')
+                    .append('s').append(i).append('@')
+                    .append(pick(random, DOMAINS)).append(',')
+                    .append(1950 + random.nextInt(55)).append('-')
+                    .append(twoDigits(1 + random.nextInt(12))).append('-')
+                    .append(twoDigits(1 + random.nextInt(28))).append(',')
+                    .append(random.nextInt(201)).append(',')
+                    .append(pick(random, Student.VALID_STUDENT_STATUS)).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String twoDigits(int value) {
+        return value < 10 ? "0" + value : String.valueOf(value);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            err.println("Utilização: RosterGenerator LINHAS FICHEIRO_CSV [SEMENTE]");
+            System.exit(2);
+        }
+        int rows = Integer.parseInt(args[0]);
+        long seed = args.length == 3 ? Long.parseLong(args[2]) : 42;
+        generate(Paths.get(args[1]), rows, seed);
+    }
+
+    static final String[] FIRST_NAMES = {
+            "Alberto", "Armando", "Pedro", "Bruno", "Arnaldo", "Ana", "Maria",
+            "Joana", "Rita", "Sofia", "Tiago", "Rui", "Carlos", "Marta", "Ines",
+            "Luis", "Paulo", "Helena", "Filipa", "Nuno", "Miguel", "Sara",
+            "Diogo", "Beatriz", "Goncalo", "Mariana", "Ricardo", "Catarina"
+    };
+
+    static final String[] LAST_NAMES = {
+            "Antunes", "Alves", "Pereira", "Bastos", "Almeida", "Silva",
+            "Santos", "Ferreira", "Costa", "Oliveira", "Rodrigues", "Martins",
+            "Sousa", "Fernandes", "Goncalves", "Gomes", "Lopes", "Marques",
+            "Ribeiro", "Carvalho", "Teixeira", "Moreira", "Correia", "Mendes"
+    };
+
+    static final String[] DOMAINS = {
+            "mail.com", "escola.pt", "alunos.escola.pt"
+    };
+}
@@ -0,0 +1,173 @@
+package classify;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.lang.System.err;
+import static java.lang.System.out;
+
+// Carga sobre o StudentServer: arranca um servidor local sobre uma turma
+// sintética e lança CLIENTES threads que fazem pedidos durante SEGUNDOS
+// (60% por email, 15% por nome, 15% por intervalo de classificações, 5%
+// estatísticas e 5% alterações de classificação). Mostra pedidos por
+// segundo e as latências p50/p99/máxima de cada tipo de pedido.
+//
+// Utilização: ServerLoadGenerator [LINHAS] [CLIENTES] [SEGUNDOS]
+public class ServerLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        var csv = Files.createTempFile("classify-load", ".csv");
+        StudentCollection students = new StudentCollection();
+        try {
+            RosterGenerator.generate(csv, rows, 42);
+            try (var input = Files.newInputStream(csv)) {
+                new StudentCsvReader(input).read(students::add);
+            }
+        }
+        finally {
+            Files.deleteIfExists(csv);
+        }
+
+        var server = new StudentServer(
+                students, new ReentrantReadWriteLock(), null, new InetSocketAddress("localhost", 0)
+        );
+        server.start();
+        String base = "http://localhost:" + server.getAddress().getPort();
+        var http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // aquecimento
+        for (int i = 0; i < 2000; i += 1) {
+            request(http, base + "/students?email=s" + (i % rows) + "@mail.com", "GET");
+        }
+
+        var stop = new AtomicBoolean();
+        var failures = new AtomicLong();
+        var latencies = new Latencies[KINDS.length];
+        for (int k = 0; k < KINDS.length; k += 1) {
+            latencies[k] = new Latencies();
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c += 1) {
+            long seed = c;
+            threads.add(new Thread(() -> {
+                var random = new Random(seed);
+                while (!stop.get()) {
+                    int roll = random.nextInt(100);
+                    int kind = roll < 60 ? 0 : roll < 75 ? 1 : roll < 90 ? 2 : roll < 95 ? 3 : 4;
+                    String email = "s" + random.nextInt(rows) + "@"
+                                   + RosterGenerator.DOMAINS[random.nextInt(RosterGenerator.DOMAINS.length)];
+                    int min = random.nextInt(200);
+                    String path;
+                    switch (kind) {
+                        case 0:
+                            path = "/students?email=" + email;
+                            break;
+                        case 1:
+                            String last = RosterGenerator.LAST_NAMES[random.nextInt(RosterGenerator.LAST_NAMES.length)];
+                            path = "/students?name=" + last.substring(0, 4) + "&limit=50";
+                            break;
+                        case 2:
+                            path = "/students?min=" + min + "&max=" + min + "&limit=100";
+                            break;
+                        case 3:
+                            path = "/stats";
+                            break;
+                        default:
+                            path = "/update?email=" + email + "&grade=" + random.nextInt(201);
+                    }
+                    long start = System.nanoTime();
+                    int status = request(http, base + path, kind == 4 ? "POST" : "GET");
+                    long elapsed = System.nanoTime() - start;
+                    // emails de outro domínio: 404
+                    if (status != 200 && status != 404) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[kind].add(elapsed);
+                }
+            }, "client-" + c));
+        }
+
+        long start = System.nanoTime();
+        for (var thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stop.set(true);
+        for (var thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        server.stop(0);
+
+        long total = 0;
+        out.printf("%d estudantes, %d clientes, %.1f s%n", rows, clients, elapsed);
+        out.printf("%-10s %10s %10s %10s %10s%n", "PEDIDO", "N", "p50 ms", "p99 ms", "máx ms");
+        for (int k = 0; k < KINDS.length; k += 1) {
+            long[] sorted = latencies[k].sorted();
+            total += sorted.length;
+            out.printf(
+                    "%-10s %10d %10.3f %10.3f %10.3f%n",
+                    KINDS[k], sorted.length,
+                    percentile(sorted, 50) / 1e6, percentile(sorted, 99) / 1e6,
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6
+            );
+        }
+        out.printf("%d pedidos, %.0f pedidos/s, %d falhas%n", total, total / elapsed, failures.get());
+    }
+
+    private static int request(HttpClient http, String url, String method) {
+        try {
+            var request = HttpRequest.newBuilder(URI.create(url))
+                                     .method(method, HttpRequest.BodyPublishers.noBody())
+                                     .build();
+            return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+        catch (Exception ex) {
+            err.println(url + ": " + ex);
+            return -1;
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p / 100 * sorted.length) - 1)];
+    }
+
+    // Latências em nanossegundos de um tipo de pedido (várias threads)
+    private static class Latencies {
+        synchronized void add(long nanos) {
+            if (this.count == this.values.length) {
+                this.values = Arrays.copyOf(this.values, this.count * 2);
+            }
+            this.values[this.count++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] sorted = Arrays.copyOf(this.values, this.count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private long[] values = new long[1024];
+        private int count;
+    }
+
+    private static final String[] KINDS = { "email", "nome", "intervalo", "stats", "alterar" };
+}
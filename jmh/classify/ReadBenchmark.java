@@ -0,0 +1,46 @@
+package classify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Leitura de uma turma inteira para uma StudentCollection nova: leitor em
+// stream, ficheiro mapeado e leitura em paralelo
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+
+    @Benchmark
+    public StudentCollection stream(Roster roster) throws IOException {
+        var target = new StudentCollection();
+        try (var input = Files.newInputStream(roster.csv)) {
+            new StudentCsvReader(input).read(target::add);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public StudentCollection mapped(Roster roster) throws IOException {
+        var target = new StudentCollection();
+        new MappedStudentReader(roster.csv).read(target::add);
+        return target;
+    }
+
+    @Benchmark
+    public StudentCollection parallel(Roster roster) throws IOException {
+        var target = new StudentCollection();
+        new ParallelStudentLoader().load(roster.csv, target, ex -> { throw ex; });
+        return target;
+    }
+}
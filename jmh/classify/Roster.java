@@ -0,0 +1,81 @@
+package classify;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+// Turma sintética (RosterGenerator) partilhada pelas medições JMH: o CSV
+// num directório temporário, a turma carregada e amostras de tamanho fixo
+// (SAMPLE) para as pesquisas e a validação, tiradas como em ClassifyBench.
+@State(Scope.Benchmark)
+public class Roster {
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.workDir = Files.createTempDirectory("classify-jmh");
+        this.csv = this.workDir.resolve("turma.csv");
+        RosterGenerator.generate(this.csv, this.rows, 42);
+
+        this.students = new StudentCollection();
+        try (var input = Files.newInputStream(this.csv)) {
+            new StudentCsvReader(input).read(this.students::add);
+        }
+        this.copies = new ArrayList<>(this.rows);
+        for (Student st : this.students) {
+            this.copies.add(st);
+        }
+
+        var random = new Random(7);
+        this.emails = new String[SAMPLE];
+        for (int i = 0; i < SAMPLE; i += 1) {
+            this.emails[i] = this.copies.get(random.nextInt(this.rows)).getEmail();
+        }
+        this.nameParts = new String[NAME_SAMPLE];
+        for (int i = 0; i < NAME_SAMPLE; i += 1) {
+            String name = this.copies.get(random.nextInt(this.rows)).getName();
+            int start = random.nextInt(name.length() - 3);
+            this.nameParts[i] = name.substring(start, start + 3);
+        }
+        this.fields = new String[SAMPLE][];
+        for (int i = 0; i < SAMPLE; i += 1) {
+            Student st = this.copies.get(i % this.rows);
+            this.fields[i] = new String[] {
+                    st.getName(), st.getEmail(), st.getBirthDate().toString(),
+                    String.valueOf((int) st.getGrade()), st.getStatus()
+            };
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var paths = Files.walk(this.workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    // Tamanho das amostras (usado em @OperationsPerInvocation)
+    static final int SAMPLE = 10_000;
+    static final int NAME_SAMPLE = 100;
+
+    Path workDir;
+    Path csv;
+    StudentCollection students;
+    List<Student> copies;
+    String[] emails;
+    String[] nameParts;
+    String[][] fields;
+}
@@ -0,0 +1,108 @@
+package classify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Inserção, pesquisas e agregados de StudentCollection. As pesquisas fazem
+// várias operações por invocação (as amostras de Roster); o tempo é por
+// operação
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StudentCollectionBenchmark {
+
+    // Cópias novas, ainda sem colecção, criadas antes de cada invocação de
+    // add (fora do tempo medido)
+    @State(Scope.Thread)
+    public static class FreshCopies {
+        @Setup(Level.Invocation)
+        public void setUp(Roster roster) {
+            this.students = new ArrayList<>(roster.rows);
+            for (Student st : roster.copies) {
+                this.students.add(Student.restore(
+                        st.getName(), st.getEmail(), st.getBirthDate(), st.getGrade(), st.getStatus()
+                ));
+            }
+        }
+
+        List<Student> students;
+    }
+
+    // Uma turma inteira por invocação
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public StudentCollection add(FreshCopies fresh) {
+        var target = new StudentCollection();
+        for (Student st : fresh.students) {
+            target.add(st);
+        }
+        return target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Roster.SAMPLE)
+    public int searchByEmail(Roster roster) {
+        int found = 0;
+        for (String email : roster.emails) {
+            found += roster.students.searchByEmail(email) != null ? 1 : 0;
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Roster.NAME_SAMPLE)
+    public int searchByName(Roster roster) {
+        int found = 0;
+        for (String part : roster.nameParts) {
+            found += roster.students.searchByName(part).size();
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Roster.SAMPLE)
+    public int searchByGrades(Roster roster) {
+        int found = 0;
+        for (int i = 0; i < Roster.SAMPLE; i += 1) {
+            int min = i % 200;
+            found += roster.students.searchByGrades(min, min + 10).size();
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Roster.NAME_SAMPLE)
+    public long queryCombined(Roster roster) {
+        long found = 0;
+        for (int i = 0; i < Roster.NAME_SAMPLE; i += 1) {
+            int min = i % 180;
+            found += roster.students.query()
+                                    .status(StudentStatus.BOLS)
+                                    .grades(min, min + 20)
+                                    .nameContains(roster.nameParts[i])
+                                    .count();
+        }
+        return found;
+    }
+
+    @Benchmark
+    public double average(Roster roster) {
+        return roster.students.average();
+    }
+}
@@ -0,0 +1,68 @@
+package classify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Construção de Student a partir dos campos do CSV e validação de nome e
+// email: String.matches (compila a expressão em cada chamada), Pattern
+// pré-compilado e StudentValidator
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Benchmark
+    @OperationsPerInvocation(Roster.SAMPLE)
+    public Student newStudent(Roster roster) {
+        Student last = null;
+        for (String[] f : roster.fields) {
+            last = new Student(f[0], f[1], f[2], f[3], f[4]);
+        }
+        return last;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Roster.SAMPLE)
+    public int matches(Roster roster) {
+        int valid = 0;
+        for (String[] f : roster.fields) {
+            valid += f[0].matches(NAME_REGEX) && f[1].matches(Utils.EMAIL_REGEX) ? 1 : 0;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Roster.SAMPLE)
+    public int pattern(Roster roster) {
+        int valid = 0;
+        for (String[] f : roster.fields) {
+            valid += NAME_PATTERN.matcher(f[0]).matches() && EMAIL_PATTERN.matcher(f[1]).matches() ? 1 : 0;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Roster.SAMPLE)
+    public int checker(Roster roster) {
+        int valid = 0;
+        for (String[] f : roster.fields) {
+            valid += StudentValidator.isValidName(f[0]) && StudentValidator.isValidEmail(f[1]) ? 1 : 0;
+        }
+        return valid;
+    }
+
+    private static final String NAME_REGEX = "^[a-zA-Z]{2,} [a-zA-Z]{2,}$";
+    private static final Pattern NAME_PATTERN = Pattern.compile(NAME_REGEX);
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(Utils.EMAIL_REGEX);
+}
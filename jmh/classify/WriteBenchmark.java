@@ -0,0 +1,71 @@
+package classify;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Escrita de uma turma inteira: os dois formatos CSV, as exportações e o
+// StudentSnapshot (escrita e leitura)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+    // Snapshot da turma lido por snapshotRead, escrito uma vez antes das
+    // medições
+    @State(Scope.Benchmark)
+    public static class SnapshotFile {
+        @Setup(Level.Trial)
+        public void setUp(Roster roster) throws IOException {
+            this.file = roster.workDir.resolve("snapshot-read.snap");
+            StudentSnapshot.write(this.file, roster.students);
+        }
+
+        Path file;
+    }
+
+    @Benchmark
+    public void save(Roster roster) throws IOException {
+        new StudentCsvWriter(StudentCsvWriter.Layout.SAVE)
+                .write(roster.workDir.resolve("save.csv"), "", roster.students);
+    }
+
+    @Benchmark
+    public void export(Roster roster) throws IOException {
+        new StudentCsvWriter(StudentCsvWriter.Layout.EXPORT)
+                .write(roster.workDir.resolve("export.csv"), "MÉDIA\n\n", roster.students);
+    }
+
+    // os três formatos numa só passagem
+    @Benchmark
+    public void exportAll(Roster roster) throws IOException {
+        StudentExport.export(roster.students, List.of(
+                roster.workDir.resolve("all.csv"), roster.workDir.resolve("all.html"), roster.workDir.resolve("all.xlsx")
+        ));
+    }
+
+    @Benchmark
+    public void snapshotWrite(Roster roster) throws IOException {
+        StudentSnapshot.write(roster.workDir.resolve("turma.snap"), roster.students);
+    }
+
+    @Benchmark
+    public StudentCollection snapshotRead(SnapshotFile snapshot) throws IOException {
+        return StudentSnapshot.read(snapshot.file);
+    }
+}
@@ -0,0 +1,179 @@
+package classify;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Alterações de classificação e/ou estatuto a muitos estudantes de uma vez
+// (ex: as notas de um exame), lidas de um ficheiro com uma linha por
+// estudante:
+//
+//     EMAIL,CLASSIFICAÇÃO[,ESTATUTO]
+//
+// (classificação ou estatuto vazios: ficam como estão). O ficheiro é lido
+// linha a linha e cada estudante é encontrado pelo índice de emails.
+//
+// Tudo ou nada: todas as linhas são validadas antes de alterar o primeiro
+// estudante. Se alguma for inválida (email inexistente ou repetido,
+// classificação ou estatuto inválidos), nenhuma alteração é feita e o
+// relatório traz todos os erros. As alterações são feitas pelos setters de
+// Student, pelo que as estatísticas são actualizadas incrementalmente e os
+// listeners recebem cada alteração, dentro de um bloco (beginBatch/endBatch):
+// o StudentJournal grava-as como uma unidade, e um bloco que não chegou
+// inteiro ao disco (ex: falha a meio) é descartado no replay.
+public class BatchUpdate {
+
+    public BatchUpdate(StudentCollection students) {
+        this.students = students;
+    }
+
+    public BatchUpdateReport apply(Path changes) throws IOException {
+        try (var reader = Files.newBufferedReader(changes, StandardCharsets.UTF_8)) {
+            return apply(reader);
+        }
+    }
+
+    public BatchUpdateReport apply(BufferedReader reader) throws IOException {
+        long start = System.nanoTime();
+        List<Change> changes = new ArrayList<>();
+        List<StudentCsvException> errors = new ArrayList<>();
+        Map<Student, Long> lineOf = new IdentityHashMap<>();
+        int unchanged = 0;
+
+        // 1. Validar tudo
+        String text;
+        long line = 0;
+        while ((text = reader.readLine()) != null) {
+            line += 1;
+            if (text.isBlank()) {
+                continue;
+            }
+            try {
+                var change = parse(text);
+                Long previous = lineOf.putIfAbsent(change.student, line);
+                if (previous != null) {
+                    throw new IllegalArgumentException(
+                            "Student " + change.student.getEmail() + " already changed in line " + previous
+                    );
+                }
+                if (change.isNoOp()) {
+                    unchanged += 1;
+                }
+                else {
+                    changes.add(change);
+                }
+            }
+            catch (IllegalArgumentException ex) {
+                errors.add(new StudentCsvException(line, ex.getMessage()));
+            }
+        }
+        if (!errors.isEmpty()) {
+            return new BatchUpdateReport(0, unchanged, errors, System.nanoTime() - start);
+        }
+
+        // 2. Aplicar, num só bloco para o diário; uma falha inesperada
+        // desfaz as alterações já feitas (incluindo a que estava a meio)
+        int applied = 0;
+        this.students.beginBatch();
+        try {
+            for (var change : changes) {
+                change.apply();
+                applied += 1;
+            }
+        }
+        catch (RuntimeException ex) {
+            for (int i = Math.min(applied, changes.size() - 1); i >= 0; i -= 1) {
+                changes.get(i).undo();
+            }
+            throw ex;
+        }
+        finally {
+            this.students.endBatch();
+        }
+        return new BatchUpdateReport(applied, unchanged, errors, System.nanoTime() - start);
+    }
+
+    private Change parse(String text) {
+        int firstComma = text.indexOf(',');
+        if (firstComma < 0) {
+            throw new IllegalArgumentException("Expected EMAIL,GRADE[,STATUS]");
+        }
+        int secondComma = text.indexOf(',', firstComma + 1);
+        String email = text.substring(0, firstComma).strip();
+        String grade = (secondComma < 0 ? text.substring(firstComma + 1) : text.substring(firstComma + 1, secondComma))
+                .strip();
+        String status = secondComma < 0 ? "" : text.substring(secondComma + 1).strip();
+        if (status.indexOf(',') >= 0) {
+            throw new IllegalArgumentException("Expected EMAIL,GRADE[,STATUS]");
+        }
+
+        Student st = this.students.searchByEmail(email);
+        if (st == null) {
+            throw new IllegalArgumentException("Student not found: " + email);
+        }
+        var change = new Change(st);
+        if (!grade.isEmpty()) {
+            try {
+                change.newGrade = Double.parseDouble(grade);
+            }
+            catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid grade " + grade);
+            }
+            Student.validateGrade(change.newGrade);
+        }
+        if (!status.isEmpty()) {
+            change.newStatus = Student.VALID_STUDENT_STATUS[Student.validateStatus(status)];
+        }
+        if (grade.isEmpty() && status.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to change for " + email);
+        }
+        return change;
+    }
+
+    // Alteração a um estudante, com os valores anteriores (para desfazer)
+    private static class Change {
+        Change(Student student) {
+            this.student = student;
+            this.oldGrade = student.getGrade();
+            this.oldStatus = student.getStatus();
+            this.newGrade = this.oldGrade;
+            this.newStatus = this.oldStatus;
+        }
+
+        boolean isNoOp() {
+            return this.newGrade == this.oldGrade && this.newStatus.equals(this.oldStatus);
+        }
+
+        void apply() {
+            if (this.newGrade != this.oldGrade) {
+                this.student.setGrade(this.newGrade);
+            }
+            if (!this.newStatus.equals(this.oldStatus)) {
+                this.student.setStatus(this.newStatus);
+            }
+        }
+
+        void undo() {
+            if (this.student.getGrade() != this.oldGrade) {
+                this.student.setGrade(this.oldGrade);
+            }
+            if (!this.student.getStatus().equals(this.oldStatus)) {
+                this.student.setStatus(this.oldStatus);
+            }
+        }
+
+        final Student student;
+        final double oldGrade;
+        final String oldStatus;
+        double newGrade;
+        String newStatus;
+    }
+
+    private final StudentCollection students;
+}
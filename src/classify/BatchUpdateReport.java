@@ -0,0 +1,60 @@
+package classify;
+
+import java.util.Collections;
+import java.util.List;
+
+// Resultado de BatchUpdate.apply: com erros, nenhuma alteração foi feita
+public class BatchUpdateReport {
+    BatchUpdateReport(int applied, int unchanged, List<StudentCsvException> errors, long elapsedNanos) {
+        this.applied = applied;
+        this.unchanged = unchanged;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Estudantes alterados
+    public int getApplied() {
+        return applied;
+    }
+
+    // Linhas com os valores que o estudante já tinha
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    // Linhas inválidas
+    public int getRejected() {
+        return errors.size();
+    }
+
+    public List<StudentCsvException> getErrors() {
+        return errors;
+    }
+
+    public boolean isApplied() {
+        return errors.isEmpty();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        if (!isApplied()) {
+            return String.format(
+                    "%d linhas inválidas: nenhuma alteração foi feita (%.1f ms)",
+                    errors.size(), elapsedNanos / 1e6
+            );
+        }
+        return String.format(
+                "%d estudantes alterados, %d sem alterações (%.1f ms)",
+                applied, unchanged, elapsedNanos / 1e6
+        );
+    }
+
+    private final int applied;
+    private final int unchanged;
+    private final List<StudentCsvException> errors;
+    private final long elapsedNanos;
+}
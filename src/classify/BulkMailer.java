@@ -0,0 +1,314 @@
+package classify;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Envio de uma mensagem a cada estudante (ex: a sua classificação, ponto 6
+// de docs/TODO.txt), pensado para milhares de estudantes:
+//
+// - as ligações SMTP são reutilizadas (um conjunto de SmtpConnection, cada
+//   uma usada para até MESSAGES_PER_CONNECTION mensagens), em vez de uma
+//   ligação por mensagem;
+// - no máximo parallelism mensagens em simultâneo (uma thread por envio);
+// - no máximo messagesPerSecond mensagens por segundo (token bucket);
+// - erros temporários (4xx, ligação perdida) são repetidos até maxAttempts
+//   vezes, com espera exponencial; erros definitivos (5xx, ex: endereço
+//   inexistente) não. Um erro definitivo ao abrir uma ligação (ex:
+//   autenticação recusada) termina o envio com uma SmtpException;
+// - um erro ao gerar uma mensagem conta como uma falha desse estudante;
+// - cada envio bem sucedido fica registado num ficheiro de progresso
+//   ("OK email"), e um envio interrompido continua onde ficou: os
+//   estudantes já registados não voltam a receber a mensagem. Se não for
+//   possível escrever no ficheiro de progresso, o envio termina (com a
+//   IOException).
+public class BulkMailer {
+
+    public BulkMailer(SmtpSettings settings, int parallelism, double messagesPerSecond, int maxAttempts) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Invalid number of attempts " + maxAttempts);
+        }
+        this.settings = settings;
+        this.parallelism = parallelism;
+        this.limiter = new RateLimiter(messagesPerSecond);
+        this.maxAttempts = maxAttempts;
+    }
+
+    public MailReport send(
+            Iterable<Student> students,
+            MessageTemplate subject,
+            MessageTemplate body,
+            Path progressLog
+    ) throws IOException {
+        long start = System.nanoTime();
+        Set<String> done = readProgress(progressLog);
+        List<Student> pending = new ArrayList<>();
+        int skipped = 0;
+        for (Student st : students) {
+            if (done.contains(StudentCollection.emailKey(st.getEmail()))) {
+                skipped += 1;
+            }
+            else {
+                pending.add(st);
+            }
+        }
+
+        var next = new AtomicInteger();
+        var sent = new AtomicInteger();
+        Map<String, String> failures = new LinkedHashMap<>();
+        var abort = new AtomicReference<IOException>();
+        try (var log = Files.newBufferedWriter(
+                progressLog, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND
+        )) {
+            var workers = new ArrayList<Thread>();
+            for (int i = 0; i < Math.min(this.parallelism, pending.size()); i += 1) {
+                var worker = new Thread(() -> {
+                    int row;
+                    while (abort.get() == null && (row = next.getAndIncrement()) < pending.size()) {
+                        Student st = pending.get(row);
+                        try {
+                            String error;
+                            try {
+                                error = deliver(st.getEmail(), subject.render(st), body.render(st));
+                            }
+                            catch (RuntimeException ex) {
+                                error = ex.toString();
+                            }
+                            if (error == null) {
+                                sent.incrementAndGet();
+                                logLine(log, "OK " + st.getEmail());
+                            }
+                            else {
+                                synchronized (failures) {
+                                    failures.put(st.getEmail(), error);
+                                }
+                                logLine(log, "FAILED " + st.getEmail() + " " + error);
+                            }
+                        }
+                        catch (IOException ex) {
+                            // ligação recusada de vez ou ficheiro de progresso
+                            // sem escrita: as outras threads param também
+                            abort.compareAndSet(null, ex);
+                        }
+                    }
+                }, "mailer-" + i);
+                workers.add(worker);
+                worker.start();
+            }
+            for (var worker : workers) {
+                worker.join();
+            }
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending", ex);
+        }
+        finally {
+            closeIdle();
+        }
+        if (abort.get() != null) {
+            throw abort.get();
+        }
+        return new MailReport(sent.get(), skipped, failures, System.nanoTime() - start);
+    }
+
+    // Devolve null se a mensagem foi aceite, ou a razão da falha. Um erro
+    // definitivo ao abrir a ligação (ex: autenticação recusada) seria igual
+    // para todos os estudantes: é lançado, e o envio termina.
+    private String deliver(String to, String subject, String text) throws SmtpException {
+        String error = null;
+        for (int attempt = 1; attempt <= this.maxAttempts; attempt += 1) {
+            if (attempt > 1) {
+                backoff(attempt);
+            }
+            this.limiter.acquire();
+            SmtpConnection conn;
+            try {
+                conn = borrow();
+            }
+            catch (SmtpException ex) {
+                if (ex.isPermanent()) {
+                    throw ex;
+                }
+                error = ex.getMessage();
+                continue;
+            }
+            catch (IOException ex) {
+                error = ex.toString();
+                continue;
+            }
+            try {
+                conn.send(to, subject, text);
+                release(conn);
+                return null;
+            }
+            catch (SmtpException ex) {
+                error = ex.getMessage();
+                resetOrDiscard(conn);
+                if (ex.isPermanent()) {
+                    return error;
+                }
+            }
+            catch (IOException ex) {
+                error = ex.toString();
+                discard(conn);
+            }
+        }
+        return error;
+    }
+
+    // Conjunto de ligações abertas e livres
+
+    private SmtpConnection borrow() throws IOException {
+        synchronized (this.idle) {
+            var conn = this.idle.poll();
+            if (conn != null) {
+                return conn;
+            }
+        }
+        return new SmtpConnection(this.settings);
+    }
+
+    private void release(SmtpConnection conn) {
+        if (conn.getSent() >= MESSAGES_PER_CONNECTION) {
+            discard(conn);
+            return;
+        }
+        synchronized (this.idle) {
+            this.idle.push(conn);
+        }
+    }
+
+    private void resetOrDiscard(SmtpConnection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.reset();
+            release(conn);
+        }
+        catch (IOException ex) {
+            discard(conn);
+        }
+    }
+
+    private static void discard(SmtpConnection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        }
+        catch (IOException ex) {
+            // ligação já perdida
+        }
+    }
+
+    private void closeIdle() {
+        synchronized (this.idle) {
+            while (!this.idle.isEmpty()) {
+                discard(this.idle.pop());
+            }
+        }
+    }
+
+    // Espera exponencial com variação aleatória (para as threads não
+    // repetirem todas ao mesmo tempo)
+    private static void backoff(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 2, 16));
+        delay += ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        try {
+            Thread.sleep(delay);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Emails (minúsculas) já enviados num envio anterior
+    private static Set<String> readProgress(Path progressLog) throws IOException {
+        var done = new HashSet<String>();
+        if (!Files.exists(progressLog)) {
+            return done;
+        }
+        for (String line : Files.readAllLines(progressLog, StandardCharsets.UTF_8)) {
+            if (line.startsWith("OK ")) {
+                done.add(StudentCollection.emailKey(line.substring(3).strip()));
+            }
+        }
+        return done;
+    }
+
+    private static void logLine(BufferedWriter log, String line) throws IOException {
+        synchronized (log) {
+            log.write(line);
+            log.newLine();
+            log.flush();
+        }
+    }
+
+    // Token bucket: até rate mensagens por segundo, com rajadas de até
+    // max(1, rate) mensagens. rate <= 0: sem limite.
+    private static class RateLimiter {
+        RateLimiter(double rate) {
+            this.rate = rate;
+            this.capacity = Math.max(1, rate);
+            this.tokens = this.capacity;
+            this.last = System.nanoTime();
+        }
+
+        void acquire() {
+            if (this.rate <= 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                this.tokens = Math.min(this.capacity, this.tokens + (now - this.last) / 1e9 * this.rate);
+                this.last = now;
+                // o token é reservado já; quem chega a seguir espera mais
+                this.tokens -= 1;
+                wait = this.tokens >= 0 ? 0 : (long) (-this.tokens / this.rate * 1e9);
+            }
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private final double rate;
+        private final double capacity;
+        private double tokens;
+        private long last;
+    }
+
+    private static final int MESSAGES_PER_CONNECTION = 100;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final SmtpSettings settings;
+    private final int parallelism;
+    private final RateLimiter limiter;
+    private final int maxAttempts;
+    private final ArrayDeque<SmtpConnection> idle = new ArrayDeque<>();
+}
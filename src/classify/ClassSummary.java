@@ -0,0 +1,42 @@
+package classify;
+
+// Resumo de uma turma gerida por um RosterEngine, disponível mesmo quando a
+// turma não está em memória
+public class ClassSummary {
+    ClassSummary(String name, int count, double average, boolean resident) {
+        this.name = name;
+        this.count = count;
+        this.average = average;
+        this.resident = resident;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    // Se a turma está carregada em memória
+    public boolean isResident() {
+        return resident;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%-20s %6d estudantes  MÉDIA %6.2f %s",
+                name, count, average, Student.classifyGrade(average)
+        );
+    }
+
+    private final String name;
+    private final int count;
+    private final double average;
+    private final boolean resident;
+}
@@ -0,0 +1,13 @@
+package classify;
+
+import java.util.List;
+
+// Métricas vistas por JMX (ex: jconsole), como classify:type=Metrics
+public interface ClassifyMetricsMXBean {
+
+    boolean isEnabled();
+
+    List<OperationSnapshot> getOperations();
+
+    void reset();
+}
@@ -1,79 +1,151 @@
 package classify;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
 
 import static java.lang.System.err;
 import static java.lang.System.out;
 
 public class ClassifyShell {
 
-    interface StudentToString {
-        String exec(Student st);
+    // Lê a turma (do snapshot, se estiver actualizado) e devolve as linhas
+    // inválidas encontradas; quem chama decide o que fazer com elas
+    private static ValidationReport readStudents(String filePath) throws IOException {
+        long start = Metrics.start();
+        long readStart = System.nanoTime();
+        var path = Paths.get(filePath);
+        // compactação interrompida: a turma gravada passa a ser o CSV
+        StudentJournal.recover(path);
+        try {
+            if (Files.exists(path) && StudentSnapshot.isFresh(path)) {
+                students = StudentSnapshot.read(StudentSnapshot.pathFor(path));
+                Metrics.READ.stop(start, students.size());
+                return new ValidationReport(students.size(), List.of(), System.nanoTime() - readStart);
+            }
+        }
+        catch (IOException ex) {
+            // snapshot inválido: lê-se o CSV
+            err.println("Ignoring snapshot: " + ex.getMessage());
+        }
+
+        var errors = new ArrayList<StudentCsvException>();
+        try {
+            loadStudents(filePath, students, errors);
+        }
+        catch (IOException ex) {
+            Metrics.READ.failed(start);
+            throw ex;
+        }
+        Metrics.READ.errors(errors.size());
+        Metrics.READ.stop(start, students.size());
+        return new ValidationReport(students.size(), errors, System.nanoTime() - readStart);
     }
 
-    private static void readStudents(String filePath) {
-        var path = Paths.get(filePath);
-        BufferedReader bufferedReader = null;
+    // Aplica as alterações do diário feitas depois da última gravação da
+    // turma e passa a registar as novas
+    private static void openJournal() {
+        var journalPath = StudentJournal.pathFor(Paths.get(filePath));
+        int changes = 0;
         try {
-            bufferedReader = Files.newBufferedReader(path);
+            changes = StudentJournal.replay(journalPath, students);
+            journal = StudentJournal.open(journalPath);
         }
         catch (IOException ex) {
-            err.println("Can't open file for reading " + filePath);
+            err.println("Can't read journal " + journalPath + ": " + ex.getMessage());
             System.exit(1);
         }
+        if (changes > 0) {
+            out.printf("Recuperadas %d alterações de %s\n", changes, journalPath);
+            compactJournalOrExit();
+        }
+        students.addListener(journal);
+    }
 
-        final var reader = bufferedReader;
-        try (reader) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] attrs = line.strip().split(",");
-                var student = new Student(
-                        attrs[0].strip(),
-                        attrs[1].strip(), // .strip() -> "   xpto@mail.com " ==> "xpto@mail.com"
-                        attrs[2].strip(),
-                        attrs[3].strip(),
-                        attrs[4].strip()
-                );
-                students.add(student);
-            }
+    // Depois de cada alteração feita no menu: só continua quando a alteração
+    // está no diário em disco. Diários grandes são compactados.
+    private static void commitChanges() {
+        try {
+            journal.sync();
         }
         catch (IOException ex) {
-            err.println("Can't read file and/or data is corrupted");
+            err.println("Can't write journal " + journal.getFile());
             System.exit(1);
         }
+        if (journal.size() > JOURNAL_COMPACT_THRESHOLD) {
+            compactJournalOrExit();
+        }
     }
 
-    private static void writeStudents(
-            String filePath,
-            String header,
-            StudentToString studentToString
-    ) {
+    // Grava a turma (que passa a incluir as alterações) e esvazia o diário.
+    // Se a gravação falhar, o diário fica como estava. A turma gravada só
+    // substitui o CSV depois de o diário estar vazio (ver StudentJournal).
+    private static void compactJournal() throws IOException {
         var path = Paths.get(filePath);
-        BufferedWriter bufferedWriter = null;
+        writeStudents(StudentJournal.pendingPathFor(path).toString(), "", StudentCsvWriter.Layout.SAVE);
+        journal.compacted(path);
+        saveSnapshot();
+    }
+
+    private static void compactJournalOrExit() {
         try {
-            bufferedWriter = Files.newBufferedWriter(path);
+            compactJournal();
         }
         catch (IOException ex) {
-            err.println("Can't open file for writing " + filePath);
+            err.println("Can't save " + filePath + ": " + ex.getMessage());
             System.exit(1);
         }
+    }
 
-        final var writer = bufferedWriter;
-        try (writer) {
-            writer.write(header);
-            for (var st : students) {
-                String txtLine = studentToString.exec(st);
-                writer.write(txtLine);
+    // Ficheiros pequenos são lidos pelo leitor de stream; os maiores são
+    // mapeados em memória (em paralelo, se houver vários processadores).
+    private static void loadStudents(
+            String filePath,
+            StudentCollection target,
+            List<StudentCsvException> errors
+    ) throws IOException {
+        var path = Paths.get(filePath);
+        long size = Files.size(path);
+        if (size < MAPPED_READ_THRESHOLD) {
+            try (var input = Files.newInputStream(path)) {
+                new StudentCsvReader(input).read(target::add, errors::add);
             }
         }
+        else if (size >= PARALLEL_LOAD_THRESHOLD
+                 && Runtime.getRuntime().availableProcessors() > 1) {
+            var report = new ParallelStudentLoader().load(path, target, errors::add);
+            out.println("Importação: " + report);
+        }
+        else {
+            new MappedStudentReader(path).read(target::add, errors::add);
+        }
+    }
+
+    private static void writeStudents(
+            String filePath,
+            String header,
+            StudentCsvWriter.Layout layout
+    ) throws IOException {
+        long start = Metrics.start();
+        try {
+            new StudentCsvWriter(layout).write(Paths.get(filePath), header, students);
+            Metrics.WRITE.stop(start, students.size());
+        }
         catch (IOException ex) {
-            err.println("Can't write to file");
-            System.exit(1);
+            Metrics.WRITE.failed(start);
+            throw ex;
         }
     }
 
@@ -81,12 +153,14 @@ public class ClassifyShell {
         while (true) {
             // 1. Exibir opções o menu
             Utils.clearScreen();
+            reloadIfChanged();
             out.println("GESTÃO DE CLASSIFICAÇÕES");
             out.println("L - Listar classificações");
             out.println("P - Pesquisar classificações");
             out.println("A - Actualizar informação sobre estudante ");
             out.println("E - Exportar classificações");
             out.println("R – Reler classificações");
+            out.println("M - Enviar classificações por email");
             out.println("0 - Terminar");
 
             // 2. Ler opção introduzida
@@ -108,19 +182,21 @@ public class ClassifyShell {
                 case "E":
                     execExportStudents();
                     break;
+                case "R":
+                    execReloadStudents();
+                    break;
+                case "M":
+                    execMailStudents();
+                    break;
                 case "0":
-                    writeStudents(
-                            filePath,
-                            "",
-                            (Student st) -> String.format(
-                                    "%s,%s,%s,%.0f,%s\n",
-                                    st.getName(),
-                                    st.getEmail(),
-                                    st.getBirthDate(),
-                                    st.getGrade(),
-                                    st.getStatus()
-                            )
-                    );
+                    compactJournalOrExit();
+                    try {
+                        journal.close();
+                    }
+                    catch (IOException ex) {
+                        err.println("Can't write journal " + journal.getFile());
+                        System.exit(1);
+                    }
                     out.println("O programa vai terminar...");
                      System.exit(0);
                     // break ciclo;
@@ -130,9 +206,29 @@ public class ClassifyShell {
         }
     }
 
+    // Depois de gravar o CSV: o snapshot binário (para ficar mais recente).
+    // Não termina o programa se não puder ser gravado: também é usado no
+    // shutdown hook do modo --serve, onde System.exit bloquearia.
+    private static void saveSnapshot() {
+        var path = Paths.get(filePath);
+        try {
+            StudentSnapshot.write(StudentSnapshot.pathFor(path), students);
+        }
+        catch (IOException ex) {
+            err.println("Can't write snapshot " + StudentSnapshot.pathFor(path));
+        }
+        try {
+            if (watcher != null) {
+                watcher.markCurrent();
+            }
+        }
+        catch (IOException ex) {
+            // o ficheiro será relido se tiver mudado
+        }
+    }
+
     private static void execListing() {
         showStudentCollection(students);
-        Utils.pause();
     }
 
     private static void execSearch() {
@@ -141,6 +237,7 @@ public class ClassifyShell {
             out.println("E - Pesquisar por email");
             out.println("N - Nome");
             out.println("C - Classificação ");
+            out.println("V - Vários critérios");
             out.println("ENTER para voltar ao menu anterior");
 
             // 2. Ler opção introduzida
@@ -152,21 +249,81 @@ public class ClassifyShell {
 
             // 3. Analisar e executar a opção introduzida
             switch (option.toUpperCase()) {
+                case "E":
+                    execSearchByEmail();
+                    break;
                 case "N":
                     execSearchByName();
                     break;
+                case "C":
+                    execSearchByGrades();
+                    break;
+                case "V":
+                    execSearchByCriteria();
+                    break;
                 default:
                     out.printf("Opção <%s> inválida\n", option);
             }
         }
     }
 
+    // Ponto 2.1 de docs/TODO.txt
+    private static void execSearchByEmail() {
+        out.print("Email do estudante: ");
+        String email = in.nextLine().strip();
+        if (email.isEmpty()) {
+            return;
+        }
+        showStudentCollection(students.query().email(email).collect());
+    }
+
     private static void execSearchByName() {
         out.print("Introduza parte do nome a pesquisar: ");
         String namePart = in.nextLine();
-        var studentCollection = students.searchByName(namePart);
+        var studentCollection = students.searchByName(namePart, true);
         showStudentCollection(studentCollection);
-        Utils.pause();
+    }
+
+    // Ponto 2.2 de docs/TODO.txt
+    private static void execSearchByGrades() {
+        var query = students.query();
+        acceptGradeRange(query);
+        showStudentCollection(query.orderBy(StudentOrder.GRADE).collect());
+    }
+
+    // Todos os critérios são opcionais (ENTER para ignorar) e cumulativos;
+    // ver StudentQuery
+    private static void execSearchByCriteria() {
+        var query = students.query();
+        out.print("Parte do nome (ENTER para ignorar): ");
+        String namePart = in.nextLine().strip();
+        if (!namePart.isEmpty()) {
+            query.nameContains(namePart);
+        }
+        while (true) {
+            out.print("Estatuto (REG, TRAB ou BOLS; ENTER para ignorar): ");
+            String status = in.nextLine().strip().toUpperCase();
+            if (status.isEmpty()) {
+                break;
+            }
+            var studentStatus = StudentStatus.of(status);
+            if (studentStatus != null) {
+                query.status(studentStatus);
+                break;
+            }
+            out.println("Estatuto inválido: " + status);
+        }
+        acceptGradeRange(query);
+        showStudentCollection(query.collect());
+    }
+
+    // Sem nenhum dos limites, não acrescenta nenhum critério
+    private static void acceptGradeRange(StudentQuery query) {
+        var min = Utils.acceptDouble(in, "Classificação mínima (ENTER para 0): ", 0, 200);
+        var max = Utils.acceptDouble(in, "Classificação máxima (ENTER para 200): ", 0, 200);
+        if (min.isPresent() || max.isPresent()) {
+            query.grades(min.orElse(0.0), max.orElse(200.0));
+        }
     }
 
     private static void execUpdateStudent() {
@@ -176,6 +333,7 @@ public class ClassifyShell {
             out.println("E - Actualizar email");
             out.println("C - Classificação ");
             out.println("S - Estatuto");
+            out.println("F - Várias classificações/estatutos a partir de um ficheiro");
             out.println("ENTER para voltar ao menu anterior");
 
             // 2. Ler opção introduzida
@@ -184,6 +342,10 @@ public class ClassifyShell {
             if (option.strip().isEmpty()) {
                 return;
             }
+            if (option.equalsIgnoreCase("F")) {
+                execBatchUpdate();
+                continue;
+            }
 
             // 3. Solicitar email e obter estudante
             out.print("Email do estudante: ");
@@ -202,12 +364,67 @@ public class ClassifyShell {
                 case "E":
                     execUpdateStudentEmail(st);
                     break;
+                case "C":
+                    execUpdateStudentGrade(st);
+                    break;
+                case "S":
+                    execUpdateStudentStatus(st);
+                    break;
                 default:
                     out.printf("Opção <%s> inválida\n", option);
             }
+            commitChanges();
+        }
+    }
+
+    // Ponto 3.1 de docs/TODO.txt
+    private static void execUpdateStudentGrade(Student st) {
+        out.printf("Classificação actual: %.0f (%s)\n", st.getGrade(), st.getTextualGrade());
+        var grade = Utils.acceptDouble(in, "Nova classificação (0 a 200, ENTER para manter): ", 0, 200);
+        if (grade.isPresent()) {
+            st.setGrade(grade.get());
+        }
+    }
+
+    // Ponto 3.2 de docs/TODO.txt
+    private static void execUpdateStudentStatus(Student st) {
+        out.println("Estatuto actual: " + st.getStatus());
+        while (true) {
+            out.print("Novo estatuto (REG, TRAB ou BOLS; ENTER para manter): ");
+            String status = in.nextLine().strip().toUpperCase();
+            if (status.isEmpty()) {
+                return;
+            }
+            if (StudentStatus.of(status) != null) {
+                st.setStatus(status);
+                return;
+            }
+            out.println("Estatuto inválido: " + status);
         }
     }
 
+    // Ficheiro com linhas EMAIL,CLASSIFICAÇÃO[,ESTATUTO] (ver BatchUpdate):
+    // ou são feitas todas as alterações, ou nenhuma
+    private static void execBatchUpdate() {
+        out.print("Ficheiro com as alterações: ");
+        String changesPath = in.nextLine().strip();
+        if (changesPath.isEmpty()) {
+            return;
+        }
+        try {
+            var report = new BatchUpdate(students).apply(Paths.get(changesPath));
+            out.println(report);
+            for (var ex : report.getErrors()) {
+                out.println("  " + ex.getMessage());
+            }
+        }
+        catch (IOException ex) {
+            out.println("Não foi possível ler " + changesPath + ": " + ex.getMessage());
+        }
+        commitChanges();
+        Utils.pause();
+    }
+
     private static void execUpdateStudentEmail(Student st) {
         while (true) {
             String email = "";
@@ -223,63 +440,218 @@ public class ClassifyShell {
         }
     }
 
+    // O formato de cada ficheiro é dado pela extensão (.csv, .html, .xlsx);
+    // vários ficheiros são escritos numa só passagem pela turma
     private static void execExportStudents() {
-        out.print("Caminho do ficheiro: ");
-        String filePath = in.nextLine().strip();
-        if (filePath.strip().isEmpty()) {
+        out.print("Ficheiros (.csv, .html ou .xlsx, separados por ';'): ");
+        String input = in.nextLine().strip();
+        if (input.isEmpty()) {
             return;
         }
 
-        var grade = students.average();
-        var textualGrade = Student.classifyGrade(grade).toUpperCase();
-        writeStudents(
-                filePath,
-                String.format("MÉDIA %.1f %s\n\n", grade, textualGrade),
-                (Student st) -> String.format(
-                        "%s,%s,%.0f,%s\n",
-                        st.getName(),
-                        st.getEmail(),
-                        st.getGrade(),
-                        st.getTextualGrade()
-                )
-        );
+        var files = new ArrayList<Path>();
+        for (String name : input.split(";")) {
+            if (!name.isBlank()) {
+                files.add(Paths.get(name.strip()));
+            }
+        }
+        try {
+            StudentExport.export(students, files);
+        }
+        catch (DuplicateValueException ex) {
+            out.println("Ficheiro indicado mais do que uma vez: " + input);
+            Utils.pause();
+        }
+        catch (IOException ex) {
+            err.println("Can't write to file " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void execReloadStudents() {
+        var report = reloadStudents();
+        if (report != null) {
+            out.printf("Lidos %d estudantes de %s: %s\n", students.size(), filePath, report);
+        }
+        Utils.pause();
+    }
+
+    // Envia a cada estudante a sua classificação (ponto 6 de docs/TODO.txt).
+    // Os envios feitos ficam em <ficheiro>.mail-progress: repetir a opção
+    // depois de uma interrupção só envia aos que faltam.
+    private static void execMailStudents() {
+        out.print("Servidor SMTP: ");
+        String server = in.nextLine().strip();
+        if (server.isEmpty()) {
+            return;
+        }
+        out.print("Segurança (PLAIN, TLS, START_TLS) [START_TLS]: ");
+        String modeName = in.nextLine().strip().toUpperCase();
+        out.print("Porta (ENTER para a habitual): ");
+        String portText = in.nextLine().strip();
+        out.print("Email do remetente: ");
+        String sourceAddr = in.nextLine().strip();
+        String password = readPassword("Palavra-passe (ENTER para nenhuma): ");
+        try {
+            var mode = modeName.isEmpty()
+                       ? SmtpSettings.SecurityMode.START_TLS
+                       : SmtpSettings.SecurityMode.valueOf(modeName);
+            var settings = new SmtpSettings(
+                    server,
+                    portText.isEmpty() ? SmtpSettings.defaultPort(mode) : Integer.parseInt(portText),
+                    sourceAddr,
+                    password.isEmpty() ? null : sourceAddr, password, mode
+            );
+            var mailer = new BulkMailer(settings, MAIL_PARALLELISM, MAIL_RATE, MAIL_ATTEMPTS);
+            var report = mailer.send(
+                    students, MAIL_SUBJECT, MAIL_BODY, Paths.get(filePath + ".mail-progress")
+            );
+            out.println("Envio: " + report);
+            report.getFailures().forEach((email, reason) -> out.printf("  %s: %s\n", email, reason));
+        }
+        catch (IllegalArgumentException ex) {
+            out.println("Dados inválidos: " + ex.getMessage());
+        }
+        catch (IOException ex) {
+            out.println("Não foi possível enviar: " + ex.getMessage());
+        }
+        Utils.pause();
+    }
+
+    private static String readPassword(String prompt) {
+        var console = System.console();
+        if (console != null) {
+            char[] password = console.readPassword(prompt);
+            return password == null ? "" : new String(password);
+        }
+        out.print(prompt);
+        return in.nextLine();
+    }
+
+    // Alterações feitas ao ficheiro por outro programa: aplicadas ao voltar
+    // ao menu principal
+    private static void reloadIfChanged() {
+        try {
+            if (watcher == null || !watcher.hasChanged()) {
+                return;
+            }
+        }
+        catch (IOException ex) {
+            return;
+        }
+        var report = reloadStudents();
+        if (report != null && report.hasChanges()) {
+            out.printf("%s alterado: %s\n", filePath, report);
+        }
+    }
+
+    // Relê o ficheiro e aplica à turma em memória apenas as diferenças (o
+    // ficheiro prevalece), voltando a aplicar por cima as alterações ainda
+    // só no diário. Com dados inválidos a turma fica como estava.
+    private static ReloadReport reloadStudents() {
+        var reloaded = new StudentCollection();
+        var errors = new ArrayList<StudentCsvException>();
+        try {
+            if (watcher != null) {
+                // alterações durante a leitura voltam a ser assinaladas
+                watcher.markCurrent();
+            }
+            loadStudents(filePath, reloaded, errors);
+        }
+        catch (IOException ex) {
+            out.println("Não foi possível ler " + filePath);
+            return null;
+        }
+        if (!errors.isEmpty()) {
+            out.println("Dados inválidos em " + filePath + " (mantidos os dados anteriores):");
+            for (var ex : errors) {
+                out.println("  " + ex.getMessage());
+            }
+            return null;
+        }
+
+        // alterações ainda não gravadas na turma
+        try {
+            journal.sync();
+            StudentJournal.replay(journal.getFile(), reloaded);
+        }
+        catch (IOException ex) {
+            err.println("Can't read journal " + journal.getFile() + ": " + ex.getMessage());
+            System.exit(1);
+        }
+        // as diferenças já estão no ficheiro ou no diário
+        students.removeListener(journal);
+        try {
+            return RosterDiff.apply(students, reloaded);
+        }
+        finally {
+            students.addListener(journal);
+        }
     }
 
+    // Vigia o ficheiro da turma (ver reloadIfChanged); sem vigilância a
+    // turma só é relida com a opção R
+    private static void watchStudents() {
+        try {
+            watcher = new StudentFileWatcher(Paths.get(filePath));
+        }
+        catch (IOException ex) {
+            err.println("Can't watch file " + filePath + ": " + ex.getMessage());
+        }
+    }
+
+    // Listagem por páginas de PAGE_SIZE estudantes (ponto 1.2 de
+    // docs/TODO.txt), pela ordem escolhida. Só a página visível é obtida e
+    // formatada.
     private static void showStudentCollection(StudentCollection studentCollection) {
         if (studentCollection.isEmpty()) {
             out.println("Não foram encontrados estudantes");
+            Utils.pause();
             return;
         }
 
-        out.printf(
-                "%-30s | %15s | %15s | %-30s\n",
-                "NOME",
-                "Classificação",
-                "Classificação",
-                Utils.center("Email", 30)
-        );
-        out.printf("%-30s | %15s | %15s |\n", " ", "Quantitativa", "Qualitativa");
-        // melhor em: https://stackoverflow.com/a/1900485
-        // e https://kodejava.org/how-do-i-align-string-print-out-in-left-right-center-alignment/
-        out.println("-------------------------------+-----------------+-----------------+---------------------------");
-        for (Student st : studentCollection) {
-            showStudent(st);
-        }
-
-        out.println();
-        var average = studentCollection.average();
-        out.printf("MÉDIA: %5.2f %-15s\n", average, Student.classifyGrade(average));
-        out.println();
-    }
-
-    private static void showStudent(Student student) {
-        out.printf(
-                "%-30s | %15.0f | %15s | %-30s\n",
-                student.getName(),
-                student.getGrade(),
-                Utils.center(student.getTextualGrade(), 15),
-                Utils.center(student.getEmail(), 30)
-        );
+        var order = StudentOrder.INSERTION;
+        int cursor = 0;
+        while (true) {
+            var page = studentCollection.page(order, cursor, PAGE_SIZE);
+            out.print(table.render(page, studentCollection.statistics()));
+            out.println("S - Seguinte  A - Anterior");
+            out.println("Ordenar por: N - Nome  C - Classificação  M - Email  I - Ordem do ficheiro");
+            out.println("ENTER para voltar ao menu anterior");
+            out.print("> ");
+            String option = in.nextLine().strip();
+            if (option.isEmpty()) {
+                return;
+            }
+            switch (option.toUpperCase()) {
+                case "S":
+                    cursor = page.hasNext() ? page.getNextCursor() : cursor;
+                    break;
+                case "A":
+                    cursor = page.hasPrevious() ? page.getPreviousCursor() : cursor;
+                    break;
+                case "N":
+                    order = StudentOrder.NAME;
+                    cursor = 0;
+                    break;
+                case "C":
+                    order = StudentOrder.GRADE;
+                    cursor = 0;
+                    break;
+                case "M":
+                    order = StudentOrder.EMAIL;
+                    cursor = 0;
+                    break;
+                case "I":
+                    order = StudentOrder.INSERTION;
+                    cursor = 0;
+                    break;
+                default:
+                    out.printf("Opção <%s> inválida\n", option);
+                    continue;
+            }
+            Utils.clearScreen();
+        }
     }
 
     private static String now() {
@@ -289,22 +661,384 @@ public class ClassifyShell {
         );
     }
 
+    // Sem consola: serve a turma por HTTP (ver StudentServer) até o
+    // processo ser terminado; a turma é gravada ao terminar. POST /update
+    // não tem autenticação: por omissão só aceita ligações locais (ver
+    // parseServeAddress).
+    private static void serveStudents(InetSocketAddress address) {
+        var lock = new ReentrantReadWriteLock();
+        StudentServer server = null;
+        try {
+            server = new StudentServer(students, lock, journal, address);
+        }
+        catch (IOException ex) {
+            err.println("Can't listen on " + address + ": " + ex.getMessage());
+            System.exit(1);
+        }
+        server.compactJournal(JOURNAL_COMPACT_THRESHOLD, ClassifyShell::compactJournal);
+        var running = server;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            running.stop(1);
+            lock.writeLock().lock();
+            try {
+                try {
+                    compactJournal();
+                }
+                catch (IOException ex) {
+                    // as alterações continuam no diário, aplicado no próximo arranque
+                    err.println("Can't save " + filePath + " (changes kept in " + journal.getFile() + "): "
+                                + ex.getMessage());
+                }
+                journal.close();
+            }
+            catch (IOException ex) {
+                err.println("Can't write journal " + journal.getFile());
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }));
+        server.start();
+        var bound = server.getAddress().getAddress();
+        String host = bound.isLoopbackAddress() || bound.isAnyLocalAddress() ? "localhost"
+                      : bound.getHostAddress().indexOf(':') >= 0 ? "[" + bound.getHostAddress() + "]"
+                      : bound.getHostAddress();
+        out.printf("A servir %s (%d estudantes) em http://%s:%d/%s\n",
+                   filePath, students.size(), host, server.getAddress().getPort(),
+                   bound.isAnyLocalAddress() ? " (e em todas as interfaces)" : "");
+    }
+
+    // PORTA (só em localhost) ou ENDEREÇO:PORTA (ex: 0.0.0.0:8080 para
+    // aceitar ligações de outras máquinas, ou [::]:8080)
+    private static InetSocketAddress parseServeAddress(String arg) throws UnknownHostException {
+        int colon = arg.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), parsePort(arg));
+        }
+        String host = arg.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        return new InetSocketAddress(InetAddress.getByName(host), parsePort(arg.substring(colon + 1)));
+    }
+
+    private static int parsePort(String str) {
+        int port = Integer.parseInt(str);
+        if (port < 0 || port > 0xFFFF) {
+            throw new NumberFormatException("Port out of range: " + port);
+        }
+        return port;
+    }
+
+    // Valida o ficheiro sem o carregar e mostra todos os erros encontrados
+    private static void checkStudents(String filePath) {
+        try {
+            var report = StudentValidator.validate(Paths.get(filePath));
+            for (var ex : report.getErrors()) {
+                out.println(ex.getMessage());
+            }
+            out.println(filePath + ": " + report);
+            System.exit(report.hasErrors() ? 1 : 0);
+        }
+        catch (IOException ex) {
+            err.println("Can't read file " + filePath);
+            System.exit(1);
+        }
+    }
+
+    // Várias turmas (ver RosterEngine): médias de cada turma e
+    // classificações de um estudante em todas as turmas
+    private static void execSchoolMenu(List<Path> files) {
+        var school = new RosterEngine(Long.getLong("classify.maxResidentRows", DEFAULT_RESIDENT_ROWS));
+        try {
+            long start = System.nanoTime();
+            var errors = school.loadAll(files, Runtime.getRuntime().availableProcessors());
+            for (var e : errors.entrySet()) {
+                err.println("Can't read " + e.getKey() + ": " + e.getValue().getMessage());
+            }
+            out.printf("Lidas %d turmas em %.1f ms\n", school.classNames().size(), (System.nanoTime() - start) / 1e6);
+        }
+        catch (InterruptedException ex) {
+            System.exit(1);
+        }
+
+        while (true) {
+            out.println("GESTÃO DE TURMAS");
+            out.println("T - Médias por turma");
+            out.println("E - Classificações de um estudante em todas as turmas");
+            out.println("0 - Terminar");
+            out.print(now() + " > ");
+            String option = in.nextLine().strip();
+            Utils.clearScreen();
+            try {
+                switch (option.toUpperCase()) {
+                    case "T":
+                        for (var summary : school.summaries()) {
+                            out.println(summary);
+                        }
+                        out.printf("ESCOLA: MÉDIA %.2f\n", school.schoolAverage());
+                        Utils.pause();
+                        break;
+                    case "E":
+                        out.print("Email do estudante: ");
+                        String email = in.nextLine().strip();
+                        var grades = school.gradesByClass(email);
+                        if (grades.isEmpty()) {
+                            out.printf("Estudante com email <%s> não encontrado\n", email);
+                        }
+                        grades.forEach((name, grade) -> out.printf(
+                                "%-20s %5.0f %s\n", name, grade, Student.classifyGrade(grade)
+                        ));
+                        Utils.pause();
+                        break;
+                    case "0":
+                        school.close();
+                        out.println("O programa vai terminar...");
+                        System.exit(0);
+                        break;
+                    default:
+                        out.printf("Opção <%s> inválida\n", option);
+                }
+            }
+            catch (IOException ex) {
+                err.println("Can't read class: " + ex.getMessage());
+            }
+        }
+    }
+
+    // Turma fora do heap (ver OffHeapStudentStore.openClass), só para
+    // consulta: o heap não depende do número de estudantes, e vários
+    // processos com a mesma turma partilham a memória dos ficheiros
+    private static void execOffHeapMenu(Path file) {
+        try {
+            var journalPath = StudentJournal.pathFor(file);
+            if (Files.exists(journalPath) && Files.size(journalPath) > 0
+                || Files.exists(StudentJournal.pendingPathFor(file))) {
+                err.println("Unsaved changes in " + journalPath + ": open the class without --offheap first");
+                System.exit(1);
+            }
+        }
+        catch (IOException ex) {
+            err.println("Can't read journal " + StudentJournal.pathFor(file));
+            System.exit(1);
+        }
+        OffHeapStudentStore store = openOffHeapClass(file);
+        GradeStatistics stats = null;
+        while (true) {
+            out.println("GESTÃO DE CLASSIFICAÇÕES (só consulta)");
+            out.println("L - Listar classificações");
+            out.println("E - Pesquisar por email");
+            out.println("N - Pesquisar por nome");
+            out.println("G - Gravar classificações num ficheiro CSV");
+            out.println("0 - Terminar");
+            out.print(now() + " > ");
+            String option = in.nextLine().strip();
+            Utils.clearScreen();
+            switch (option.toUpperCase()) {
+                case "L":
+                    if (stats == null) {
+                        stats = GradeStatistics.of(store);
+                    }
+                    showStudentStore(store, row -> true, stats);
+                    break;
+                case "E":
+                    out.print("Email do estudante: ");
+                    Student found = store.searchByEmail(in.nextLine().strip());
+                    showStudentCollection(StudentCollection.view(found == null ? List.of() : List.of(found)));
+                    break;
+                case "N":
+                    out.print("Introduza parte do nome a pesquisar: ");
+                    String namePart = NameIndex.stripAccents(in.nextLine().strip().toLowerCase(Locale.ROOT));
+                    IntPredicate matches = row -> NameIndex.stripAccents(
+                            store.get(row).getName().toLowerCase(Locale.ROOT)
+                    ).contains(namePart);
+                    showStudentStore(store, matches, GradeStatistics.of(store, matches));
+                    break;
+                case "G":
+                    out.print("Nome do ficheiro CSV: ");
+                    String outPath = in.nextLine().strip();
+                    long start = Metrics.start();
+                    try {
+                        new StudentCsvWriter(StudentCsvWriter.Layout.SAVE).write(Paths.get(outPath), "", store);
+                        Metrics.WRITE.stop(start, store.size());
+                        out.printf("Gravados %d estudantes em %s\n", store.size(), outPath);
+                    }
+                    catch (IOException ex) {
+                        Metrics.WRITE.failed(start);
+                        err.println("Can't write to file " + outPath);
+                    }
+                    Utils.pause();
+                    break;
+                case "0":
+                    store.close();
+                    out.println("O programa vai terminar...");
+                    System.exit(0);
+                    break;
+                default:
+                    out.printf("Opção <%s> inválida\n", option);
+            }
+        }
+    }
+
+    private static OffHeapStudentStore openOffHeapClass(Path file) {
+        try {
+            long start = System.nanoTime();
+            var store = OffHeapStudentStore.openClass(file);
+            out.printf("Aberta %s (%d estudantes) em %.1f ms\n", file, store.size(), (System.nanoTime() - start) / 1e6);
+            return store;
+        }
+        catch (IOException ex) {
+            err.println("Can't open class " + file + ": " + ex.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    // Listagem pela ordem do ficheiro das linhas aceites por filter (stats:
+    // as dessas linhas), uma página de vistas de cada vez; a memória usada
+    // não depende do tamanho da turma
+    private static void showStudentStore(StudentStore store, IntPredicate filter, GradeStatistics stats) {
+        int total = (int) stats.getCount();
+        if (total == 0) {
+            out.println("Não foram encontrados estudantes");
+            Utils.pause();
+            return;
+        }
+        // linha onde começa cada página já mostrada (a seguinte é procurada
+        // a partir do fim da actual)
+        var pageStarts = new ArrayList<Integer>(List.of(0));
+        int pageNumber = 0;
+        while (true) {
+            var rows = new ArrayList<Student>(PAGE_SIZE);
+            int row = pageStarts.get(pageNumber);
+            for (; row < store.size() && rows.size() < PAGE_SIZE; row += 1) {
+                if (filter.test(row)) {
+                    rows.add(store.get(row));
+                }
+            }
+            if (pageStarts.size() == pageNumber + 1) {
+                pageStarts.add(row);
+            }
+            var page = new StudentPage(rows, StudentOrder.INSERTION, pageNumber * PAGE_SIZE, PAGE_SIZE, total);
+            out.print(table.render(page, stats));
+            out.println("S - Seguinte  A - Anterior");
+            out.println("ENTER para voltar ao menu anterior");
+            out.print("> ");
+            String option = in.nextLine().strip();
+            if (option.isEmpty()) {
+                return;
+            }
+            switch (option.toUpperCase()) {
+                case "S":
+                    pageNumber += page.hasNext() ? 1 : 0;
+                    break;
+                case "A":
+                    pageNumber -= page.hasPrevious() ? 1 : 0;
+                    break;
+                default:
+                    out.printf("Opção <%s> inválida\n", option);
+                    continue;
+            }
+            Utils.clearScreen();
+        }
+    }
+
     public static void main(String[] args) {
+        Metrics.install();
+        if (args.length == 2 && args[0].equals("--check")) {
+            checkStudents(args[1]);
+            return;
+        }
+        if (args.length >= 2 && args[0].equals("--school")) {
+            var files = new ArrayList<Path>();
+            for (int i = 1; i < args.length; i += 1) {
+                files.add(Paths.get(args[i]));
+            }
+            execSchoolMenu(files);
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--offheap")) {
+            execOffHeapMenu(Paths.get(args[1]));
+            return;
+        }
+        InetSocketAddress serveAddress = null;
+        if (args.length == 3 && args[0].equals("--serve")) {
+            try {
+                serveAddress = parseServeAddress(args[1]);
+            }
+            catch (NumberFormatException ex) {
+                err.println("Erro: porta inválida " + args[1]);
+                System.exit(2);
+            }
+            catch (UnknownHostException ex) {
+                err.println("Erro: endereço inválido " + args[1]);
+                System.exit(2);
+            }
+            args = new String[] { args[2] };
+        }
         if (args.length != 1) {
             err.println("Erro: ficheiro com dados da turma não especificado.");
-            err.println("Utilização: ClassifyShell FICHEIRO_CSV");
+            err.println("Utilização: ClassifyShell [--serve [ENDEREÇO:]PORTA | --check] FICHEIRO_CSV");
+            err.println("            ClassifyShell --school FICHEIRO_CSV...");
+            err.println("            ClassifyShell --offheap FICHEIRO_CSV");
             System.exit(2);
         }
         filePath = args[0];
 
-        // Ler ficheiro de entrada
-        readStudents(filePath);
+        // Ler ficheiro de entrada e alterações por gravar. Com linhas
+        // inválidas não se continua: a próxima gravação perdê-las-ia.
+        try {
+            var report = readStudents(filePath);
+            if (report.hasErrors()) {
+                err.println("Invalid data in " + filePath + ": " + report);
+                for (var ex : report.getErrors()) {
+                    err.println("  " + ex.getMessage());
+                }
+                System.exit(1);
+            }
+        }
+        catch (NoSuchFileException | AccessDeniedException ex) {
+            err.println("Can't open file for reading " + filePath);
+            System.exit(1);
+        }
+        catch (IOException ex) {
+            err.println("Can't read file and/or data is corrupted");
+            System.exit(1);
+        }
+        openJournal();
+        if (serveAddress != null) {
+            serveStudents(serveAddress);
+            return;
+        }
+        watchStudents();
 
         // Exibir menu principal
         execMainMenu();
     }
 
+    // Ficheiros a partir destes tamanhos são mapeados em memória / lidos
+    // em paralelo
+    private static final long MAPPED_READ_THRESHOLD = 1024 * 1024;
+    private static final long PARALLEL_LOAD_THRESHOLD = 16 * 1024 * 1024;
+    // Diários maiores do que isto são compactados (turma reescrita)
+    private static final long JOURNAL_COMPACT_THRESHOLD = 4 * 1024 * 1024;
+    private static final int PAGE_SIZE = 25;
+    // Estudantes em memória no modo --school (-Dclassify.maxResidentRows)
+    private static final long DEFAULT_RESIDENT_ROWS = 1_000_000;
+    private static final int MAIL_PARALLELISM = 4;
+    private static final double MAIL_RATE = 10;
+    private static final int MAIL_ATTEMPTS = 5;
+    private static final MessageTemplate MAIL_SUBJECT = new MessageTemplate("Classificação final");
+    private static final MessageTemplate MAIL_BODY = new MessageTemplate(
+            "Olá {name},\n\n"
+            + "A sua classificação final é {grade} valores ({textualGrade}).\n\n"
+            + "Cumprimentos,\nA coordenação\n"
+    );
+
     private static Scanner in = new Scanner(System.in);
     private static StudentCollection students = new StudentCollection();
     private static String filePath;
+    private static StudentJournal journal;
+    private static StudentTable table = new StudentTable();
+    private static StudentFileWatcher watcher;
 }
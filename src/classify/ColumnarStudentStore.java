@@ -0,0 +1,283 @@
+package classify;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// Armazenamento por colunas de tipos primitivos: classificação em double[],
+// data de nascimento em dias desde 1970-01-01 (int[]), estatuto como
+// posição em Student.VALID_STUDENT_STATUS (byte[]) e nomes/emails em
+// StringArena (UTF-8 contíguo; a entrada i é a da linha i). O índice de
+// emails é uma tabela de endereçamento aberto com as linhas (int[]), que
+// compara os bytes na StringArena. Não há um objecto por estudante: get e o
+// iterador devolvem vistas (Student) que lêem as colunas. Em comparação com
+// uma StudentCollection (Student + 2 String + LocalDate + entrada no índice
+// por estudante) ocupa mais de 3 vezes menos memória, depois de trimToSize
+// (ver OffHeapStoreBench).
+public class ColumnarStudentStore implements StudentStore {
+
+    public ColumnarStudentStore() {
+        this(1024);
+    }
+
+    public ColumnarStudentStore(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.grades = new double[capacity];
+        this.birthDays = new int[capacity];
+        this.statuses = new byte[capacity];
+        this.names = new StringArena(capacity);
+        this.emails = new StringArena(capacity);
+        this.emailTable = emptyTable(tableSizeFor(capacity));
+    }
+
+    @Override
+    public void add(Student st) {
+        String email = st.getEmail();
+        byte[] key = StudentCollection.emailKey(email).getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(key, StringArena.hash(key));
+        if (this.emailTable[slot] != EMPTY) {
+            throw new DuplicateValueException("Duplicate email: " + email);
+        }
+        int row = this.size;
+        if (row == this.grades.length) {
+            grow();
+        }
+        this.grades[row] = st.getGrade();
+        this.birthDays[row] = Math.toIntExact(st.getBirthDate().toEpochDay());
+        this.statuses[row] = (byte) Student.statusCode(st.getStatus());
+        this.names.add(st.getName());
+        this.emails.add(StudentCollection.emailKey(email));
+        this.emailTable[slot] = row;
+        this.size += 1;
+        if (this.size * 4 > this.emailTable.length * 3) {
+            rehash(this.emailTable.length * 2);
+        }
+    }
+
+    @Override
+    public Student get(int row) {
+        if (row < 0 || row >= this.size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + this.size);
+        }
+        return new Row(row);
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public double gradeAt(int row) {
+        return this.grades[Objects.checkIndex(row, this.size)];
+    }
+
+    @Override
+    public int statusCodeAt(int row) {
+        return this.statuses[Objects.checkIndex(row, this.size)];
+    }
+
+    @Override
+    public Student searchByEmail(String email) {
+        int row = findRow(email);
+        return row < 0 ? null : new Row(row);
+    }
+
+    // Liberta a capacidade não usada das colunas e reduz o índice de emails
+    // ao mínimo (ex: no fim de uma importação)
+    public void trimToSize() {
+        resize(Math.max(this.size, 1));
+        this.names.trimToSize();
+        this.emails.trimToSize();
+        rehash(tableSizeFor(this.size));
+    }
+
+    // Agregados directamente sobre a coluna, sem criar vistas
+    public double average() {
+        double sum = 0;
+        for (int i = 0; i < this.size; i += 1) {
+            sum += this.grades[i];
+        }
+        return sum / this.size;
+    }
+
+    @Override
+    public Iterator<Student> iterator() {
+        return new Iterator<>() {
+            private int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.row < size;
+            }
+
+            @Override
+            public Student next() {
+                if (this.row >= size) {
+                    throw new NoSuchElementException();
+                }
+                return new Row(this.row++);
+            }
+        };
+    }
+
+    private int findRow(String email) {
+        byte[] key = StudentCollection.emailKey(email).getBytes(StandardCharsets.UTF_8);
+        return this.emailTable[findSlot(key, StringArena.hash(key))];
+    }
+
+    // Posição com o email (já normalizado) ou a posição livre onde ficaria
+    private int findSlot(byte[] key, int hash) {
+        int mask = this.emailTable.length - 1;
+        int slot = hash & mask;
+        while (true) {
+            int row = this.emailTable[slot];
+            if (row == EMPTY || this.emails.equalsAt(row, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Retira uma posição, recuando as seguintes que dependiam dela para
+    // serem encontradas (sem marcas de posição apagada)
+    private void removeSlot(int slot) {
+        int mask = this.emailTable.length - 1;
+        int free = slot;
+        int next = slot;
+        while (true) {
+            this.emailTable[free] = EMPTY;
+            while (true) {
+                next = (next + 1) & mask;
+                int row = this.emailTable[next];
+                if (row == EMPTY) {
+                    return;
+                }
+                int home = this.emails.hashAt(row) & mask;
+                // fica onde está se a posição de origem estiver entre free
+                // (exclusive) e next (inclusive), circularmente
+                boolean reachable = free <= next
+                                    ? free < home && home <= next
+                                    : free < home || home <= next;
+                if (!reachable) {
+                    this.emailTable[free] = row;
+                    free = next;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void rehash(int tableSize) {
+        int[] table = emptyTable(tableSize);
+        int mask = table.length - 1;
+        for (int row = 0; row < this.size; row += 1) {
+            int slot = this.emails.hashAt(row) & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = row;
+        }
+        this.emailTable = table;
+    }
+
+    // Menor potência de 2 com ocupação até 3/4
+    private static int tableSizeFor(int rows) {
+        int size = 16;
+        while (rows * 4L > size * 3L) {
+            size *= 2;
+        }
+        return size;
+    }
+
+    private static int[] emptyTable(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private void grow() {
+        resize(this.grades.length * 2);
+    }
+
+    private void resize(int capacity) {
+        this.grades = Arrays.copyOf(this.grades, capacity);
+        this.birthDays = Arrays.copyOf(this.birthDays, capacity);
+        this.statuses = Arrays.copyOf(this.statuses, capacity);
+    }
+
+    // Vista de uma linha: só guarda a posição
+    private class Row extends Student {
+        Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public String getName() {
+            return names.get(this.row);
+        }
+
+        @Override
+        public String getEmail() {
+            return emails.get(this.row);
+        }
+
+        @Override
+        public void setEmail(String email) {
+            Utils.validateEmail(email);
+            byte[] key = StudentCollection.emailKey(email).getBytes(StandardCharsets.UTF_8);
+            int other = emailTable[findSlot(key, StringArena.hash(key))];
+            if (other == this.row) {
+                return;
+            }
+            if (other != EMPTY) {
+                throw new DuplicateValueException("Duplicate email: " + email);
+            }
+            byte[] current = StudentCollection.emailKey(getEmail()).getBytes(StandardCharsets.UTF_8);
+            removeSlot(findSlot(current, StringArena.hash(current)));
+            emails.set(this.row, StudentCollection.emailKey(email));
+            emailTable[findSlot(key, StringArena.hash(key))] = this.row;
+        }
+
+        @Override
+        public LocalDate getBirthDate() {
+            return LocalDate.ofEpochDay(birthDays[this.row]);
+        }
+
+        @Override
+        public double getGrade() {
+            return grades[this.row];
+        }
+
+        @Override
+        public void setGrade(double grade) {
+            Student.validateGrade(grade);
+            grades[this.row] = grade;
+        }
+
+        @Override
+        public String getStatus() {
+            return Student.VALID_STUDENT_STATUS[statuses[this.row]];
+        }
+
+        @Override
+        public void setStatus(String status) {
+            statuses[this.row] = (byte) Student.validateStatus(status);
+        }
+
+        private final int row;
+    }
+
+    private static final int EMPTY = -1;
+
+    private double[] grades;
+    private int[] birthDays;
+    private byte[] statuses;
+    private int size;
+    private final StringArena names;
+    private final StringArena emails;    // já normalizados (minúsculas)
+    private int[] emailTable;            // posições -> linha (EMPTY se livre)
+}
@@ -0,0 +1,274 @@
+package classify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Turma partilhada por várias threads (ex: um servidor de consultas e um
+// processo de lançamento de notas): leituras sem locks, alterações
+// serializadas por estudante.
+//
+// Os estudantes guardados são versões imutáveis (Student.frozen): uma
+// alteração cria uma cópia com os novos valores e publica-a de uma só vez,
+// pelo que quem lê vê sempre uma versão completa de cada estudante, nunca
+// um estudante a meio de ser alterado.
+//
+// - Cada estudante ocupa uma posição (Slot) com a versão actual. A lista de
+//   posições é um array publicado num campo volatile (Rows): inserir
+//   acrescenta ao fim (o array só é copiado quando cresce) e remover copia o
+//   array; iterar percorre as posições existentes quando a iteração começou
+//   (nunca dá ConcurrentModificationException).
+// - O índice por email é um ConcurrentHashMap email (minúsculas) -> Slot.
+// - As alterações são serializadas por um de STRIPES locks escolhido pelo
+//   email; mudar de email bloqueia os dois (por ordem, para não haver
+//   deadlocks). Inserções e remoções bloqueiam também a lista de posições.
+public class ConcurrentStudentCollection implements StudentStore {
+
+    public ConcurrentStudentCollection() {
+        for (int i = 0; i < STRIPES; i += 1) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Guarda uma cópia imutável de st; emails repetidos dão
+    // DuplicateValueException
+    @Override
+    public void add(Student st) {
+        String key = StudentCollection.emailKey(st.getEmail());
+        var slot = new Slot(freeze(st));
+        var lock = stripeFor(key);
+        lock.lock();
+        try {
+            if (this.byEmail.putIfAbsent(key, slot) != null) {
+                throw new DuplicateValueException("Duplicate email: " + st.getEmail());
+            }
+            this.rowsLock.lock();
+            try {
+                var rows = this.rows;
+                Slot[] slots = rows.slots;
+                if (rows.size == slots.length) {
+                    slots = Arrays.copyOf(slots, Math.max(16, slots.length * 2));
+                }
+                // posição livre em todas as vistas já publicadas
+                slots[rows.size] = slot;
+                this.rows = new Rows(slots, rows.size + 1);
+            }
+            finally {
+                this.rowsLock.unlock();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean remove(String email) {
+        String key = StudentCollection.emailKey(email);
+        var lock = stripeFor(key);
+        lock.lock();
+        try {
+            var slot = this.byEmail.remove(key);
+            if (slot == null) {
+                return false;
+            }
+            this.rowsLock.lock();
+            try {
+                var rows = this.rows;
+                var slots = new Slot[Math.max(16, rows.size)];
+                int n = 0;
+                for (int i = 0; i < rows.size; i += 1) {
+                    if (rows.slots[i] != slot) {
+                        slots[n++] = rows.slots[i];
+                    }
+                }
+                this.rows = new Rows(slots, n);
+            }
+            finally {
+                this.rowsLock.unlock();
+            }
+            return true;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // Altera o estudante com este email de forma atómica: change recebe uma
+    // cópia alterável (com as validações dos setters de Student) e a cópia
+    // resultante substitui a anterior. Se outra thread alterar o estudante
+    // entretanto, change é chamado de novo sobre a versão actual (pode ser
+    // chamado mais de uma vez). Devolve a nova versão, ou null se não
+    // existir nenhum estudante com este email.
+    public Student update(String email, Consumer<Student> change) {
+        String key = StudentCollection.emailKey(email);
+        while (true) {
+            var slot = this.byEmail.get(key);
+            if (slot == null) {
+                return null;
+            }
+            var base = slot.student;
+            var draft = copyOf(base);
+            change.accept(draft);
+            String newKey = StudentCollection.emailKey(draft.getEmail());
+
+            int a = stripeIndex(key);
+            int b = stripeIndex(newKey);
+            var first = this.stripes[Math.min(a, b)];
+            var second = this.stripes[Math.max(a, b)];
+            first.lock();
+            second.lock();
+            try {
+                if (this.byEmail.get(key) != slot || slot.student != base) {
+                    // removido ou alterado entretanto: repetir sobre a
+                    // versão actual, para não perder a outra alteração
+                    continue;
+                }
+                if (!newKey.equals(key) && this.byEmail.putIfAbsent(newKey, slot) != null) {
+                    throw new DuplicateValueException("Duplicate email: " + draft.getEmail());
+                }
+                var updated = freeze(draft);
+                slot.student = updated;
+                if (!newKey.equals(key)) {
+                    this.byEmail.remove(key);
+                }
+                return updated;
+            }
+            finally {
+                second.unlock();
+                first.unlock();
+            }
+        }
+    }
+
+    public Student updateEmail(String email, String newEmail) {
+        return update(email, st -> st.setEmail(newEmail));
+    }
+
+    public Student updateGrade(String email, double grade) {
+        return update(email, st -> st.setGrade(grade));
+    }
+
+    public Student updateStatus(String email, String status) {
+        return update(email, st -> st.setStatus(status));
+    }
+
+    @Override
+    public Student searchByEmail(String email) {
+        String key = StudentCollection.emailKey(email);
+        var slot = this.byEmail.get(key);
+        if (slot == null) {
+            return null;
+        }
+        var st = slot.student;
+        // email acabado de mudar: a posição ainda está no índice pelo antigo
+        return StudentCollection.emailKey(st.getEmail()).equals(key) ? st : null;
+    }
+
+    @Override
+    public Student get(int row) {
+        var rows = this.rows;
+        if (row < 0 || row >= rows.size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + rows.size);
+        }
+        return rows.slots[row].student;
+    }
+
+    @Override
+    public int size() {
+        return this.rows.size;
+    }
+
+    // Versões actuais dos estudantes existentes neste momento
+    public List<Student> snapshot() {
+        var rows = this.rows;
+        var students = new Student[rows.size];
+        for (int i = 0; i < rows.size; i += 1) {
+            students[i] = rows.slots[i].student;
+        }
+        return Collections.unmodifiableList(Arrays.asList(students));
+    }
+
+    // Média das versões vistas durante uma iteração
+    public double average() {
+        double sum = 0;
+        int count = 0;
+        for (Student st : this) {
+            sum += st.getGrade();
+            count += 1;
+        }
+        return sum / count;
+    }
+
+    @Override
+    public Iterator<Student> iterator() {
+        var rows = this.rows;
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return this.pos < rows.size;
+            }
+
+            @Override
+            public Student next() {
+                if (this.pos >= rows.size) {
+                    throw new NoSuchElementException();
+                }
+                return rows.slots[this.pos++].student;
+            }
+
+            private int pos;
+        };
+    }
+
+    private ReentrantLock stripeFor(String key) {
+        return this.stripes[stripeIndex(key)];
+    }
+
+    private static int stripeIndex(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private static Student copyOf(Student st) {
+        return Student.restore(st.getName(), st.getEmail(), st.getBirthDate(), st.getGrade(), st.getStatus());
+    }
+
+    private static Student freeze(Student st) {
+        var copy = copyOf(st);
+        copy.frozen = true;
+        return copy;
+    }
+
+    // Posição de um estudante: a versão actual muda, a posição não
+    private static class Slot {
+        Slot(Student student) {
+            this.student = student;
+        }
+
+        volatile Student student;
+    }
+
+    // As primeiras size posições de slots (as seguintes podem já estar a ser
+    // preenchidas por inserções posteriores)
+    private static class Rows {
+        Rows(Slot[] slots, int size) {
+            this.slots = slots;
+            this.size = size;
+        }
+
+        final Slot[] slots;
+        final int size;
+    }
+
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ReentrantLock rowsLock = new ReentrantLock();
+    private final ConcurrentHashMap<String, Slot> byEmail = new ConcurrentHashMap<>();
+    private volatile Rows rows = new Rows(new Slot[16], 0);
+}
@@ -0,0 +1,150 @@
+package classify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Classificações qualitativas ("Insuficiente", ..., "Excelente") e as
+// classificações mínimas de cada uma, na escala de 0 a 200. Como os limites
+// são inteiros, a classificação qualitativa de qualquer nota é uma consulta
+// a uma tabela com uma posição por valor inteiro (bandOf[(int) grade]), em
+// vez de uma sequência de comparações.
+//
+// As de cada escola podem ser indicadas com a propriedade
+// classify.gradeBands, ex:
+//     -Dclassify.gradeBands="Insuficiente:0,Suficiente:100,Bom:140,Muito Bom:170,Excelente:185"
+// (por ordem crescente, a primeira a começar em 0). Por omissão, as do
+// enunciado (ver DEFAULT).
+public class GradeBands {
+
+    public static final GradeBands DEFAULT = parse("Insuficiente:0,Suficiente:120,Bom:150,Excelente:180");
+
+    // As usadas por Student.classifyGrade e GradeStatistics
+    public static GradeBands get() {
+        return CURRENT;
+    }
+
+    // "NOME:MÍNIMA,NOME:MÍNIMA,..."
+    public static GradeBands parse(String spec) {
+        List<String> names = new ArrayList<>();
+        List<Integer> minGrades = new ArrayList<>();
+        for (String band : spec.split(",")) {
+            int colon = band.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Invalid grade band <" + band.strip() + ">, expected NAME:MIN");
+            }
+            names.add(band.substring(0, colon).strip());
+            try {
+                minGrades.add(Integer.parseInt(band.substring(colon + 1).strip()));
+            }
+            catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid minimum grade in <" + band.strip() + ">");
+            }
+        }
+        int[] mins = new int[minGrades.size()];
+        for (int i = 0; i < mins.length; i += 1) {
+            mins[i] = minGrades.get(i);
+        }
+        return new GradeBands(names.toArray(new String[0]), mins);
+    }
+
+    public GradeBands(String[] names, int[] minGrades) {
+        if (names.length == 0 || names.length != minGrades.length) {
+            throw new IllegalArgumentException("Expected one minimum grade per band");
+        }
+        if (minGrades[0] != MIN_GRADE) {
+            throw new IllegalArgumentException("First band must start at " + MIN_GRADE);
+        }
+        for (int i = 0; i < names.length; i += 1) {
+            if (names[i].isEmpty()) {
+                throw new IllegalArgumentException("Empty grade band name");
+            }
+            if (i > 0 && !(minGrades[i] > minGrades[i - 1] && minGrades[i] <= MAX_GRADE)) {
+                throw new IllegalArgumentException("Invalid minimum grade " + minGrades[i] + " for " + names[i]);
+            }
+        }
+        this.names = names.clone();
+        this.minGrades = minGrades.clone();
+        this.bandOf = new byte[MAX_GRADE + 1];
+        int band = 0;
+        for (int grade = MIN_GRADE; grade <= MAX_GRADE; grade += 1) {
+            while (band + 1 < minGrades.length && grade >= minGrades[band + 1]) {
+                band += 1;
+            }
+            this.bandOf[grade] = (byte) band;
+        }
+    }
+
+    // Posição em getNames() da classificação qualitativa de grade. Fora da
+    // escala (ou NaN, ex: média de uma turma vazia): a primeira ou a última.
+    public int band(double grade) {
+        if (grade >= MAX_GRADE) {
+            return this.bandOf[MAX_GRADE];
+        }
+        return grade >= MIN_GRADE ? this.bandOf[(int) grade] : 0;
+    }
+
+    public String classify(double grade) {
+        return this.names[band(grade)];
+    }
+
+    public String name(int band) {
+        return this.names[band];
+    }
+
+    public int minGrade(int band) {
+        return this.minGrades[band];
+    }
+
+    public int size() {
+        return this.names.length;
+    }
+
+    public String[] getNames() {
+        return this.names.clone();
+    }
+
+    // Posição da classificação qualitativa textualGrade, ou -1
+    public int indexOf(String textualGrade) {
+        for (int i = 0; i < this.names.length; i += 1) {
+            if (this.names[i].equals(textualGrade)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        var text = new StringBuilder();
+        for (int i = 0; i < this.names.length; i += 1) {
+            text.append(i == 0 ? "" : ",").append(this.names[i]).append(':').append(this.minGrades[i]);
+        }
+        return text.toString();
+    }
+
+    private static GradeBands fromProperty() {
+        String spec = System.getProperty("classify.gradeBands");
+        if (spec == null || spec.isBlank()) {
+            return DEFAULT;
+        }
+        try {
+            return parse(spec);
+        }
+        catch (IllegalArgumentException ex) {
+            // lida na inicialização da classe: não impede o arranque
+            System.err.println(
+                    "Invalid classify.gradeBands " + spec + " (" + ex.getMessage() + "), using " + DEFAULT
+            );
+            return DEFAULT;
+        }
+    }
+
+    static final int MIN_GRADE = 0;
+    static final int MAX_GRADE = 200;
+
+    private static final GradeBands CURRENT = fromProperty();
+
+    private final String[] names;
+    private final int[] minGrades;
+    private final byte[] bandOf;    // classificação inteira -> posição em names
+}
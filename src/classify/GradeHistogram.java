@@ -0,0 +1,113 @@
+package classify;
+
+import java.util.function.IntPredicate;
+
+// Percentis das classificações de um StudentStore (ou das linhas aceites por
+// um filtro) sem uma cópia ordenada: um contador por valor inteiro (0 a
+// 200) e outro para as classificações exactamente iguais a esse valor. A
+// memória usada não depende do tamanho da turma.
+//
+// Com classificações inteiras (o caso normal) um percentil sai só dos
+// contadores; se a posição pedida cair numa classificação fraccionária, é
+// encontrada por bissecção, com uma passagem pelo StudentStore por passo
+// (até ~60). É um retrato do momento em que foi construído: alterações
+// posteriores ao StudentStore não são vistas.
+class GradeHistogram implements GradeQuantiles {
+
+    GradeHistogram(StudentStore students, IntPredicate filter) {
+        this.students = students;
+        this.filter = filter;
+    }
+
+    void add(double grade) {
+        int bucket = bucket(grade);
+        this.counts[bucket] += 1;
+        if (grade == bucket) {
+            this.whole[bucket] += 1;
+        }
+        this.min = this.count == 0 ? grade : Math.min(this.min, grade);
+        this.max = this.count == 0 ? grade : Math.max(this.max, grade);
+        this.count += 1;
+    }
+
+    @Override
+    public double min() {
+        return this.count == 0 ? Double.NaN : this.min;
+    }
+
+    @Override
+    public double max() {
+        return this.count == 0 ? Double.NaN : this.max;
+    }
+
+    // Como GradeIndex.percentile
+    @Override
+    public double percentile(double p) {
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + p);
+        }
+        if (this.count == 0) {
+            return Double.NaN;
+        }
+        double pos = p / 100 * (this.count - 1);
+        long lo = (long) pos;
+        long hi = Math.min(lo + 1, this.count - 1);
+        double low = select(lo);
+        double high = hi == lo ? low : select(hi);
+        return low + (high - low) * (pos - lo);
+    }
+
+    // A classificação na posição k (0 = a menor)
+    private double select(long k) {
+        int bucket = 0;
+        while (k >= this.counts[bucket]) {
+            k -= this.counts[bucket];
+            bucket += 1;
+        }
+        if (k < this.whole[bucket]) {
+            return bucket;
+        }
+        // a (k - whole)-ésima das fraccionárias em ]bucket, bucket + 1[:
+        // para valores positivos, a ordem dos bits é a dos números
+        long rank = k - this.whole[bucket];
+        long lo = Double.doubleToLongBits(bucket);
+        long hi = Double.doubleToLongBits(Math.nextDown(bucket + 1.0));
+        while (hi - lo > 1) {
+            long mid = lo + (hi - lo) / 2;
+            if (countAbove(bucket, Double.longBitsToDouble(mid)) > rank) {
+                hi = mid;
+            }
+            else {
+                lo = mid;
+            }
+        }
+        return Double.longBitsToDouble(hi);
+    }
+
+    // Classificações em ]bucket, limit]
+    private long countAbove(int bucket, double limit) {
+        long n = 0;
+        int size = this.students.size();
+        for (int row = 0; row < size; row += 1) {
+            double grade = this.students.gradeAt(row);
+            if (grade > bucket && grade <= limit && this.filter.test(row)) {
+                n += 1;
+            }
+        }
+        return n;
+    }
+
+    private static int bucket(double grade) {
+        return (int) Math.max(0, Math.min(BUCKETS - 1, Math.floor(grade)));
+    }
+
+    private static final int BUCKETS = 201;    // 0 a 200
+
+    private final StudentStore students;
+    private final IntPredicate filter;
+    private final long[] counts = new long[BUCKETS];
+    private final long[] whole = new long[BUCKETS];
+    private long count;
+    private double min;
+    private double max;
+}
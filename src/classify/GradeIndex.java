@@ -0,0 +1,165 @@
+package classify;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Índice ordenado por classificação. É reconstruído (O(n log n)) apenas na
+// primeira consulta após uma alteração à colecção; as consultas seguintes
+// são pesquisas binárias sobre um double[] (O(log n)).
+// Cada reconstrução cria arrays novos, pelo que as vistas devolvidas
+// anteriormente continuam válidas (são um retrato do momento da consulta).
+class GradeIndex implements GradeQuantiles {
+
+    GradeIndex(List<Student> students) {
+        this.students = students;
+    }
+
+    void invalidate() {
+        this.sorted = null;
+    }
+
+    // Estudantes com classificação entre min e max (inclusive), por ordem
+    // crescente de classificação
+    List<Student> range(double minGrade, double maxGrade) {
+        Sorted s = sorted();
+        int from = lowerBound(s.grades, minGrade);
+        int to = upperBound(s.grades, maxGrade);
+        return from < to ? Arrays.asList(s.rows).subList(from, to) : List.of();
+    }
+
+    int count(double minGrade, double maxGrade) {
+        Sorted s = sorted();
+        return Math.max(0, upperBound(s.grades, maxGrade) - lowerBound(s.grades, minGrade));
+    }
+
+    // O mesmo que range, por ordem decrescente de classificação (como
+    // StudentOrder.GRADE: empates pela ordem de inserção)
+    List<Student> rangeDescending(double minGrade, double maxGrade) {
+        Sorted s = sorted();
+        int n = s.grades.length;
+        int from = n - upperBound(s.grades, maxGrade);
+        int to = n - lowerBound(s.grades, minGrade);
+        return from < to ? Arrays.asList(s.descending).subList(from, to) : List.of();
+    }
+
+    // Os k melhores, por ordem decrescente de classificação (empates pela
+    // ordem de inserção)
+    List<Student> top(int k) {
+        Student[] descending = sorted().descending;
+        int n = Math.min(Math.max(k, 0), descending.length);
+        return Arrays.asList(descending).subList(0, n);
+    }
+
+    // Número de estudantes com classificação inferior a grade
+    int rank(double grade) {
+        return lowerBound(sorted().grades, grade);
+    }
+
+    // Percentil p (0-100) com interpolação linear entre posições vizinhas
+    @Override
+    public double percentile(double p) {
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + p);
+        }
+        double[] grades = sorted().grades;
+        if (grades.length == 0) {
+            return Double.NaN;
+        }
+        double pos = p / 100 * (grades.length - 1);
+        int lo = (int) pos;
+        int hi = Math.min(lo + 1, grades.length - 1);
+        return grades[lo] + (grades[hi] - grades[lo]) * (pos - lo);
+    }
+
+    @Override
+    public double min() {
+        double[] grades = sorted().grades;
+        return grades.length == 0 ? Double.NaN : grades[0];
+    }
+
+    @Override
+    public double max() {
+        double[] grades = sorted().grades;
+        return grades.length == 0 ? Double.NaN : grades[grades.length - 1];
+    }
+
+    private Sorted sorted() {
+        Sorted s = this.sorted;
+        if (s == null) {
+            Student[] rows = this.students.toArray(new Student[0]);
+            // ordenação estável: empates ficam pela ordem de inserção
+            Arrays.sort(rows, Comparator.comparingDouble(Student::getGrade));
+            double[] grades = new double[rows.length];
+            for (int i = 0; i < rows.length; i += 1) {
+                grades[i] = rows[i].getGrade();
+            }
+            // ordem decrescente: os grupos de classificações iguais do fim
+            // para o início, cada um pela ordem de inserção
+            Student[] descending = new Student[rows.length];
+            int out = 0;
+            int end = rows.length;
+            while (end > 0) {
+                int start = end - 1;
+                while (start > 0 && grades[start - 1] == grades[end - 1]) {
+                    start -= 1;
+                }
+                System.arraycopy(rows, start, descending, out, end - start);
+                out += end - start;
+                end = start;
+            }
+            s = new Sorted(grades, rows, descending);
+            this.sorted = s;
+        }
+        return s;
+    }
+
+    // primeira posição com grades[i] >= key
+    private static int lowerBound(double[] grades, double key) {
+        int lo = 0;
+        int hi = grades.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (grades[mid] < key) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // primeira posição com grades[i] > key
+    private static int upperBound(double[] grades, double key) {
+        int lo = 0;
+        int hi = grades.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (grades[mid] <= key) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static class Sorted {
+        Sorted(double[] grades, Student[] rows, Student[] descending) {
+            this.grades = grades;
+            this.rows = rows;
+            this.descending = descending;
+        }
+
+        final double[] grades;
+        final Student[] rows;
+        final Student[] descending;
+    }
+
+    private final List<Student> students;
+    // volatile: vários leitores em simultâneo (ex: StudentServer, sob um
+    // read lock) podem reconstruí-lo; todos obtêm o mesmo resultado
+    private volatile Sorted sorted;
+}
@@ -0,0 +1,13 @@
+package classify;
+
+// Mínimo, máximo e percentis das classificações, para GradeStatistics: de
+// um GradeIndex (StudentCollection) ou de um GradeHistogram (StudentStore)
+interface GradeQuantiles {
+
+    double min();
+
+    double max();
+
+    // Percentil p (0-100) com interpolação linear entre posições vizinhas
+    double percentile(double p);
+}
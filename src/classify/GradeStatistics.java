@@ -0,0 +1,196 @@
+package classify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+// Estatísticas das classificações de um conjunto de estudantes: contagem,
+// média, variância, mínimo/máximo, mediana e quantis, distribuição pelas
+// classificações qualitativas (GradeBands) e por estatuto.
+// Contagens e somas são mantidas incrementalmente (add/remove/alterações),
+// pelo que todas as consultas menos os quantis são O(1). Numa colecção que
+// muda, mínimo, máximo e mediana também são mantidos (GradeTree, O(1)); nos
+// retratos calculados por of(...) vêm de um GradeIndex ou GradeHistogram.
+public class GradeStatistics {
+
+    // Estatísticas calculadas numa única passagem por students
+    public static GradeStatistics of(Iterable<Student> students) {
+        List<Student> rows = new ArrayList<>();
+        for (Student st : students) {
+            rows.add(st);
+        }
+        var stats = new GradeStatistics(new GradeIndex(rows));
+        for (Student st : rows) {
+            stats.add(st);
+        }
+        return stats;
+    }
+
+    // O mesmo para um StudentStore, numa passagem pelos dados guardados (sem
+    // vistas nem cópia das classificações): a memória usada não depende do
+    // tamanho da turma (ver GradeHistogram)
+    public static GradeStatistics of(StudentStore students) {
+        return of(students, row -> true);
+    }
+
+    // Só das linhas aceites por filter (ex: resultado de uma pesquisa)
+    public static GradeStatistics of(StudentStore students, IntPredicate filter) {
+        var histogram = new GradeHistogram(students, filter);
+        var stats = new GradeStatistics(histogram);
+        int size = students.size();
+        for (int row = 0; row < size; row += 1) {
+            if (filter.test(row)) {
+                double grade = students.gradeAt(row);
+                histogram.add(grade);
+                stats.add(grade, students.statusCodeAt(row), 1);
+            }
+        }
+        return stats;
+    }
+
+    // Para uma colecção que muda (ver StudentCollection)
+    GradeStatistics() {
+        this.tree = new GradeTree();
+        this.gradeIndex = this.tree;
+    }
+
+    GradeStatistics(GradeQuantiles gradeIndex) {
+        this.tree = null;
+        this.gradeIndex = gradeIndex;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    // Variância da população
+    public double getVariance() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        return Math.max(0, squaredDeviations / count);
+    }
+
+    public double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return gradeIndex.min();
+    }
+
+    public double getMax() {
+        return gradeIndex.max();
+    }
+
+    public double getMedian() {
+        return quantile(0.5);
+    }
+
+    // q entre 0 e 1 (ex: 0.25 para o primeiro quartil)
+    public double quantile(double q) {
+        return gradeIndex.percentile(q * 100);
+    }
+
+    // Número de estudantes por classificação qualitativa, pela ordem de
+    // BANDS ("Insuficiente" a "Excelente")
+    public long bandCount(String textualGrade) {
+        int band = GradeBands.get().indexOf(textualGrade);
+        if (band < 0) {
+            throw new IllegalArgumentException("Invalid textual grade " + textualGrade);
+        }
+        return bandCounts[band];
+    }
+
+    // band: posição em BANDS
+    public long bandCount(int band) {
+        return bandCounts[band];
+    }
+
+    public long statusCount(String status) {
+        return statusCounts[statusIndex(status)];
+    }
+
+    public double statusMean(String status) {
+        int i = statusIndex(status);
+        return statusSums[i] / statusCounts[i];
+    }
+
+    void add(Student st) {
+        add(st.getGrade(), Student.statusCode(st.getStatus()), 1);
+    }
+
+    void remove(Student st) {
+        add(st.getGrade(), Student.statusCode(st.getStatus()), -1);
+    }
+
+    void gradeChanged(Student st, double oldGrade, double newGrade) {
+        int status = Student.statusCode(st.getStatus());
+        add(oldGrade, status, -1);
+        add(newGrade, status, 1);
+    }
+
+    void statusChanged(Student st, String oldStatus, String newStatus) {
+        double grade = st.getGrade();
+        add(grade, Student.statusCode(oldStatus), -1);
+        add(grade, Student.statusCode(newStatus), 1);
+    }
+
+    // Muda a cada alteração (ex: para não voltar a formatar as mesmas
+    // estatísticas, ver StudentTable)
+    long version() {
+        return version;
+    }
+
+    // Média e soma dos quadrados dos desvios pelo método de Welford (sem a
+    // perda de precisão de somaDosQuadrados / n - média²), também ao retirar
+    private void add(double grade, int status, int sign) {
+        version += 1;
+        double oldMean = mean;
+        count += sign;
+        if (count == 0) {
+            mean = 0;
+            squaredDeviations = 0;
+        }
+        else {
+            mean += sign * (grade - oldMean) / count;
+            squaredDeviations += sign * (grade - oldMean) * (grade - mean);
+        }
+        bandCounts[GradeBands.get().band(grade)] += sign;
+        statusCounts[status] += sign;
+        statusSums[status] += sign * grade;
+        if (tree != null) {
+            if (sign > 0) {
+                tree.add(grade);
+            }
+            else {
+                tree.remove(grade);
+            }
+        }
+    }
+
+    private static int statusIndex(String status) {
+        int i = Student.statusCode(status);
+        if (i < 0) {
+            throw new IllegalArgumentException("Invalid status " + status);
+        }
+        return i;
+    }
+
+    // Nomes de GradeBands.get(), por ordem crescente
+    public static final String[] BANDS = GradeBands.get().getNames();
+
+    private final GradeQuantiles gradeIndex;
+    private final GradeTree tree;
+    private long version;
+    private long count;
+    private double mean;
+    private double squaredDeviations;
+    private final long[] bandCounts = new long[BANDS.length];
+    private final long[] statusCounts = new long[Student.VALID_STUDENT_STATUS.length];
+    private final double[] statusSums = new double[Student.VALID_STUDENT_STATUS.length];
+}
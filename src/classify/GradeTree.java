@@ -0,0 +1,150 @@
+package classify;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// Classificações ordenadas de uma StudentCollection, mantidas
+// incrementalmente (ao contrário de GradeIndex, que é reconstruído depois
+// de cada alteração): um contador por classificação distinta. Cada
+// alteração custa O(log d), com d classificações distintas, e deixa
+// calculados o mínimo, o máximo e a mediana, que são assim O(1). Para
+// acompanhar a mediana guarda-se uma classificação de referência e quantas
+// são menores do que ela; como cada alteração só desloca a mediana uma
+// posição, a referência anda no máximo uma classificação distinta.
+// Os outros percentis percorrem as classificações distintas (O(d)).
+class GradeTree implements GradeQuantiles {
+
+    void add(double grade) {
+        long[] count = this.counts.get(grade);
+        if (count == null) {
+            this.counts.put(grade, new long[] { 1 });
+        }
+        else {
+            count[0] += 1;
+        }
+        this.size += 1;
+        if (this.cursor == null) {
+            this.cursor = grade;
+            this.below = 0;
+        }
+        else if (Double.compare(grade, this.cursor) < 0) {
+            this.below += 1;
+        }
+        refresh();
+    }
+
+    void remove(double grade) {
+        long[] count = this.counts.get(grade);
+        if (count == null) {
+            return;
+        }
+        this.size -= 1;
+        int cmp = Double.compare(grade, this.cursor);
+        if (cmp < 0) {
+            this.below -= 1;
+        }
+        count[0] -= 1;
+        if (count[0] == 0) {
+            this.counts.remove(grade);
+            if (cmp == 0) {
+                // a referência deixou de existir: passa para a seguinte (com
+                // as mesmas menores) ou, se não houver, para a anterior
+                Double next = this.counts.higherKey(grade);
+                if (next != null) {
+                    this.cursor = next;
+                }
+                else {
+                    this.cursor = this.counts.lowerKey(grade);
+                    this.below = this.cursor == null ? 0 : this.below - count(this.cursor);
+                }
+            }
+        }
+        refresh();
+    }
+
+    @Override
+    public double min() {
+        return this.min;
+    }
+
+    @Override
+    public double max() {
+        return this.max;
+    }
+
+    // Como GradeIndex.percentile
+    @Override
+    public double percentile(double p) {
+        if (p < 0 || p > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + p);
+        }
+        if (p == 50) {
+            return this.median;
+        }
+        if (this.size == 0) {
+            return Double.NaN;
+        }
+        double pos = p / 100 * (this.size - 1);
+        long lo = (long) pos;
+        long hi = Math.min(lo + 1, this.size - 1);
+        double low = Double.NaN;
+        long seen = 0;
+        for (Map.Entry<Double, long[]> e : this.counts.entrySet()) {
+            seen += e.getValue()[0];
+            if (Double.isNaN(low) && lo < seen) {
+                low = e.getKey();
+            }
+            if (hi < seen) {
+                return low + (e.getKey() - low) * (pos - lo);
+            }
+        }
+        throw new IllegalStateException("Percentile out of range: " + p);
+    }
+
+    // Mínimo, máximo e mediana depois de uma alteração
+    private void refresh() {
+        if (this.size == 0) {
+            this.min = Double.NaN;
+            this.max = Double.NaN;
+            this.median = Double.NaN;
+            return;
+        }
+        this.min = this.counts.firstKey();
+        this.max = this.counts.lastKey();
+        // interpolação de GradeIndex.percentile(50)
+        double pos = 0.5 * (this.size - 1);
+        long lo = (long) pos;
+        double low = seek(lo);
+        double high = low;
+        if (lo + 1 < this.size && lo + 1 >= this.below + count(this.cursor)) {
+            high = this.counts.higherKey(this.cursor);
+        }
+        this.median = low + (high - low) * (pos - lo);
+    }
+
+    // Move a referência para a classificação na posição rank (0 = a menor)
+    private double seek(long rank) {
+        while (rank < this.below) {
+            this.cursor = this.counts.lowerKey(this.cursor);
+            this.below -= count(this.cursor);
+        }
+        while (rank >= this.below + count(this.cursor)) {
+            this.below += count(this.cursor);
+            this.cursor = this.counts.higherKey(this.cursor);
+        }
+        return this.cursor;
+    }
+
+    private long count(double grade) {
+        return this.counts.get(grade)[0];
+    }
+
+    private final TreeMap<Double, long[]> counts = new TreeMap<>();
+    private long size;
+    // classificação de referência e número de classificações menores
+    private Double cursor;
+    private long below;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private double median = Double.NaN;
+}
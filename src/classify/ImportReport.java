@@ -0,0 +1,60 @@
+package classify;
+
+// Resumo de uma importação: volume, tempo e paralelismo usados
+public class ImportReport {
+    ImportReport(long rows, long errors, long bytes, long elapsedNanos, int chunks, int threads) {
+        this.rows = rows;
+        this.errors = errors;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.chunks = chunks;
+        this.threads = threads;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    public double megabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes * 1e9 / elapsedNanos / (1024 * 1024);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d linhas (%d inválidas) em %.3f s: %.0f linhas/s, %.1f MiB/s, %d blocos, %d threads",
+                rows, errors, elapsedNanos / 1e9, rowsPerSecond(), megabytesPerSecond(), chunks, threads
+        );
+    }
+
+    private final long rows;
+    private final long errors;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final int chunks;
+    private final int threads;
+}
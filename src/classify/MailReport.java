@@ -0,0 +1,49 @@
+package classify;
+
+import java.util.Collections;
+import java.util.Map;
+
+// Resultado de um envio do BulkMailer
+public class MailReport {
+    MailReport(int sent, int skipped, Map<String, String> failures, long elapsedNanos) {
+        this.sent = sent;
+        this.skipped = skipped;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getSent() {
+        return sent;
+    }
+
+    // Já enviadas num envio anterior (ficheiro de progresso)
+    public int getSkipped() {
+        return skipped;
+    }
+
+    // email -> razão da falha
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double messagesPerSecond() {
+        return elapsedNanos == 0 ? 0 : sent * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d enviadas, %d já enviadas antes, %d falhadas em %.1f s (%.1f mensagens/s)",
+                sent, skipped, failures.size(), elapsedNanos / 1e9, messagesPerSecond()
+        );
+    }
+
+    private final int sent;
+    private final int skipped;
+    private final Map<String, String> failures;
+    private final long elapsedNanos;
+}
@@ -0,0 +1,60 @@
+package classify;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+// Leitura de ficheiros de turma através de FileChannel.map: os bytes são
+// lidos directamente da cache de páginas do sistema operativo, sem a cópia
+// para o buffer do BufferedReader nem uma String por linha. Apenas nome e
+// email são descodificados (UTF-8), e só quando a linha é convertida.
+// O ficheiro é mapeado por janelas, para suportar ficheiros maiores do que
+// os 2 GiB de um MappedByteBuffer.
+public class MappedStudentReader {
+
+    public MappedStudentReader(Path file) {
+        this(file, DEFAULT_WINDOW);
+    }
+
+    MappedStudentReader(Path file, int window) {
+        this.file = file;
+        this.window = window;
+    }
+
+    public long read(
+            Consumer<Student> sink,
+            Consumer<StudentCsvException> errorHandler
+    ) throws IOException {
+        var parser = new StudentCsvReader.Parser(sink, errorHandler);
+        try (var channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long pos = 0;
+            int window = this.window;
+            while (pos < size) {
+                int len = (int) Math.min(window, size - pos);
+                boolean last = pos + len == size;
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                int consumed = parser.parse(region, 0, len, last);
+                if (consumed == 0 && !last) {
+                    // linha maior do que a janela
+                    window = (int) Math.min((long) window * 2, Integer.MAX_VALUE);
+                    continue;
+                }
+                pos += consumed;
+            }
+        }
+        return parser.rows;
+    }
+
+    public long read(Consumer<Student> sink) throws IOException {
+        return read(sink, ex -> { throw ex; });
+    }
+
+    private static final int DEFAULT_WINDOW = 256 * 1024 * 1024;
+
+    private final Path file;
+    private final int window;
+}
@@ -0,0 +1,93 @@
+package classify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Texto com campos do estudante entre chavetas, ex:
+//
+//   "Olá {name}, a sua classificação é {grade} ({textualGrade})."
+//
+// Campos: {name}, {email}, {birthDate}, {grade}, {textualGrade}, {status}.
+// O texto é decomposto uma única vez, na construção; render só junta os
+// pedaços (sem procurar marcadores nem usar expressões regulares).
+public class MessageTemplate {
+
+    public MessageTemplate(String template) {
+        int pos = 0;
+        while (pos < template.length()) {
+            int open = template.indexOf('{', pos);
+            int close = open < 0 ? -1 : template.indexOf('}', open);
+            if (close < 0) {
+                this.texts.add(template.substring(pos));
+                this.fields.add(NONE);
+                break;
+            }
+            this.texts.add(template.substring(pos, open));
+            this.fields.add(fieldCode(template.substring(open + 1, close)));
+            pos = close + 1;
+        }
+        this.length = template.length();
+    }
+
+    public String render(Student st) {
+        var text = new StringBuilder(this.length + 32);
+        for (int i = 0; i < this.texts.size(); i += 1) {
+            text.append(this.texts.get(i));
+            switch (this.fields.get(i)) {
+                case NAME:
+                    text.append(st.getName());
+                    break;
+                case EMAIL:
+                    text.append(st.getEmail());
+                    break;
+                case BIRTH_DATE:
+                    text.append(st.getBirthDate());
+                    break;
+                case GRADE:
+                    text.append(String.format("%.0f", st.getGrade()));
+                    break;
+                case TEXTUAL_GRADE:
+                    text.append(st.getTextualGrade());
+                    break;
+                case STATUS:
+                    text.append(st.getStatus());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+    private static int fieldCode(String field) {
+        switch (field) {
+            case "name":
+                return NAME;
+            case "email":
+                return EMAIL;
+            case "birthDate":
+                return BIRTH_DATE;
+            case "grade":
+                return GRADE;
+            case "textualGrade":
+                return TEXTUAL_GRADE;
+            case "status":
+                return STATUS;
+            default:
+                throw new IllegalArgumentException("Unknown template field {" + field + "}");
+        }
+    }
+
+    private static final int NONE = 0;
+    private static final int NAME = 1;
+    private static final int EMAIL = 2;
+    private static final int BIRTH_DATE = 3;
+    private static final int GRADE = 4;
+    private static final int TEXTUAL_GRADE = 5;
+    private static final int STATUS = 6;
+
+    // texts.get(i) seguido do campo fields.get(i)
+    private final List<String> texts = new ArrayList<>();
+    private final List<Integer> fields = new ArrayList<>();
+    private final int length;
+}
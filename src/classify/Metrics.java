@@ -0,0 +1,153 @@
+package classify;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import static java.lang.System.err;
+
+// Métricas das operações principais (leitura, inserção, pesquisas, média,
+// gravação e exportação): contagens, linhas, erros e histogramas de
+// latência (ver OperationMetrics), eventos JFR (OperationEvent), JMX
+// (ClassifyMetricsMXBean) e um ficheiro actualizado periodicamente.
+//
+// Desligadas por omissão. Propriedades:
+//   classify.metrics=true          liga as métricas
+//   classify.metrics.file=FICHEIRO escreve-as em FICHEIRO (JSON, uma linha
+//                                  por operação) a cada
+//   classify.metrics.period=N      N segundos (60) e ao terminar
+//
+// ENABLED é lida uma vez (static final): desligadas, os testes
+// "if (ENABLED)" são eliminados pelo JIT e as operações não pagam nada.
+public class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("classify.metrics");
+
+    public static final OperationMetrics READ = new OperationMetrics("readStudents");
+    public static final OperationMetrics ADD = new OperationMetrics("StudentCollection.add");
+    public static final OperationMetrics SEARCH_BY_EMAIL = new OperationMetrics("searchByEmail");
+    public static final OperationMetrics SEARCH_BY_NAME = new OperationMetrics("searchByName");
+    public static final OperationMetrics SEARCH_BY_NAME_PREFIX = new OperationMetrics("searchByNamePrefix");
+    public static final OperationMetrics SEARCH_BY_GRADES = new OperationMetrics("searchByGrades");
+    public static final OperationMetrics QUERY = new OperationMetrics("query");
+    public static final OperationMetrics AVERAGE = new OperationMetrics("average");
+    public static final OperationMetrics WRITE = new OperationMetrics("writeStudents");
+    public static final OperationMetrics EXPORT = new OperationMetrics("export");
+
+    private static final OperationMetrics[] ALL = {
+            READ, ADD, SEARCH_BY_EMAIL, SEARCH_BY_NAME, SEARCH_BY_NAME_PREFIX, SEARCH_BY_GRADES, QUERY,
+            AVERAGE, WRITE, EXPORT
+    };
+
+    private Metrics() {
+    }
+
+    // Início de uma operação (0 com as métricas desligadas)
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static List<OperationSnapshot> snapshot() {
+        var snapshots = new ArrayList<OperationSnapshot>(ALL.length);
+        for (var op : ALL) {
+            snapshots.add(op.snapshot());
+        }
+        return snapshots;
+    }
+
+    public static void reset() {
+        for (var op : ALL) {
+            op.reset();
+        }
+    }
+
+    // Regista o MXBean e, se pedido, a escrita periódica do ficheiro. Sem
+    // efeito com as métricas desligadas.
+    public static synchronized void install() {
+        if (!ENABLED || installed) {
+            return;
+        }
+        installed = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new ClassifyMetricsMXBean() {
+                        @Override
+                        public boolean isEnabled() {
+                            return ENABLED;
+                        }
+
+                        @Override
+                        public List<OperationSnapshot> getOperations() {
+                            return snapshot();
+                        }
+
+                        @Override
+                        public void reset() {
+                            Metrics.reset();
+                        }
+                    },
+                    new ObjectName(OBJECT_NAME)
+            );
+        }
+        catch (JMException ex) {
+            err.println("Can't register metrics MXBean: " + ex.getMessage());
+        }
+
+        String file = System.getProperty("classify.metrics.file");
+        if (file != null) {
+            Path path = Paths.get(file);
+            long period = Long.getLong("classify.metrics.period", DEFAULT_PERIOD_SECONDS);
+            if (period <= 0) {
+                // scheduleAtFixedRate não aceita; não impede o arranque
+                err.println("Invalid classify.metrics.period " + period + ", using " + DEFAULT_PERIOD_SECONDS);
+                period = DEFAULT_PERIOD_SECONDS;
+            }
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                var thread = new Thread(r, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleAtFixedRate(() -> dumpQuietly(path), period, period, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> dumpQuietly(path)));
+        }
+    }
+
+    // Escreve as métricas em file (substituindo-o de uma só vez)
+    public static void dump(Path file) throws IOException {
+        var text = new StringBuilder();
+        String time = Instant.now().toString();
+        for (var snapshot : snapshot()) {
+            String json = snapshot.toJson();
+            text.append("{\"time\":\"").append(time).append("\",").append(json, 1, json.length()).append('\n');
+        }
+        Path tmp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, text.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void dumpQuietly(Path file) {
+        try {
+            dump(file);
+        }
+        catch (IOException ex) {
+            err.println("Can't write metrics to " + file + ": " + ex.getMessage());
+        }
+    }
+
+    private static final String OBJECT_NAME = "classify:type=Metrics";
+    private static final long DEFAULT_PERIOD_SECONDS = 60;
+
+    private static boolean installed;
+}
@@ -0,0 +1,200 @@
+package classify;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Índice de nomes por trigramas (pesquisa por parte do nome) e por nome
+// completo ordenado (pesquisa por prefixo). Os nomes são normalizados uma
+// única vez, quando o estudante é indexado: minúsculas e, numa segunda
+// forma, também sem acentos ("João" -> "joao").
+// Remover um estudante só marca a entrada (O(1)); as entradas marcadas
+// são retiradas das listas quando passam a ser metade do índice.
+class NameIndex {
+
+    void add(Student st) {
+        var entry = new Entry(st);
+        this.byStudent.put(st, entry);
+        index(entry);
+    }
+
+    void remove(Student st) {
+        Entry entry = this.byStudent.remove(st);
+        if (entry == null) {
+            return;
+        }
+        entry.removed = true;
+        this.removedCount += 1;
+        if (this.removedCount > this.entries.size() / 2) {
+            compact();
+        }
+    }
+
+    // Estudantes cujo nome contém namePart, pela ordem de inserção
+    List<Student> contains(String namePart, boolean ignoreAccents) {
+        String caseFolded = namePart.toLowerCase(Locale.ROOT);
+        String plain = stripAccents(caseFolded);
+        String query = ignoreAccents ? plain : caseFolded;
+
+        List<Student> found = new ArrayList<>();
+        for (Entry entry : candidates(plain)) {
+            if (entry.removed) {
+                continue;
+            }
+            String text = ignoreAccents ? entry.plain : entry.folded;
+            if (text.contains(query)) {
+                found.add(entry.student);
+            }
+        }
+        return found;
+    }
+
+    // O mesmo que contains, sem copiar o resultado (ver StudentQuery)
+    Stream<Student> streamContains(String namePart, boolean ignoreAccents) {
+        String caseFolded = namePart.toLowerCase(Locale.ROOT);
+        String plain = stripAccents(caseFolded);
+        String query = ignoreAccents ? plain : caseFolded;
+        return candidates(plain).stream()
+                                .filter(entry -> !entry.removed)
+                                .filter(entry -> (ignoreAccents ? entry.plain : entry.folded).contains(query))
+                                .map(entry -> entry.student);
+    }
+
+    // Majorante do número de estudantes cujo nome contém namePart, sem
+    // percorrer nenhum nome (O(tamanho de namePart))
+    int estimateContains(String namePart) {
+        return candidates(stripAccents(namePart.toLowerCase(Locale.ROOT))).size();
+    }
+
+    // Estudantes cujo nome começa por prefix (sem distinguir maiúsculas nem
+    // acentos), por ordem alfabética
+    List<Student> startsWith(String prefix) {
+        List<Student> found = new ArrayList<>();
+        for (List<Entry> sameName : prefixRange(prefix).values()) {
+            for (Entry entry : sameName) {
+                if (!entry.removed) {
+                    found.add(entry.student);
+                }
+            }
+        }
+        return found;
+    }
+
+    Stream<Student> streamStartsWith(String prefix) {
+        return prefixRange(prefix).values().stream()
+                                  .flatMap(List::stream)
+                                  .filter(entry -> !entry.removed)
+                                  .map(entry -> entry.student);
+    }
+
+    // Majorante do número de estudantes cujo nome começa por prefix, sem
+    // os percorrer (O(nomes distintos no resultado)); conta também as
+    // entradas removidas ainda por retirar
+    int estimateStartsWith(String prefix) {
+        int count = 0;
+        for (List<Entry> sameName : prefixRange(prefix).values()) {
+            count += sameName.size();
+        }
+        return count;
+    }
+
+    static String stripAccents(String str) {
+        for (int i = 0; i < str.length(); i += 1) {
+            if (str.charAt(i) >= 0x80) {
+                String decomposed = Normalizer.normalize(str, Normalizer.Form.NFD);
+                return COMBINING_MARKS.matcher(decomposed).replaceAll("");
+            }
+        }
+        return str;    // apenas ASCII: nada a retirar
+    }
+
+    // Nomes a verificar para uma pesquisa por parte do nome (plain: em
+    // minúsculas e sem acentos): a lista de ocorrências mais curta entre os
+    // trigramas da pesquisa, ou todos os nomes se for curta demais
+    private List<Entry> candidates(String plain) {
+        List<Entry> candidates = this.entries;
+        if (plain.length() >= 3) {
+            for (int i = 0; i + 3 <= plain.length(); i += 1) {
+                List<Entry> posting = this.trigrams.get(trigram(plain, i));
+                if (posting == null) {
+                    return List.of();
+                }
+                if (posting.size() < candidates.size()) {
+                    candidates = posting;
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private NavigableMap<String, List<Entry>> prefixRange(String prefix) {
+        String from = stripAccents(prefix.toLowerCase(Locale.ROOT));
+        return this.byName.subMap(from, true, from + Character.MAX_VALUE, false);
+    }
+
+    private static long trigram(String text, int i) {
+        return ((long) text.charAt(i) << 32)
+               | ((long) text.charAt(i + 1) << 16)
+               | text.charAt(i + 2);
+    }
+
+    private void index(Entry entry) {
+        this.entries.add(entry);
+        this.byName.computeIfAbsent(entry.plain, k -> new ArrayList<>()).add(entry);
+        String text = entry.plain;
+        for (int i = 0; i + 3 <= text.length(); i += 1) {
+            long key = trigram(text, i);
+            List<Entry> posting = this.trigrams.computeIfAbsent(key, k -> new ArrayList<>());
+            // um nome com o mesmo trigrama repetido só entra uma vez
+            if (posting.isEmpty() || posting.get(posting.size() - 1) != entry) {
+                posting.add(entry);
+            }
+        }
+    }
+
+    // Reconstrói as listas só com as entradas não removidas, pela ordem de
+    // inserção. O(n), feito depois de pelo menos n/2 remoções.
+    private void compact() {
+        var live = new ArrayList<Entry>(this.entries.size() - this.removedCount);
+        for (Entry entry : this.entries) {
+            if (!entry.removed) {
+                live.add(entry);
+            }
+        }
+        this.entries.clear();
+        this.trigrams.clear();
+        this.byName.clear();
+        this.removedCount = 0;
+        for (Entry entry : live) {
+            index(entry);
+        }
+    }
+
+    private static class Entry {
+        Entry(Student student) {
+            this.student = student;
+            this.folded = student.getName().toLowerCase(Locale.ROOT);
+            this.plain = stripAccents(this.folded);
+        }
+
+        final Student student;
+        final String folded;    // minúsculas
+        final String plain;     // minúsculas e sem acentos
+        boolean removed;
+    }
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<Student, Entry> byStudent = new HashMap<>();
+    private final Map<Long, List<Entry>> trigrams = new HashMap<>();
+    private final NavigableMap<String, List<Entry>> byName = new TreeMap<>();
+    private int removedCount;
+}
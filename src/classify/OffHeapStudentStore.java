@@ -0,0 +1,683 @@
+package classify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+// Armazenamento fora do heap: os estudantes ficam em ByteBuffers directos
+// (allocate) ou mapeados de ficheiros (open), e o heap só tem este objecto e
+// as vistas (Student) criadas por get e pelo iterador, seja qual for o
+// tamanho da turma. Turmas abertas a partir dos mesmos ficheiros por vários
+// processos partilham as mesmas páginas em memória (a cache do sistema
+// operativo).
+//
+// Três zonas, cada uma num buffer (e, com open, num ficheiro <base>.rows,
+// <base>.strings e <base>.index):
+//
+//   rows:    cabeçalho (MAGIC, VERSION, número de estudantes, fim da zona
+//            de strings, posições do índice) e um registo de RECORD_SIZE
+//            bytes por estudante: double classificação, int dia (epoch),
+//            byte estatuto (posição em Student.VALID_STUDENT_STATUS) e as
+//            posições do nome e do email na zona de strings
+//   strings: int comprimento + bytes UTF-8, uma entrada a seguir à outra
+//            (os emails são guardados em minúsculas, como em
+//            ColumnarStudentStore)
+//   index:   tabela de hash de endereçamento aberto email -> estudante
+//            (linha + 1; 0 é uma posição livre), com os bytes comparados
+//            directamente na zona de strings
+//
+// As zonas crescem para o dobro quando enchem (com open, o ficheiro
+// cresce e é mapeado de novo); cada uma está limitada a 2 GiB. Um email
+// alterado é acrescentado à zona de strings (o anterior fica por usar).
+//
+// openClass converte uma turma (CSV) para estes ficheiros e abre-os só para
+// leitura, coordenando-se com outros processos (ver openClass); é o que usa
+// ClassifyShell --offheap.
+//
+// Como ColumnarStudentStore, não é thread-safe. Vários processos podem ler
+// os mesmos ficheiros (openReadOnly), mas só um os deve alterar, e os
+// leitores não vêem as alterações feitas depois de abrirem.
+public class OffHeapStudentStore implements StudentStore, Closeable {
+
+    // Buffers directos, libertados quando o objecto deixar de ser usado
+    public static OffHeapStudentStore allocate(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        // a zona de strings (64 bytes por estudante) é a primeira a passar de
+        // 2 GiB
+        if (capacity * 64L > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Initial capacity too large: " + initialCapacity);
+        }
+        return new OffHeapStudentStore(
+                Region.direct((int) recordOffset(capacity)),
+                Region.direct(capacity * 64),
+                Region.direct(indexSlotsFor(capacity) * 4),
+                false
+        );
+    }
+
+    // Abre (ou cria, se não existirem) os ficheiros <base>.rows, .strings e
+    // .index
+    public static OffHeapStudentStore open(Path base) throws IOException {
+        return open(base, false);
+    }
+
+    // Só leitura: add e os setters das vistas dão
+    // UnsupportedOperationException
+    public static OffHeapStudentStore openReadOnly(Path base) throws IOException {
+        return open(base, true);
+    }
+
+    // Turma (ficheiro CSV) só para leitura, a partir de <csv>.rows, .strings
+    // e .index: convertidos do CSV se ainda não existirem ou se o CSV for mais
+    // recente (ver isFresh). Os processos que abrem a mesma turma partilham
+    // as páginas desses ficheiros.
+    //
+    // Entre processos, <csv>.lock coordena a conversão: quem converte tem o
+    // lock exclusivo e quem abre tem o partilhado enquanto mapeia os três
+    // ficheiros, pelo que nunca mapeia um .rows novo com um .strings antigo
+    // (depois de mapeados, os ficheiros substituídos continuam válidos).
+    @SuppressWarnings("try")    // os locks só são usados pelo seu âmbito
+    public static synchronized OffHeapStudentStore openClass(Path csvFile) throws IOException {
+        try (var channel = FileChannel.open(
+                fileFor(csvFile, ".lock"),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        )) {
+            try (var shared = channel.lock(0, Long.MAX_VALUE, true)) {
+                if (isFresh(csvFile)) {
+                    return openReadOnly(csvFile);
+                }
+            }
+            try (var exclusive = channel.lock()) {
+                // outro processo pode ter convertido enquanto se esperava
+                if (!isFresh(csvFile)) {
+                    convert(csvFile);
+                }
+                return openReadOnly(csvFile);
+            }
+        }
+    }
+
+    // Há ficheiros convertidos e são mais recentes do que o CSV
+    public static boolean isFresh(Path csvFile) throws IOException {
+        Path rows = fileFor(csvFile, ".rows");
+        return Files.exists(rows)
+               && Files.getLastModifiedTime(rows).compareTo(Files.getLastModifiedTime(csvFile)) > 0;
+    }
+
+    // Lê o CSV para ficheiros temporários (com um nome único) e substitui
+    // os anteriores; .rows (que isFresh consulta) é o último. Só com o lock
+    // exclusivo de openClass.
+    private static void convert(Path csvFile) throws IOException {
+        Path tmp = Files.createTempFile(
+                csvFile.toAbsolutePath().getParent(), csvFile.getFileName() + ".", ".tmp"
+        );
+        var errors = new ArrayList<StudentCsvException>();
+        try {
+            try (var store = open(tmp);
+                 var input = Files.newInputStream(csvFile)) {
+                new StudentCsvReader(input).read(store::add, errors::add);
+            }
+            if (!errors.isEmpty()) {
+                throw new IOException(
+                        "Invalid data in " + csvFile + " (" + errors.size() + " errors): " + errors.get(0).getMessage()
+                );
+            }
+            for (String suffix : new String[] { ".strings", ".index", ".rows" }) {
+                Files.move(
+                        fileFor(tmp, suffix),
+                        fileFor(csvFile, suffix),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE
+                );
+            }
+        }
+        catch (IOException | RuntimeException ex) {
+            deleteFiles(tmp);
+            throw ex;
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void deleteFiles(Path base) throws IOException {
+        for (String suffix : new String[] { ".rows", ".strings", ".index" }) {
+            Files.deleteIfExists(fileFor(base, suffix));
+        }
+    }
+
+    private static OffHeapStudentStore open(Path base, boolean readOnly) throws IOException {
+        int capacity = 1024;
+        Region rows = Region.mapped(fileFor(base, ".rows"), HEADER_SIZE + capacity * RECORD_SIZE, readOnly);
+        Region strings = null;
+        Region index = null;
+        try {
+            strings = Region.mapped(fileFor(base, ".strings"), capacity * 64, readOnly);
+            index = Region.mapped(fileFor(base, ".index"), indexSlotsFor(capacity) * 4, readOnly);
+            checkHeader(base, rows, strings, index, readOnly);
+            return new OffHeapStudentStore(rows, strings, index, readOnly);
+        }
+        catch (IOException | RuntimeException ex) {
+            rows.close();
+            if (strings != null) {
+                strings.close();
+            }
+            if (index != null) {
+                index.close();
+            }
+            throw ex;
+        }
+    }
+
+    // Ficheiros vazios, truncados ou de outro formato dão uma IOException,
+    // em vez de um erro ao ler o primeiro registo
+    private static void checkHeader(
+            Path base,
+            Region rows,
+            Region strings,
+            Region index,
+            boolean readOnly
+    ) throws IOException {
+        Path file = fileFor(base, ".rows");
+        if (rows.capacity() < HEADER_SIZE) {
+            throw new IOException("Empty or truncated off-heap store: " + file);
+        }
+        ByteBuffer header = rows.buffer;
+        if (header.getInt(0) == 0 && !readOnly) {
+            return;    // ficheiros novos
+        }
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException("Not an off-heap student store (or unsupported version): " + file);
+        }
+        int size = header.getInt(SIZE_OFFSET);
+        int stringsEnd = header.getInt(STRINGS_END_OFFSET);
+        int slots = header.getInt(INDEX_SLOTS_OFFSET);
+        if (size < 0 || (long) HEADER_SIZE + (long) size * RECORD_SIZE > rows.capacity()
+            || stringsEnd < 0 || stringsEnd > strings.capacity()
+            || slots <= size || Integer.bitCount(slots) != 1 || (long) slots * 4 > index.capacity()) {
+            throw new IOException("Truncated or inconsistent off-heap store: " + base);
+        }
+    }
+
+    private OffHeapStudentStore(Region rows, Region strings, Region index, boolean readOnly) {
+        this.rows = rows;
+        this.strings = strings;
+        this.index = index;
+        this.readOnly = readOnly;
+        ByteBuffer header = rows.buffer;
+        if (header.getInt(0) == 0) {
+            // ficheiros novos (ou buffers directos): cabeçalho inicial
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(SIZE_OFFSET, 0);
+            header.putInt(STRINGS_END_OFFSET, 0);
+            header.putInt(INDEX_SLOTS_OFFSET, index.capacity() / 4);
+        }
+    }
+
+    @Override
+    public void add(Student st) {
+        checkWritable();
+        String email = StudentCollection.emailKey(st.getEmail());
+        byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(emailBytes);
+        if (this.index.buffer.getInt(findSlot(emailBytes, hash) * 4) != 0) {
+            throw new DuplicateValueException("Duplicate email: " + st.getEmail());
+        }
+
+        int row = size();
+        this.rows.ensureCapacity(recordOffset(row + 1L));
+        int record = record(row);
+        ByteBuffer buf = this.rows.buffer;
+        buf.putDouble(record + GRADE, st.getGrade());
+        buf.putInt(record + BIRTH_DAY, Math.toIntExact(st.getBirthDate().toEpochDay()));
+        buf.put(record + STATUS, (byte) Student.statusCode(st.getStatus()));
+        buf.putInt(record + NAME, appendString(st.getName().getBytes(StandardCharsets.UTF_8)));
+        buf.putInt(record + EMAIL, appendString(emailBytes));
+        buf.putInt(SIZE_OFFSET, row + 1);
+
+        if ((long) (row + 1) * 2 > indexSlots()) {
+            rebuildIndex(indexSlots() * 2);
+        }
+        else {
+            this.index.buffer.putInt(findSlot(emailBytes, hash) * 4, row + 1);
+        }
+    }
+
+    @Override
+    public Student get(int row) {
+        if (row < 0 || row >= size()) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size());
+        }
+        return new Row(row);
+    }
+
+    @Override
+    public int size() {
+        return this.rows.buffer.getInt(SIZE_OFFSET);
+    }
+
+    @Override
+    public double gradeAt(int row) {
+        return this.rows.buffer.getDouble(record(Objects.checkIndex(row, size())) + GRADE);
+    }
+
+    @Override
+    public int statusCodeAt(int row) {
+        return this.rows.buffer.get(record(Objects.checkIndex(row, size())) + STATUS);
+    }
+
+    @Override
+    public Student searchByEmail(String email) {
+        int row = findRow(email);
+        return row < 0 ? null : new Row(row);
+    }
+
+    // Agregados directamente sobre os registos, sem criar vistas
+    public double average() {
+        ByteBuffer buf = this.rows.buffer;
+        int size = size();
+        double sum = 0;
+        for (int row = 0; row < size; row += 1) {
+            sum += buf.getDouble(record(row) + GRADE);
+        }
+        return sum / size;
+    }
+
+    // Bytes ocupados fora do heap (capacidade das três zonas)
+    public long getOffHeapBytes() {
+        return (long) this.rows.capacity() + this.strings.capacity() + this.index.capacity();
+    }
+
+    // Com open: grava em disco as alterações ainda só em memória
+    public void force() {
+        this.rows.force();
+        this.strings.force();
+        this.index.force();
+    }
+
+    @Override
+    public void close() {
+        if (!this.readOnly) {
+            force();
+        }
+        this.rows.close();
+        this.strings.close();
+        this.index.close();
+    }
+
+    @Override
+    public Iterator<Student> iterator() {
+        return new Iterator<>() {
+            private final int size = size();
+            private int row = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.row < this.size;
+            }
+
+            @Override
+            public Student next() {
+                if (this.row >= this.size) {
+                    throw new NoSuchElementException();
+                }
+                return new Row(this.row++);
+            }
+        };
+    }
+
+    // Registos
+
+    // Em long: para lá de 2 GiB (~89 milhões de registos) a posição chega a
+    // Region.ensureCapacity, que a recusa, em vez de dar a volta
+    private static long recordOffset(long row) {
+        return HEADER_SIZE + row * RECORD_SIZE;
+    }
+
+    // Posição de um registo que já existe (a zona não passa de 2 GiB)
+    private static int record(int row) {
+        return (int) recordOffset(row);
+    }
+
+    private void checkWritable() {
+        if (this.readOnly) {
+            throw new UnsupportedOperationException("Off-heap store is read-only");
+        }
+    }
+
+    // Zona de strings
+
+    // Devolve a posição da nova entrada
+    private int appendString(byte[] bytes) {
+        ByteBuffer header = this.rows.buffer;
+        int offset = header.getInt(STRINGS_END_OFFSET);
+        this.strings.ensureCapacity((long) offset + 4 + bytes.length);
+        ByteBuffer buf = this.strings.buffer;
+        buf.putInt(offset, bytes.length);
+        buf.duplicate().position(offset + 4).put(bytes);
+        header.putInt(STRINGS_END_OFFSET, offset + 4 + bytes.length);
+        return offset;
+    }
+
+    private String readString(int offset) {
+        ByteBuffer buf = this.strings.buffer;
+        var bytes = new byte[buf.getInt(offset)];
+        buf.duplicate().position(offset + 4).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean sameBytes(int offset, byte[] bytes) {
+        ByteBuffer buf = this.strings.buffer;
+        if (buf.getInt(offset) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i += 1) {
+            if (buf.get(offset + 4 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hashAt(int offset) {
+        ByteBuffer buf = this.strings.buffer;
+        int h = 1;
+        int end = offset + 4 + buf.getInt(offset);
+        for (int i = offset + 4; i < end; i += 1) {
+            h = 31 * h + buf.get(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // Índice de emails (sondagem linear)
+
+    private int indexSlots() {
+        return this.rows.buffer.getInt(INDEX_SLOTS_OFFSET);
+    }
+
+    private int findRow(String email) {
+        byte[] bytes = StudentCollection.emailKey(email).getBytes(StandardCharsets.UTF_8);
+        return this.index.buffer.getInt(findSlot(bytes, hash(bytes)) * 4) - 1;
+    }
+
+    // Posição com o email ou a posição livre onde ficaria
+    private int findSlot(byte[] emailBytes, int hash) {
+        ByteBuffer slots = this.index.buffer;
+        ByteBuffer records = this.rows.buffer;
+        int mask = indexSlots() - 1;
+        int slot = hash & mask;
+        while (true) {
+            int entry = slots.getInt(slot * 4);
+            if (entry == 0 || sameBytes(records.getInt(record(entry - 1) + EMAIL), emailBytes)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Retira uma posição, recuando as seguintes que dependiam dela para
+    // serem encontradas (sem marcas de posição apagada)
+    private void removeSlot(int slot) {
+        ByteBuffer slots = this.index.buffer;
+        ByteBuffer records = this.rows.buffer;
+        int mask = indexSlots() - 1;
+        int free = slot;
+        int next = slot;
+        while (true) {
+            slots.putInt(free * 4, 0);
+            while (true) {
+                next = (next + 1) & mask;
+                int entry = slots.getInt(next * 4);
+                if (entry == 0) {
+                    return;
+                }
+                int home = hashAt(records.getInt(record(entry - 1) + EMAIL)) & mask;
+                // fica onde está se a posição de origem estiver entre free
+                // (exclusive) e next (inclusive), circularmente
+                boolean reachable = free <= next
+                                    ? free < home && home <= next
+                                    : free < home || home <= next;
+                if (!reachable) {
+                    slots.putInt(free * 4, entry);
+                    free = next;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void rebuildIndex(int slotCount) {
+        this.index.ensureCapacity((long) slotCount * 4);
+        ByteBuffer slots = this.index.buffer;
+        ByteBuffer records = this.rows.buffer;
+        for (int i = 0; i < slotCount; i += 1) {
+            slots.putInt(i * 4, 0);
+        }
+        records.putInt(INDEX_SLOTS_OFFSET, slotCount);
+        int mask = slotCount - 1;
+        int size = size();
+        for (int row = 0; row < size; row += 1) {
+            int slot = hashAt(records.getInt(record(row) + EMAIL)) & mask;
+            while (slots.getInt(slot * 4) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots.putInt(slot * 4, row + 1);
+        }
+    }
+
+    private static int indexSlotsFor(int capacity) {
+        return Integer.highestOneBit(Math.max(capacity, 8) * 2 - 1) * 2;
+    }
+
+    private static int hash(byte[] bytes) {
+        int h = 1;
+        for (byte b : bytes) {
+            h = 31 * h + b;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static Path fileFor(Path base, String suffix) {
+        return base.resolveSibling(base.getFileName() + suffix);
+    }
+
+    // Vista de um registo: só guarda a posição
+    private class Row extends Student {
+        Row(int row) {
+            this.record = record(row);
+            this.row = row;
+        }
+
+        @Override
+        public String getName() {
+            return readString(rows.buffer.getInt(this.record + NAME));
+        }
+
+        @Override
+        public String getEmail() {
+            return readString(rows.buffer.getInt(this.record + EMAIL));
+        }
+
+        @Override
+        public void setEmail(String email) {
+            checkWritable();
+            Utils.validateEmail(email);
+            byte[] bytes = StudentCollection.emailKey(email).getBytes(StandardCharsets.UTF_8);
+            int hash = hash(bytes);
+            int slot = findSlot(bytes, hash);
+            int entry = index.buffer.getInt(slot * 4);
+            if (entry == this.row + 1) {
+                return;
+            }
+            if (entry != 0) {
+                throw new DuplicateValueException("Duplicate email: " + email);
+            }
+            byte[] current = StudentCollection.emailKey(getEmail()).getBytes(StandardCharsets.UTF_8);
+            removeSlot(findSlot(current, hash(current)));
+            int offset = appendString(bytes);
+            rows.buffer.putInt(this.record + EMAIL, offset);
+            index.buffer.putInt(findSlot(bytes, hash) * 4, this.row + 1);
+        }
+
+        @Override
+        public LocalDate getBirthDate() {
+            return LocalDate.ofEpochDay(rows.buffer.getInt(this.record + BIRTH_DAY));
+        }
+
+        @Override
+        public double getGrade() {
+            return rows.buffer.getDouble(this.record + GRADE);
+        }
+
+        @Override
+        public void setGrade(double grade) {
+            checkWritable();
+            Student.validateGrade(grade);
+            rows.buffer.putDouble(this.record + GRADE, grade);
+        }
+
+        @Override
+        public String getStatus() {
+            return Student.VALID_STUDENT_STATUS[rows.buffer.get(this.record + STATUS)];
+        }
+
+        @Override
+        public void setStatus(String status) {
+            checkWritable();
+            rows.buffer.put(this.record + STATUS, (byte) Student.validateStatus(status));
+        }
+
+        private final int record;
+        private final int row;
+    }
+
+    // Um buffer directo ou mapeado de um ficheiro, que cresce para o dobro
+    private static class Region {
+        static Region direct(int capacity) {
+            return new Region(ByteBuffer.allocateDirect(capacity), null, false);
+        }
+
+        static Region mapped(Path file, int minCapacity, boolean readOnly) throws IOException {
+            FileChannel channel = readOnly
+                                  ? FileChannel.open(file, StandardOpenOption.READ)
+                                  : FileChannel.open(
+                                          file,
+                                          StandardOpenOption.CREATE,
+                                          StandardOpenOption.READ,
+                                          StandardOpenOption.WRITE
+                                  );
+            try {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File too large for an off-heap store: " + file);
+                }
+                int capacity = readOnly ? (int) size : (int) Math.max(size, minCapacity);
+                var region = new Region(null, channel, readOnly);
+                region.buffer = region.map(capacity);
+                return region;
+            }
+            catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        private Region(ByteBuffer buffer, FileChannel channel, boolean readOnly) {
+            this.buffer = buffer;
+            this.channel = channel;
+            this.readOnly = readOnly;
+        }
+
+        int capacity() {
+            return this.buffer.capacity();
+        }
+
+        void ensureCapacity(long needed) {
+            int capacity = this.buffer.capacity();
+            if (needed <= capacity) {
+                return;
+            }
+            if (needed > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Off-heap store region full (2 GiB)");
+            }
+            int newCapacity = (int) Math.min(Integer.MAX_VALUE, Math.max(needed, (long) capacity * 2));
+            if (this.channel == null) {
+                ByteBuffer bigger = ByteBuffer.allocateDirect(newCapacity);
+                bigger.put(this.buffer.duplicate().clear());
+                this.buffer = bigger;
+            }
+            else {
+                try {
+                    // mapear para lá do fim do ficheiro aumenta-o
+                    this.buffer = map(newCapacity);
+                }
+                catch (IOException ex) {
+                    throw new IllegalStateException("Can't grow off-heap store: " + ex.getMessage(), ex);
+                }
+            }
+        }
+
+        void force() {
+            if (this.buffer instanceof MappedByteBuffer && !this.readOnly) {
+                ((MappedByteBuffer) this.buffer).force();
+            }
+        }
+
+        void close() {
+            if (this.channel != null) {
+                try {
+                    this.channel.close();
+                }
+                catch (IOException ex) {
+                    // o mapeamento continua válido até ser recolhido
+                }
+            }
+        }
+
+        private ByteBuffer map(int capacity) throws IOException {
+            var mode = this.readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+            return this.channel.map(mode, 0, capacity);
+        }
+
+        ByteBuffer buffer;
+        private final FileChannel channel;
+        private final boolean readOnly;
+    }
+
+    private static final int MAGIC = 0x434c534f;    // "CLSO"
+    private static final int VERSION = 1;
+
+    // Cabeçalho da zona rows
+    private static final int SIZE_OFFSET = 8;
+    private static final int STRINGS_END_OFFSET = 12;
+    private static final int INDEX_SLOTS_OFFSET = 16;
+    private static final int HEADER_SIZE = 32;
+
+    // Campos de cada registo
+    private static final int GRADE = 0;
+    private static final int BIRTH_DAY = 8;
+    private static final int STATUS = 12;
+    private static final int NAME = 16;
+    private static final int EMAIL = 20;
+    private static final int RECORD_SIZE = 24;
+
+    private final Region rows;
+    private final Region strings;
+    private final Region index;
+    private final boolean readOnly;
+}
@@ -0,0 +1,35 @@
+package classify;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Evento JFR de uma operação medida (ver Metrics). Só é criado com as
+// métricas ligadas e só é gravado se o evento estiver activo na gravação
+// (ex: -XX:StartFlightRecording com classify.Operation#enabled=true).
+// A duração vai num campo próprio, medida pelo mesmo relógio que os
+// histogramas.
+@Name("classify.Operation")
+@Label("Classify Operation")
+@Category("Classify")
+@Description("Operação sobre uma turma (leitura, pesquisa, gravação, ...)")
+@StackTrace(false)
+class OperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    long rows;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Failed")
+    boolean failed;
+}
@@ -0,0 +1,92 @@
+package classify;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Contadores e histograma de latências de uma operação. Usado assim:
+//
+//     long start = Metrics.start();
+//     ... operação ...
+//     Metrics.SEARCH_BY_EMAIL.stop(start);
+//
+// Com as métricas desligadas (Metrics.ENABLED é uma constante) o JIT
+// elimina as duas chamadas por completo.
+public class OperationMetrics {
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void stop(long start) {
+        if (Metrics.ENABLED) {
+            record(System.nanoTime() - start, 0, false);
+        }
+    }
+
+    // rows: linhas processadas (ex: lidas, escritas, encontradas)
+    public void stop(long start, long rows) {
+        if (Metrics.ENABLED) {
+            record(System.nanoTime() - start, rows, false);
+        }
+    }
+
+    public void failed(long start) {
+        if (Metrics.ENABLED) {
+            record(System.nanoTime() - start, 0, true);
+        }
+    }
+
+    // Erros que não interrompem a operação (ex: linhas inválidas na leitura)
+    public void errors(long count) {
+        if (Metrics.ENABLED && count > 0) {
+            this.errors.add(count);
+        }
+    }
+
+    // Snapshot para JMX e para o ficheiro de métricas
+    public OperationSnapshot snapshot() {
+        return new OperationSnapshot(
+                this.name,
+                this.latency.getCount(),
+                this.errors.sum(),
+                this.rows.sum(),
+                this.latency.getMean(),
+                this.latency.percentile(50),
+                this.latency.percentile(90),
+                this.latency.percentile(99),
+                this.latency.getMax()
+        );
+    }
+
+    void reset() {
+        this.latency.reset();
+        this.errors.reset();
+        this.rows.reset();
+    }
+
+    private void record(long nanos, long rows, boolean failed) {
+        this.latency.record(nanos);
+        if (rows != 0) {
+            this.rows.add(rows);
+        }
+        if (failed) {
+            this.errors.increment();
+        }
+        var event = new OperationEvent();
+        if (event.isEnabled()) {
+            event.operation = this.name;
+            event.rows = rows;
+            event.elapsed = nanos;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+}
@@ -0,0 +1,84 @@
+package classify;
+
+import java.util.Locale;
+
+// Valores de uma OperationMetrics num dado momento (latências em
+// nanossegundos). Os getters são os atributos vistos por JMX.
+public class OperationSnapshot {
+    OperationSnapshot(
+            String name,
+            long count,
+            long errors,
+            long rows,
+            double meanNanos,
+            long p50Nanos,
+            long p90Nanos,
+            long p99Nanos,
+            long maxNanos
+    ) {
+        this.name = name;
+        this.count = count;
+        this.errors = errors;
+        this.rows = rows;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    String toJson() {
+        return String.format(
+                Locale.ROOT,
+                "{\"operation\":\"%s\",\"count\":%d,\"errors\":%d,\"rows\":%d,"
+                + "\"meanNanos\":%.1f,\"p50Nanos\":%d,\"p90Nanos\":%d,\"p99Nanos\":%d,\"maxNanos\":%d}",
+                name, count, errors, rows, meanNanos, p50Nanos, p90Nanos, p99Nanos, maxNanos
+        );
+    }
+
+    private final String name;
+    private final long count;
+    private final long errors;
+    private final long rows;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long maxNanos;
+}
@@ -0,0 +1,88 @@
+package classify;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+// Estudantes ordenados por nome e por email, para listagens por páginas.
+// Como GradeIndex, cada ordem só é calculada (O(n log n)) na primeira
+// página pedida depois de uma alteração que a afecte; as páginas seguintes
+// são vistas sobre o mesmo array. As chaves de comparação (nome sem acentos
+// em minúsculas) são calculadas uma vez por estudante, não por comparação.
+class OrderIndex {
+
+    OrderIndex(List<Student> students) {
+        this.students = students;
+    }
+
+    // Estudantes entrados ou saídos: todas as ordens
+    void invalidate() {
+        this.byName = null;
+        this.byEmail = null;
+    }
+
+    // O nome de um estudante não muda; o email sim
+    void emailChanged() {
+        this.byEmail = null;
+    }
+
+    Student[] byName() {
+        Student[] rows = this.byName;
+        if (rows == null) {
+            rows = sort(this.students, OrderIndex::nameKey);
+            this.byName = rows;
+        }
+        return rows;
+    }
+
+    Student[] byEmail() {
+        Student[] rows = this.byEmail;
+        if (rows == null) {
+            rows = sort(this.students, st -> StudentCollection.emailKey(st.getEmail()));
+            this.byEmail = rows;
+        }
+        return rows;
+    }
+
+    // Chave da ordem por nome: sem acentos e em minúsculas (também usada
+    // por StudentQuery)
+    static String nameKey(Student st) {
+        return NameIndex.stripAccents(st.getName()).toLowerCase(Locale.ROOT);
+    }
+
+    private interface SortKey {
+        String of(Student st);
+    }
+
+    private static Student[] sort(List<Student> students, SortKey sortKey) {
+        int n = students.size();
+        var keyed = new Keyed[n];
+        for (int i = 0; i < n; i += 1) {
+            Student st = students.get(i);
+            keyed[i] = new Keyed(sortKey.of(st), st);
+        }
+        // ordenação estável: empates ficam pela ordem de inserção
+        Arrays.sort(keyed, Comparator.comparing((Keyed k) -> k.key));
+        var rows = new Student[n];
+        for (int i = 0; i < n; i += 1) {
+            rows[i] = keyed[i].student;
+        }
+        return rows;
+    }
+
+    private static class Keyed {
+        Keyed(String key, Student student) {
+            this.key = key;
+            this.student = student;
+        }
+
+        final String key;
+        final Student student;
+    }
+
+    private final List<Student> students;
+    // volatile: ver GradeIndex.sorted
+    private volatile Student[] byName;
+    private volatile Student[] byEmail;
+}
@@ -0,0 +1,198 @@
+package classify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+// Importação de ficheiros de turma grandes: o ficheiro é dividido em blocos
+// de bytes alinhados ao fim de linha, que são mapeados, convertidos e
+// validados em paralelo. Os resultados são depois juntados pela ordem do
+// ficheiro, o que mantém a detecção de emails duplicados igual à leitura
+// sequencial (vale a primeira ocorrência) e os números de linha dos erros
+// correctos.
+public class ParallelStudentLoader {
+
+    public ParallelStudentLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelStudentLoader(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public ImportReport load(
+            Path file,
+            StudentCollection target,
+            Consumer<StudentCsvException> errorHandler
+    ) throws IOException {
+        long start = System.nanoTime();
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size);
+            int chunks = bounds.length - 1;
+
+            var pool = new ForkJoinPool(this.parallelism);
+            List<Chunk> results = new ArrayList<>(chunks);
+            try {
+                List<Future<Chunk>> futures = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i += 1) {
+                    long from = bounds[i];
+                    long to = bounds[i + 1];
+                    futures.add(pool.submit((Callable<Chunk>) () -> parseChunk(channel, from, to)));
+                }
+                for (var future : futures) {
+                    results.add(future.get());
+                }
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Import interrupted", ex);
+            }
+            catch (ExecutionException ex) {
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }
+                throw new IllegalStateException(ex.getCause());
+            }
+            finally {
+                pool.shutdownNow();
+            }
+
+            // junção sequencial, pela ordem dos blocos
+            long rows = 0;
+            long errors = 0;
+            long lineOffset = 0;
+            for (Chunk chunk : results) {
+                int nextError = 0;
+                for (int i = 0; i < chunk.students.size(); i += 1) {
+                    long line = chunk.lines[i];
+                    // erros do bloco anteriores a esta linha
+                    while (nextError < chunk.errors.size()
+                           && chunk.errors.get(nextError).getLineNumber() < line) {
+                        errorHandler.accept(relocate(chunk.errors.get(nextError), lineOffset));
+                        errors += 1;
+                        nextError += 1;
+                    }
+                    try {
+                        target.add(chunk.students.get(i));
+                        rows += 1;
+                    }
+                    catch (IllegalArgumentException ex) {
+                        errorHandler.accept(new StudentCsvException(lineOffset + line, ex.getMessage()));
+                        errors += 1;
+                    }
+                }
+                for (; nextError < chunk.errors.size(); nextError += 1) {
+                    errorHandler.accept(relocate(chunk.errors.get(nextError), lineOffset));
+                    errors += 1;
+                }
+                lineOffset += chunk.lineCount;
+            }
+
+            return new ImportReport(
+                    rows, errors, size, System.nanoTime() - start, chunks, this.parallelism
+            );
+        }
+    }
+
+    // Posições de início de cada bloco (e o fim do ficheiro no fim). Cada
+    // fronteira é avançada até depois do '\n' seguinte.
+    private long[] chunkBounds(FileChannel channel, long size) throws IOException {
+        long chunks = Math.max(1, Math.min(size / MIN_CHUNK_SIZE, this.parallelism * 4L));
+        chunks = Math.max(chunks, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        var probe = ByteBuffer.allocate(4096);
+        for (long i = 1; i < chunks; i += 1) {
+            long pos = Math.max(size / chunks * i, bounds.get(bounds.size() - 1));
+            long boundary = nextLineStart(channel, pos, size, probe);
+            if (boundary > bounds.get(bounds.size() - 1) && boundary < size) {
+                bounds.add(boundary);
+            }
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static long nextLineStart(
+            FileChannel channel,
+            long pos,
+            long size,
+            ByteBuffer probe
+    ) throws IOException {
+        while (pos < size) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i += 1) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return size;
+    }
+
+    private static Chunk parseChunk(FileChannel channel, long from, long to) throws IOException {
+        // cada bloco é mapeado em memória (ver MappedStudentReader)
+        var buf = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        var chunk = new Chunk();
+        chunk.parser.parse(buf, 0, buf.limit(), true);
+        chunk.lineCount = chunk.parser.nextLine() - 1;
+        return chunk;
+    }
+
+    private static StudentCsvException relocate(StudentCsvException ex, long lineOffset) {
+        if (lineOffset == 0) {
+            return ex;
+        }
+        return new StudentCsvException(ex.getLineNumber() + lineOffset, ex.getReason());
+    }
+
+    // Resultado de um bloco. Guarda o número de linha (relativo ao bloco) de
+    // cada estudante, para relatar duplicados detectados só na junção.
+    private static class Chunk implements Consumer<Student> {
+        @Override
+        public void accept(Student st) {
+            int n = this.students.size();
+            if (n == this.lines.length) {
+                this.lines = Arrays.copyOf(this.lines, n * 2);
+            }
+            this.lines[n] = this.parser.lastLine();
+            this.students.add(st);
+        }
+
+        final List<Student> students = new ArrayList<>();
+        final List<StudentCsvException> errors = new ArrayList<>();
+        final StudentCsvReader.Parser parser = new StudentCsvReader.Parser(this, this.errors::add);
+        long[] lines = new long[1024];
+        long lineCount;
+    }
+
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+    private static final long MAX_CHUNK_SIZE = 256 * 1024 * 1024;
+
+    private final int parallelism;
+}
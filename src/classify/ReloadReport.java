@@ -0,0 +1,50 @@
+package classify;
+
+// Resumo de uma releitura incremental (ver RosterDiff)
+public class ReloadReport {
+    ReloadReport(int inserted, int updated, int deleted, int unchanged, long elapsedNanos) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.deleted = deleted;
+        this.unchanged = unchanged;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getDeleted() {
+        return deleted;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public boolean hasChanges() {
+        return inserted + updated + deleted > 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d novos, %d alterados, %d removidos, %d sem alterações (%.1f ms)",
+                inserted, updated, deleted, unchanged, elapsedNanos / 1e6
+        );
+    }
+
+    private final int inserted;
+    private final int updated;
+    private final int deleted;
+    private final int unchanged;
+    private final long elapsedNanos;
+}
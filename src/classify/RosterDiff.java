@@ -0,0 +1,86 @@
+package classify;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Actualiza uma turma em memória para ficar igual a outra (ex: acabada de
+// ler do ficheiro), aplicando só as diferenças: os estudantes são emparelhados
+// pelo email (sem distinguir maiúsculas), os novos são inseridos, os que
+// desapareceram são removidos e os restantes só são alterados se algum campo
+// mudou. Os índices de target são mantidos em vez de reconstruídos.
+//
+// Os estudantes cujo nome ou data mudou são substituídos na mesma posição,
+// pelo que a ordem dos que já existiam não muda; os novos ficam no fim.
+public class RosterDiff {
+
+    public static ReloadReport apply(StudentCollection target, StudentCollection source) {
+        long start = System.nanoTime();
+        int inserted = 0;
+        int updated = 0;
+        int unchanged = 0;
+        var seen = new HashSet<String>(source.size() * 4 / 3 + 1);
+        Map<Student, Student> replaced = new IdentityHashMap<>();
+        var added = new ArrayList<Student>();
+
+        for (Student st : source) {
+            String key = StudentCollection.emailKey(st.getEmail());
+            seen.add(key);
+            Student current = target.searchByEmail(key);
+            if (current == null) {
+                added.add(st);
+                inserted += 1;
+            }
+            else if (!current.getName().equals(st.getName())
+                     || !current.getBirthDate().equals(st.getBirthDate())) {
+                // sem setters para nome e data: substituído
+                replaced.put(current, copyOf(st));
+                updated += 1;
+            }
+            else if (update(current, st)) {
+                updated += 1;
+            }
+            else {
+                unchanged += 1;
+            }
+        }
+
+        var deleted = new ArrayList<Student>();
+        for (Student st : target) {
+            if (!seen.contains(StudentCollection.emailKey(st.getEmail()))) {
+                deleted.add(st);
+            }
+        }
+        target.removeAll(deleted);
+        target.replaceAll(replaced);
+        for (Student st : added) {
+            target.add(copyOf(st));
+        }
+        return new ReloadReport(inserted, updated, deleted.size(), unchanged, System.nanoTime() - start);
+    }
+
+    // Altera só os campos diferentes (cada setter mantém os índices)
+    private static boolean update(Student current, Student st) {
+        boolean changed = false;
+        if (!current.getEmail().equals(st.getEmail())) {
+            // mesmo email com outras maiúsculas
+            current.setEmail(st.getEmail());
+            changed = true;
+        }
+        if (current.getGrade() != st.getGrade()) {
+            current.setGrade(st.getGrade());
+            changed = true;
+        }
+        if (!current.getStatus().equals(st.getStatus())) {
+            current.setStatus(st.getStatus());
+            changed = true;
+        }
+        return changed;
+    }
+
+    // Os estudantes de source continuam a pertencer a source
+    private static Student copyOf(Student st) {
+        return Student.restore(st.getName(), st.getEmail(), st.getBirthDate(), st.getGrade(), st.getStatus());
+    }
+}
@@ -0,0 +1,466 @@
+package classify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Várias turmas (um ficheiro CSV cada, ex: turma01.csv) em simultâneo:
+//
+// - loadAll lê os ficheiros em paralelo;
+// - um índice global email -> (turma, classificação) responde a pesquisas
+//   entre turmas (gradesByClass: as classificações de um estudante em
+//   todas as turmas) sem ter as turmas em memória;
+// - o número de estudantes em memória é limitado (maxResidentRows): quando
+//   é ultrapassado, as turmas usadas há mais tempo (LRU) são descarregadas,
+//   ficando apenas o seu resumo (ClassSummary) e as suas entradas no índice.
+//   Uma turma alterada é gravada (CSV e snapshot, e o diário é apagado)
+//   antes de ser descarregada; volta a ser lida quando for pedida (get).
+//   Uma turma obtida com get deixa de ser acompanhada quando é
+//   descarregada: deve ser pedida de novo a seguir.
+//
+// O nome de cada turma é o nome do ficheiro sem extensão. Tal como no
+// ClassifyShell, um snapshot actualizado é lido em vez do CSV e as
+// alterações por gravar do diário são aplicadas.
+public class RosterEngine implements Closeable {
+
+    public RosterEngine(long maxResidentRows) {
+        if (maxResidentRows < 1) {
+            throw new IllegalArgumentException("Invalid row budget " + maxResidentRows);
+        }
+        this.maxResidentRows = maxResidentRows;
+    }
+
+    // Lê as turmas com threads threads. Os ficheiros que não puderam ser lidos
+    // (ou com dados inválidos) ficam de fora; os respectivos erros são
+    // devolvidos. Há no máximo threads leituras em curso: cada turma lida é
+    // instalada (e as menos usadas descarregadas) antes de se começar a ler
+    // a seguinte, pelo que o orçamento é respeitado também durante a leitura.
+    // Dois ficheiros com o mesmo nome de turma: fica o primeiro da lista (os
+    // nomes são verificados por ordem antes de começar a ler).
+    public Map<Path, IOException> loadAll(List<Path> files, int threads) throws InterruptedException {
+        Map<Path, IOException> errors = new LinkedHashMap<>();
+        List<Path> toRead = new ArrayList<>();
+        synchronized (this) {
+            var names = new HashSet<String>();
+            for (Path file : files) {
+                String name = className(file);
+                if (this.classes.containsKey(name) || !names.add(name)) {
+                    errors.put(file, new IOException("Duplicate class " + name + ": " + file));
+                }
+                else {
+                    toRead.add(file);
+                }
+            }
+        }
+
+        int window = Math.max(1, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(window);
+        CompletionService<StudentCollection> reads = new ExecutorCompletionService<>(pool);
+        Map<Future<StudentCollection>, Path> pending = new HashMap<>();
+        try {
+            var next = toRead.iterator();
+            while (next.hasNext() || !pending.isEmpty()) {
+                while (next.hasNext() && pending.size() < window) {
+                    Path file = next.next();
+                    pending.put(reads.submit(() -> read(file)), file);
+                }
+                var done = reads.take();
+                Path file = pending.remove(done);
+                try {
+                    var students = done.get();
+                    synchronized (this) {
+                        String name = className(file);
+                        if (this.classes.containsKey(name)) {
+                            throw new IOException("Duplicate class " + name + ": " + file);
+                        }
+                        var entry = new ClassEntry(name, file);
+                        this.classes.put(name, entry);
+                        install(entry, students);
+                    }
+                }
+                catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    errors.put(file, cause instanceof IOException
+                                     ? (IOException) cause
+                                     : new IOException(cause.getMessage(), cause));
+                }
+                catch (IOException ex) {
+                    errors.put(file, ex);
+                }
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return errors;
+    }
+
+    // Nomes das turmas, por ordem alfabética
+    public synchronized List<String> classNames() {
+        return new ArrayList<>(this.classes.keySet());
+    }
+
+    // A turma, lida de novo se tinha sido descarregada
+    public StudentCollection get(String className) throws IOException {
+        ClassEntry entry;
+        synchronized (this) {
+            entry = entry(className);
+            if (entry.students != null) {
+                this.resident.get(className);    // usada agora (LRU)
+                return entry.students;
+            }
+        }
+        // uma leitura de cada vez por turma; turmas diferentes em paralelo
+        synchronized (entry) {
+            synchronized (this) {
+                if (entry.students != null) {
+                    this.resident.get(className);
+                    return entry.students;
+                }
+            }
+            var students = read(entry.file);
+            synchronized (this) {
+                install(entry, students);
+                return students;
+            }
+        }
+    }
+
+    // Turmas em que o estudante está inscrito (sem ler turma nenhuma)
+    public synchronized List<String> classesOf(String email) {
+        var enrolments = this.byEmail.get(StudentCollection.emailKey(email));
+        var names = new ArrayList<String>();
+        if (enrolments != null) {
+            for (var enrolment : enrolments) {
+                names.add(enrolment.entry.name);
+            }
+        }
+        return names;
+    }
+
+    // Classificação do estudante em cada uma das suas turmas, apenas com o
+    // índice (sem ler turma nenhuma)
+    public synchronized Map<String, Double> gradesByClass(String email) {
+        var enrolments = this.byEmail.get(StudentCollection.emailKey(email));
+        Map<String, Double> grades = new TreeMap<>();
+        if (enrolments != null) {
+            for (var enrolment : enrolments) {
+                grades.put(enrolment.entry.name, enrolment.grade);
+            }
+        }
+        return grades;
+    }
+
+    // O estudante em cada uma das suas turmas (turma -> estudante). Lê as
+    // turmas que tenham sido descarregadas: para só as classificações,
+    // gradesByClass é mais barato.
+    public Map<String, Student> gradesOf(String email) throws IOException {
+        Map<String, Student> found = new TreeMap<>();
+        for (String name : classesOf(email)) {
+            var st = get(name).searchByEmail(email);
+            if (st != null) {
+                found.put(name, st);
+            }
+        }
+        return found;
+    }
+
+    // Número de estudantes e média de cada turma, por ordem alfabética
+    public synchronized List<ClassSummary> summaries() {
+        var summaries = new ArrayList<ClassSummary>();
+        for (var entry : this.classes.values()) {
+            summaries.add(entry.summary());
+        }
+        return summaries;
+    }
+
+    // Média de todos os estudantes de todas as turmas (um estudante em duas
+    // turmas conta duas vezes)
+    public synchronized double schoolAverage() {
+        double sum = 0;
+        long count = 0;
+        for (var entry : this.classes.values()) {
+            var summary = entry.summary();
+            sum += summary.getAverage() * summary.getCount();
+            count += summary.getCount();
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public synchronized long getResidentRows() {
+        return this.residentRows;
+    }
+
+    public synchronized int getResidentClasses() {
+        return this.resident.size();
+    }
+
+    // Leituras de turmas (incluindo as que voltaram a ser lidas depois de
+    // descarregadas)
+    public synchronized long getLoads() {
+        return this.loads;
+    }
+
+    // Grava as turmas alteradas
+    @Override
+    public synchronized void close() throws IOException {
+        for (var entry : this.resident.values()) {
+            save(entry);
+        }
+    }
+
+    private ClassEntry entry(String className) {
+        var entry = this.classes.get(className);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown class " + className);
+        }
+        return entry;
+    }
+
+    // Chamado com o lock do motor
+    private void install(ClassEntry entry, StudentCollection students) {
+        if (!entry.indexed) {
+            for (Student st : students) {
+                index(StudentCollection.emailKey(st.getEmail()), entry, st.getGrade());
+            }
+            entry.indexed = true;
+        }
+        entry.students = students;
+        entry.dirty = false;
+        this.loads += 1;
+        students.addListener(entry);
+        this.resident.put(entry.name, entry);
+        this.residentRows += students.size();
+        evictIfNeeded(entry);
+    }
+
+    // Descarrega as turmas menos usadas até caber no orçamento (nunca a
+    // turma acabada de ler). Uma turma que não pode ser gravada fica em
+    // memória, mesmo acima do orçamento, e volta a ser tentada na próxima
+    // vez; se continuar a falhar, o erro aparece em close. A leitura que
+    // provocou a descarga não falha por isso: a turma lida já está instalada.
+    private void evictIfNeeded(ClassEntry keep) {
+        var it = this.resident.values().iterator();
+        while (this.residentRows > this.maxResidentRows && it.hasNext()) {
+            var entry = it.next();
+            if (entry == keep) {
+                continue;
+            }
+            try {
+                save(entry);
+            }
+            catch (IOException ex) {
+                continue;
+            }
+            var stats = entry.students.statistics();
+            entry.count = (int) stats.getCount();
+            entry.average = stats.getMean();
+            entry.students.removeListener(entry);
+            this.residentRows -= entry.students.size();
+            entry.students = null;
+            it.remove();
+        }
+    }
+
+    // Como ClassifyShell.compactJournal: a turma gravada (já em disco)
+    // inclui as alterações do diário, que é apagado antes de ela substituir
+    // o CSV; senão voltaria a ser aplicado por read sobre a turma gravada
+    // (ver StudentJournal.recover)
+    private void save(ClassEntry entry) throws IOException {
+        if (!entry.dirty) {
+            return;
+        }
+        new StudentCsvWriter(StudentCsvWriter.Layout.SAVE)
+                .write(StudentJournal.pendingPathFor(entry.file), "", entry.students);
+        Files.deleteIfExists(StudentJournal.pathFor(entry.file));
+        StudentJournal.install(entry.file);
+        try {
+            StudentSnapshot.write(StudentSnapshot.pathFor(entry.file), entry.students);
+        }
+        catch (IOException ex) {
+            // o snapshot fica desactualizado e read lê o CSV
+        }
+        entry.dirty = false;
+    }
+
+    private void index(String key, ClassEntry entry, double grade) {
+        this.byEmail.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new Enrolment(entry, grade));
+    }
+
+    private void unindex(String key, ClassEntry entry) {
+        var enrolments = this.byEmail.get(key);
+        if (enrolments == null) {
+            return;
+        }
+        for (int i = 0; i < enrolments.size(); i += 1) {
+            if (enrolments.get(i).entry == entry) {
+                enrolments.remove(i);
+                if (enrolments.isEmpty()) {
+                    this.byEmail.remove(key);
+                }
+                return;
+            }
+        }
+    }
+
+    private Enrolment enrolment(String key, ClassEntry entry) {
+        var enrolments = this.byEmail.get(key);
+        if (enrolments != null) {
+            for (var enrolment : enrolments) {
+                if (enrolment.entry == entry) {
+                    return enrolment;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String className(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    // Lê uma turma como o ClassifyShell: snapshot se estiver actualizado,
+    // senão o CSV; depois as alterações do diário
+    private static StudentCollection read(Path file) throws IOException {
+        StudentJournal.recover(file);
+        StudentCollection students = null;
+        if (StudentSnapshot.isFresh(file)) {
+            try {
+                students = StudentSnapshot.read(StudentSnapshot.pathFor(file));
+            }
+            catch (IOException ex) {
+                // snapshot inválido: lê-se o CSV
+            }
+        }
+        if (students == null) {
+            students = new StudentCollection();
+            var errors = new ArrayList<StudentCsvException>();
+            if (Files.size(file) < MAPPED_READ_THRESHOLD) {
+                try (var input = Files.newInputStream(file)) {
+                    new StudentCsvReader(input).read(students::add, errors::add);
+                }
+            }
+            else {
+                new MappedStudentReader(file).read(students::add, errors::add);
+            }
+            if (!errors.isEmpty()) {
+                throw new IOException(
+                        "Invalid data in " + file + " (" + errors.size() + " errors): " + errors.get(0).getMessage()
+                );
+            }
+        }
+        var journal = StudentJournal.pathFor(file);
+        if (Files.exists(journal)) {
+            StudentJournal.replay(journal, students);
+        }
+        return students;
+    }
+
+    // Uma turma: em memória (students != null) ou apenas o seu resumo.
+    // Recebe as alterações à turma para manter o índice global.
+    private class ClassEntry implements StudentCollectionListener {
+        ClassEntry(String name, Path file) {
+            this.name = name;
+            this.file = file;
+        }
+
+        ClassSummary summary() {
+            if (this.students != null) {
+                var stats = this.students.statistics();
+                return new ClassSummary(this.name, (int) stats.getCount(), stats.getMean(), true);
+            }
+            return new ClassSummary(this.name, this.count, this.average, false);
+        }
+
+        @Override
+        public void studentAdded(Student st) {
+            synchronized (RosterEngine.this) {
+                index(StudentCollection.emailKey(st.getEmail()), this, st.getGrade());
+                residentRows += 1;
+                this.dirty = true;
+            }
+        }
+
+        @Override
+        public void studentRemoved(Student st) {
+            synchronized (RosterEngine.this) {
+                unindex(StudentCollection.emailKey(st.getEmail()), this);
+                residentRows -= 1;
+                this.dirty = true;
+            }
+        }
+
+        @Override
+        public void emailChanged(Student st, String oldEmail, String newEmail) {
+            synchronized (RosterEngine.this) {
+                unindex(StudentCollection.emailKey(oldEmail), this);
+                index(StudentCollection.emailKey(newEmail), this, st.getGrade());
+                this.dirty = true;
+            }
+        }
+
+        @Override
+        public void gradeChanged(Student st, double oldGrade, double newGrade) {
+            synchronized (RosterEngine.this) {
+                var enrolment = enrolment(StudentCollection.emailKey(st.getEmail()), this);
+                if (enrolment != null) {
+                    enrolment.grade = newGrade;
+                }
+                this.dirty = true;
+            }
+        }
+
+        @Override
+        public void statusChanged(Student st, String oldStatus, String newStatus) {
+            synchronized (RosterEngine.this) {
+                this.dirty = true;
+            }
+        }
+
+        final String name;
+        final Path file;
+        StudentCollection students;
+        boolean indexed;
+        boolean dirty;
+        // resumo guardado ao descarregar
+        int count;
+        double average;
+    }
+
+    // Entrada do índice global: um estudante numa turma
+    private static class Enrolment {
+        Enrolment(ClassEntry entry, double grade) {
+            this.entry = entry;
+            this.grade = grade;
+        }
+
+        final ClassEntry entry;
+        double grade;
+    }
+
+    private static final long MAPPED_READ_THRESHOLD = 1024 * 1024;
+
+    private final long maxResidentRows;
+    private final Map<String, ClassEntry> classes = new TreeMap<>();
+    // turmas em memória, da menos para a mais usada recentemente
+    private final LinkedHashMap<String, ClassEntry> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, List<Enrolment>> byEmail = new HashMap<>();
+    private long residentRows;
+    private long loads;
+}
@@ -0,0 +1,284 @@
+package classify;
+
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+// Sessão SMTP (RFC 5321) sobre um socket, que pode enviar várias mensagens
+// seguidas: é o que permite ao BulkMailer não abrir uma ligação por
+// mensagem. Suporta TLS desde o início ou STARTTLS, AUTH PLAIN e, se o
+// servidor anunciar PIPELINING, envia MAIL/RCPT/DATA de uma só vez.
+//
+// As mensagens são texto UTF-8 codificado em base64 (não depende de
+// 8BITMIME nem precisa de "dot-stuffing").
+class SmtpConnection implements Closeable {
+
+    SmtpConnection(SmtpSettings settings) throws IOException {
+        this.settings = settings;
+        var mode = settings.getSecurityMode();
+        Socket socket;
+        if (mode == SmtpSettings.SecurityMode.TLS) {
+            socket = SSLSocketFactory.getDefault().createSocket();
+        }
+        else {
+            socket = new Socket();
+        }
+        try {
+            socket.connect(new InetSocketAddress(settings.getSmtpServer(), settings.getSmtpPort()), TIMEOUT_MILLIS);
+            socket.setSoTimeout(TIMEOUT_MILLIS);
+            socket.setTcpNoDelay(true);
+            if (mode == SmtpSettings.SecurityMode.TLS) {
+                handshake((SSLSocket) socket, settings.getSmtpServer());
+            }
+            open(socket);
+            expect(220);
+            ehlo();
+            if (mode == SmtpSettings.SecurityMode.START_TLS) {
+                command("STARTTLS");
+                expect(220);
+                var tls = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(
+                        socket, settings.getSmtpServer(), settings.getSmtpPort(), true
+                );
+                handshake(tls, settings.getSmtpServer());
+                open(tls);
+                ehlo();
+            }
+            if (settings.getUser() != null) {
+                String token = "\0" + settings.getUser() + "\0" + settings.getPassword();
+                command("AUTH PLAIN " + base64(token));
+                expect(235);
+            }
+        }
+        catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+    }
+
+    // Envia uma mensagem de texto; a sessão pode ser reutilizada a seguir.
+    // Em caso de SmtpException a sessão continua utilizável depois de
+    // reset().
+    void send(String to, String subject, String text) throws IOException {
+        byte[] message = compose(to, subject, text);
+        command("MAIL FROM:<" + this.settings.getSourceAddr() + ">");
+        if (this.pipelining) {
+            command("RCPT TO:<" + to + ">");
+            command("DATA");
+            this.out.flush();
+            SmtpException failure = reply(250, null);
+            failure = reply(250, failure);
+            failure = reply(354, failure);
+            if (failure != null) {
+                if (this.lastCode == 354) {
+                    // o servidor aceitou DATA mesmo com erro antes:
+                    // mensagem vazia e abandonada
+                    this.out.write(".\r\n".getBytes(StandardCharsets.US_ASCII));
+                    this.out.flush();
+                    reply(250, null);
+                }
+                throw failure;
+            }
+        }
+        else {
+            expect(250);
+            command("RCPT TO:<" + to + ">");
+            expect(250);
+            command("DATA");
+            expect(354);
+        }
+        this.out.write(message);
+        this.out.write(".\r\n".getBytes(StandardCharsets.US_ASCII));
+        expect(250);
+        this.sent += 1;
+    }
+
+    // Abandona a transacção em curso (ex: depois de um destinatário recusado)
+    void reset() throws IOException {
+        command("RSET");
+        expect(250);
+    }
+
+    int getSent() {
+        return sent;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            command("QUIT");
+            this.out.flush();
+        }
+        catch (IOException ex) {
+            // a fechar de qualquer forma
+        }
+        finally {
+            this.socket.close();
+        }
+    }
+
+    private void open(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    // Handshake TLS que confirma que o certificado é do servidor indicado
+    // (e não apenas de alguém com um certificado válido), antes de enviar a
+    // palavra-passe em AUTH PLAIN
+    private static void handshake(SSLSocket socket, String host) throws IOException {
+        SSLParameters params = socket.getSSLParameters();
+        params.setEndpointIdentificationAlgorithm("HTTPS");
+        if (host.indexOf(':') < 0 && !host.matches("[0-9.]+")) {
+            // SNI só com nomes, nunca com endereços IP
+            params.setServerNames(List.of(new SNIHostName(host)));
+        }
+        socket.setSSLParameters(params);
+        socket.startHandshake();
+    }
+
+    private void ehlo() throws IOException {
+        command("EHLO " + localHostName());
+        this.pipelining = false;
+        this.out.flush();
+        String line;
+        do {
+            line = readLine();
+            this.lastCode = parseCode(line);
+            if (line.length() > 4 && line.substring(4).trim().toUpperCase(Locale.ROOT).equals("PIPELINING")) {
+                this.pipelining = true;
+            }
+        } while (line.length() > 3 && line.charAt(3) == '-');
+        if (this.lastCode != 250) {
+            throw new SmtpException(this.lastCode, line.length() > 4 ? line.substring(4) : "");
+        }
+    }
+
+    private void command(String cmd) throws IOException {
+        this.out.write(cmd.getBytes(StandardCharsets.UTF_8));
+        this.out.write(CRLF);
+    }
+
+    private void expect(int code) throws IOException {
+        this.out.flush();
+        var failure = reply(code, null);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Lê uma resposta (possivelmente com várias linhas); devolve o primeiro
+    // erro entre o anterior (failure) e este
+    private SmtpException reply(int code, SmtpException failure) throws IOException {
+        String line;
+        do {
+            line = readLine();
+        } while (line.length() > 3 && line.charAt(3) == '-');
+        this.lastCode = parseCode(line);
+        // 251: "User not local; will forward"
+        boolean ok = this.lastCode == code || (code == 250 && this.lastCode == 251);
+        if (ok || failure != null) {
+            return failure;
+        }
+        return new SmtpException(this.lastCode, line.length() > 4 ? line.substring(4) : "");
+    }
+
+    private static int parseCode(String line) throws IOException {
+        if (line.length() < 3) {
+            throw new IOException("Invalid SMTP reply: " + line);
+        }
+        try {
+            return Integer.parseInt(line.substring(0, 3));
+        }
+        catch (NumberFormatException ex) {
+            throw new IOException("Invalid SMTP reply: " + line);
+        }
+    }
+
+    private String readLine() throws IOException {
+        this.line.reset();
+        while (true) {
+            int b = this.in.read();
+            if (b < 0) {
+                throw new EOFException("SMTP server closed the connection");
+            }
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                this.line.write(b);
+            }
+        }
+        return this.line.toString(StandardCharsets.UTF_8);
+    }
+
+    private byte[] compose(String to, String subject, String text) {
+        var msg = new StringBuilder(256 + text.length() * 4 / 3);
+        msg.append("Date: ").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now())).append("\r\n");
+        msg.append("From: <").append(this.settings.getSourceAddr()).append(">\r\n");
+        msg.append("To: <").append(to).append(">\r\n");
+        msg.append("Subject: ").append(encodeHeader(subject)).append("\r\n");
+        msg.append("MIME-Version: 1.0\r\n");
+        msg.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        msg.append("Content-Transfer-Encoding: base64\r\n\r\n");
+        String body = Base64.getMimeEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+        msg.append(body);
+        if (!body.isEmpty()) {
+            msg.append("\r\n");
+        }
+        return msg.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Cabeçalhos só podem ser ASCII: os restantes vão codificados (RFC 2047)
+    private static String encodeHeader(String value) {
+        for (int i = 0; i < value.length(); i += 1) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || c < 0x20) {
+                return "=?UTF-8?B?" + base64(value) + "?=";
+            }
+        }
+        return value;
+    }
+
+    private static String base64(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getCanonicalHostName();
+        }
+        catch (IOException ex) {
+            return "localhost";
+        }
+    }
+
+    private static final byte[] CRLF = { '\r', '\n' };
+    private static final int TIMEOUT_MILLIS = 30_000;
+
+    private final SmtpSettings settings;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private boolean pipelining;
+    private int lastCode;
+    private int sent;
+}
@@ -0,0 +1,24 @@
+package classify;
+
+import java.io.IOException;
+
+// Resposta de erro de um servidor SMTP. Os códigos 4xx são temporários
+// (vale a pena repetir mais tarde); os 5xx são definitivos.
+public class SmtpException extends IOException {
+    public SmtpException(int code, String errMsg) {
+        super(code + " " + errMsg);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public boolean isPermanent() {
+        return code >= 500;
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+}
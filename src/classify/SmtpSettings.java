@@ -0,0 +1,75 @@
+package classify;
+
+// Servidor SMTP e remetente usados pelo BulkMailer. As portas por omissão
+// são as de docs/EmailSender.txt: 25 (PLAIN), 465 (TLS) e 587 (START_TLS).
+public class SmtpSettings {
+
+    public enum SecurityMode {
+        PLAIN,
+        TLS,
+        START_TLS
+    }
+
+    public SmtpSettings(
+            String smtpServer,
+            int smtpPort,
+            String sourceAddr,
+            String user,
+            String password,
+            SecurityMode securityMode
+    ) {
+        Utils.validateEmail(sourceAddr);
+        if (!(smtpPort >= 1 && smtpPort <= 65535)) {
+            throw new IllegalArgumentException("Invalid port number: " + smtpPort);
+        }
+        this.smtpServer = smtpServer;
+        this.smtpPort = smtpPort;
+        this.sourceAddr = sourceAddr;
+        this.user = user;
+        this.password = password;
+        this.securityMode = securityMode;
+    }
+
+    // Autenticação com o próprio endereço do remetente
+    public SmtpSettings(String smtpServer, String sourceAddr, String password, SecurityMode securityMode) {
+        this(smtpServer, defaultPort(securityMode), sourceAddr, sourceAddr, password, securityMode);
+    }
+
+    public static int defaultPort(SecurityMode securityMode) {
+        return   securityMode == SecurityMode.PLAIN ? 25
+               : securityMode == SecurityMode.TLS ? 465
+               : 587;
+    }
+
+    public String getSmtpServer() {
+        return smtpServer;
+    }
+
+    public int getSmtpPort() {
+        return smtpPort;
+    }
+
+    public String getSourceAddr() {
+        return sourceAddr;
+    }
+
+    // null: sem autenticação
+    public String getUser() {
+        return user;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public SecurityMode getSecurityMode() {
+        return securityMode;
+    }
+
+    private final String smtpServer;
+    private final int smtpPort;
+    private final String sourceAddr;
+    private final String user;
+    private final String password;
+    private final SecurityMode securityMode;
+}
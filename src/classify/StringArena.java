@@ -0,0 +1,144 @@
+package classify;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Lista de strings guardadas como UTF-8 num único byte[], sem um objecto
+// String por entrada: cada entrada é o comprimento (1 a 3 bytes, 7 bits por
+// byte) seguido dos bytes, e starts[id] é a posição onde começa. Não há
+// tabela de hash nem eliminação de repetidos: numa turma, os emails são
+// todos diferentes e os nomes quase sempre, e uma tabela custaria mais do
+// que pouparia. As pesquisas (ex: o índice de emails de
+// ColumnarStudentStore) usam hashAt e equalsAt, que lêem os bytes aqui.
+class StringArena {
+
+    StringArena(int initialCapacity) {
+        this.starts = new int[Math.max(initialCapacity, 16)];
+        this.data = new byte[this.starts.length * 16];
+    }
+
+    // Acrescenta str; devolve o seu identificador (0, 1, 2, ...)
+    int add(String str) {
+        if (this.count == this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, this.starts.length * 2);
+        }
+        this.starts[this.count] = append(str.getBytes(StandardCharsets.UTF_8));
+        return this.count++;
+    }
+
+    // Substitui a entrada id; os bytes anteriores ficam por usar até
+    // trimToSize
+    void set(int id, String str) {
+        this.starts[id] = append(str.getBytes(StandardCharsets.UTF_8));
+    }
+
+    String get(int id) {
+        int start = this.starts[id];
+        int len = length(start);
+        int pos = start + prefixSize(len);
+        return new String(this.data, pos, len, StandardCharsets.UTF_8);
+    }
+
+    boolean equalsAt(int id, byte[] bytes) {
+        int start = this.starts[id];
+        int len = length(start);
+        int pos = start + prefixSize(len);
+        return Arrays.equals(this.data, pos, pos + len, bytes, 0, bytes.length);
+    }
+
+    // O mesmo que hash(bytes) para os bytes da entrada id
+    int hashAt(int id) {
+        int start = this.starts[id];
+        int len = length(start);
+        int pos = start + prefixSize(len);
+        return hash(this.data, pos, pos + len);
+    }
+
+    int size() {
+        return this.count;
+    }
+
+    // Liberta a capacidade não usada e os bytes de entradas substituídas
+    // (ex: no fim de uma importação)
+    void trimToSize() {
+        int used = 0;
+        for (int id = 0; id < this.count; id += 1) {
+            used += entryLength(this.starts[id]);
+        }
+        var compact = new byte[used];
+        int end = 0;
+        for (int id = 0; id < this.count; id += 1) {
+            int start = this.starts[id];
+            int len = entryLength(start);
+            System.arraycopy(this.data, start, compact, end, len);
+            this.starts[id] = end;
+            end += len;
+        }
+        this.data = compact;
+        this.end = end;
+        this.starts = Arrays.copyOf(this.starts, Math.max(this.count, 1));
+    }
+
+    static int hash(byte[] bytes) {
+        return hash(bytes, 0, bytes.length);
+    }
+
+    private static int hash(byte[] bytes, int start, int end) {
+        int h = 1;
+        for (int i = start; i < end; i += 1) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    // Devolve a posição da nova entrada
+    private int append(byte[] bytes) {
+        if (bytes.length > MAX_LENGTH) {
+            throw new IllegalArgumentException("String too long: " + bytes.length + " bytes");
+        }
+        int start = this.end;
+        int needed = start + 3 + bytes.length;
+        if (needed > this.data.length) {
+            this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, needed));
+        }
+        int pos = start;
+        int len = bytes.length;
+        while (len >= 0x80) {
+            this.data[pos++] = (byte) (len | 0x80);
+            len >>>= 7;
+        }
+        this.data[pos++] = (byte) len;
+        System.arraycopy(bytes, 0, this.data, pos, bytes.length);
+        this.end = pos + bytes.length;
+        return start;
+    }
+
+    // Comprimento, incluindo o prefixo, da entrada que começa em start
+    private int entryLength(int start) {
+        int len = length(start);
+        return prefixSize(len) + len;
+    }
+
+    // Número de bytes da string que começa em start
+    private int length(int start) {
+        int len = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = this.data[start++];
+            len |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return len;
+            }
+        }
+    }
+
+    private static int prefixSize(int len) {
+        return len < 0x80 ? 1 : len < 0x4000 ? 2 : 3;
+    }
+
+    private static final int MAX_LENGTH = (1 << 21) - 1;    // 3 bytes de comprimento
+
+    private byte[] data;
+    private int end;
+    private int[] starts;    // identificador -> posição em data
+    private int count;
+}
@@ -11,35 +11,60 @@ public class Student {
             String grade,
             String status
     ) {
-        if (!name.matches("^[a-zA-Z]{2,} [a-zA-Z]{2,}$")) {
-            // regex para validar dois ou mais nomes:
-            // name.matches("^[a-zA-Z]{2,}( [a-zA-Z]{2,})+$")
-            throw new IllegalArgumentException("Invalid name " + name);
-        }
-
-        Utils.validateEmail(email);
-
-        // Validar data (apenas fulanos nascidos após 1920)
+        this(name, email, LocalDate.parse(birthDate), Double.parseDouble(grade), status);
+    }
 
-        this.grade = Double.parseDouble(grade);
-        if (this.grade < 0 || this.grade > 200) {
-            throw new IllegalArgumentException("Invalid grade " + grade);
+    // Usado pelo leitor de CSV, que já converte data e classificação
+    Student(
+            String name,
+            String email,
+            LocalDate birthDate,
+            double grade,
+            String status
+    ) {
+        // nome, email, classificação e estatuto (ver StudentValidator)
+        String problem = StudentValidator.check(name, email, grade, status);
+        if (problem != null) {
+            throw new IllegalArgumentException(problem);
         }
 
-        if (!Arrays.asList(VALID_STUDENT_STATUS).contains(status)) {
-            throw new IllegalArgumentException("Invalid status " + status);
-        }
+        // Validar data (apenas fulanos nascidos após 1920)
 
         this.name = name;
         this.email = email;
-        this.birthDate = LocalDate.parse(birthDate);
-        this.status = status;
+        this.birthDate = birthDate;
+        this.grade = grade;
+        this.status = StudentStatus.of(status).name();
+    }
+
+    // Dados já validados anteriormente (ex: lidos de um StudentSnapshot,
+    // protegido por checksum, ou por StudentValidator.check): não volta a
+    // validar
+    static Student restore(
+            String name,
+            String email,
+            LocalDate birthDate,
+            double grade,
+            String status
+    ) {
+        var st = new Student();
+        st.name = name;
+        st.email = email;
+        st.birthDate = birthDate;
+        st.grade = grade;
+        st.status = status;
+        return st;
+    }
+
+    // Para vistas sobre outros armazenamentos (ex: ColumnarStudentStore),
+    // que redefinem os getters
+    Student() {
     }
 
     @Override
     public String toString() {
         return String.format("NOME: %s  EMAIL: %s  CLASS.QUAL: %s",
-                             this.name, this.email, this.getTextualGrade());
+                             this.getName(), this.getEmail(), this.getTextualGrade());
     }
 
     public String getName() {
@@ -47,7 +72,23 @@ public class Student {
     }
 
     public void setEmail(String email) {
+        checkMutable();
         Utils.validateEmail(email);
+        if (this.owner != null) {
+            // primeiro em todas, para não ficar num índice e não noutro
+            this.owner.checkEmail(this, email);
+            if (this.otherOwners != null) {
+                for (var owner : this.otherOwners) {
+                    owner.checkEmail(this, email);
+                }
+            }
+            this.owner.emailChanging(this, email);
+            if (this.otherOwners != null) {
+                for (var owner : this.otherOwners) {
+                    owner.emailChanging(this, email);
+                }
+            }
+        }
         this.email = email;
     }
 
@@ -63,20 +104,81 @@ public class Student {
         return grade;
     }
 
+    public void setGrade(double grade) {
+        checkMutable();
+        validateGrade(grade);
+        if (this.owner != null) {
+            this.owner.gradeChanging(this, grade);
+            if (this.otherOwners != null) {
+                for (var owner : this.otherOwners) {
+                    owner.gradeChanging(this, grade);
+                }
+            }
+        }
+        this.grade = grade;
+    }
+
     public String getTextualGrade() {
-        return Student.classifyGrade(this.grade);
+        return GradeBands.get().name(getGradeBand());
+    }
+
+    // Posição da classificação qualitativa em GradeBands.get()
+    public int getGradeBand() {
+        return GradeBands.get().band(this.getGrade());
     }
 
     public String getStatus() {
         return status;
     }
 
+    public StudentStatus getStudentStatus() {
+        return StudentStatus.of(getStatus());
+    }
+
+    public void setStatus(String status) {
+        checkMutable();
+        int code = validateStatus(status);
+        if (this.owner != null) {
+            this.owner.statusChanging(this, status);
+            if (this.otherOwners != null) {
+                for (var owner : this.otherOwners) {
+                    owner.statusChanging(this, status);
+                }
+            }
+        }
+        this.status = VALID_STUDENT_STATUS[code];
+    }
+
+    private void checkMutable() {
+        if (this.frozen) {
+            throw new UnsupportedOperationException("Student is read-only: " + this.email);
+        }
+    }
+
+    static void validateGrade(double grade) {
+        if (!(grade >= 0 && grade <= 200)) {
+            throw new IllegalArgumentException("Invalid grade " + grade);
+        }
+    }
+
+    static int validateStatus(String status) {
+        int code = statusCode(status);
+        if (code < 0) {
+            throw new IllegalArgumentException("Invalid status " + status);
+        }
+        return code;
+    }
+
+    // Posição de status em VALID_STUDENT_STATUS, ou -1
+    static int statusCode(String status) {
+        var value = StudentStatus.of(status);
+        return value == null ? -1 : value.ordinal();
+    }
+
+    // Ver GradeBands (por omissão: Excelente a partir de 180, Bom de 150,
+    // Suficiente de 120)
     public static String classifyGrade(double grade) {
-        return   grade >= 180 ? "Excelente"
-               : grade >= 150 ? "Bom"
-               : grade >= 120 ? "Suficiente"
-               : "Insuficiente"
-               ;
+        return GradeBands.get().classify(grade);
     }
 
     private String name;
@@ -85,6 +187,69 @@ public class Student {
     private double grade;
     private String status;
 
+    // Colecções onde o estudante foi inserido (mantêm os índices
+    // actualizados): a primeira em owner, as outras (raras) em otherOwners
+    StudentCollection owner;
+    StudentCollection[] otherOwners;
+
+    boolean belongsTo(StudentCollection students) {
+        if (this.owner == students) {
+            return students != null;
+        }
+        if (this.otherOwners != null) {
+            for (var owner : this.otherOwners) {
+                if (owner == students) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    void attach(StudentCollection students) {
+        if (this.owner == null) {
+            this.owner = students;
+        }
+        else if (this.otherOwners == null) {
+            this.otherOwners = new StudentCollection[] {students};
+        }
+        else {
+            var owners = Arrays.copyOf(this.otherOwners, this.otherOwners.length + 1);
+            owners[owners.length - 1] = students;
+            this.otherOwners = owners;
+        }
+    }
+
+    void detach(StudentCollection students) {
+        if (this.owner == students) {
+            if (this.otherOwners == null) {
+                this.owner = null;
+                return;
+            }
+            this.owner = this.otherOwners[0];
+            students = this.owner;
+        }
+        int n = this.otherOwners == null ? 0 : this.otherOwners.length;
+        for (int i = 0; i < n; i += 1) {
+            if (this.otherOwners[i] == students) {
+                if (n == 1) {
+                    this.otherOwners = null;
+                }
+                else {
+                    var owners = new StudentCollection[n - 1];
+                    System.arraycopy(this.otherOwners, 0, owners, 0, i);
+                    System.arraycopy(this.otherOwners, i + 1, owners, i, n - i - 1);
+                    this.otherOwners = owners;
+                }
+                return;
+            }
+        }
+    }
+
+    // Versão imutável partilhada entre threads (ver ConcurrentStudentCollection)
+    boolean frozen;
+
+    // Pela ordem de StudentStatus
     public static final String[] VALID_STUDENT_STATUS = {
             "REG",
             "TRAB",
@@ -1,60 +1,425 @@
 package classify;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import static java.lang.System.out;
 
 
 public class StudentCollection implements Iterable<Student> {
+    public StudentCollection() {
+        this.students = new ArrayList<>();
+        this.byEmail = new HashMap<>();
+        this.readOnly = false;
+        this.gradeIndex = new GradeIndex(this.students);
+        this.orderIndex = new OrderIndex(this.students);
+        this.stats = new GradeStatistics();
+    }
+
+    // Colecção apenas de leitura com o resultado de uma pesquisa. Os
+    // estudantes continuam a pertencer à colecção original.
+    private StudentCollection(List<Student> found) {
+        this.students = Collections.unmodifiableList(found);
+        this.byEmail = null;
+        this.readOnly = true;
+        this.gradeIndex = new GradeIndex(this.students);
+        this.orderIndex = new OrderIndex(this.students);
+    }
+
+    // O mesmo estudante pode estar em várias colecções: as alterações feitas
+    // com os setters de Student actualizam os índices de todas e são
+    // notificadas aos listeners de cada uma
     public void add(Student st) {
-        if (this.searchByEmail(st.getEmail()) != null) {
+        long start = Metrics.start();
+        if (this.readOnly) {
+            Metrics.ADD.failed(start);
+            throw new UnsupportedOperationException("Search results are read-only");
+        }
+        String key = emailKey(st.getEmail());
+        if (this.byEmail.putIfAbsent(key, st) != null) {
+            Metrics.ADD.failed(start);
             throw new DuplicateValueException("Duplicate email: " + st.getEmail());
         }
         this.students.add(st);
+        this.gradeIndex.invalidate();
+        this.orderIndex.invalidate();
+        this.stats.add(st);
+        if (this.nameIndex != null) {
+            this.nameIndex.add(st);
+        }
+        st.attach(this);
+        for (var listener : this.listeners) {
+            listener.studentAdded(st);
+        }
+        Metrics.ADD.stop(start);
     }
 
-    public Student searchByEmail(String email) {
-        for (Student st : this.students) {
-            if (st.getEmail().toLowerCase().equals(email.toLowerCase())) {
-                return st;
+    public boolean remove(Student st) {
+        checkWritable();
+        if (!st.belongsTo(this)) {
+            return false;
+        }
+        this.byEmail.remove(emailKey(st.getEmail()));
+        this.students.remove(st);
+        this.gradeIndex.invalidate();
+        this.orderIndex.invalidate();
+        this.stats.remove(st);
+        if (this.nameIndex != null) {
+            this.nameIndex.remove(st);
+        }
+        st.detach(this);
+        for (var listener : this.listeners) {
+            listener.studentRemoved(st);
+        }
+        return true;
+    }
+
+    // Remove vários estudantes numa só passagem pela lista (O(n), em vez de
+    // O(n) por estudante com remove). Devolve quantos foram removidos.
+    public int removeAll(Collection<Student> toRemove) {
+        checkWritable();
+        Set<Student> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Student st : toRemove) {
+            if (st.belongsTo(this)) {
+                removed.add(st);
+            }
+        }
+        if (removed.isEmpty()) {
+            return 0;
+        }
+        this.students.removeIf(removed::contains);
+        this.gradeIndex.invalidate();
+        this.orderIndex.invalidate();
+        for (Student st : removed) {
+            this.byEmail.remove(emailKey(st.getEmail()));
+            this.stats.remove(st);
+            if (this.nameIndex != null) {
+                this.nameIndex.remove(st);
+            }
+            st.detach(this);
+            for (var listener : this.listeners) {
+                listener.studentRemoved(st);
             }
         }
-        return null;
+        return removed.size();
     }
 
-    public StudentCollection searchByName(String name) {
-        StudentCollection found = new StudentCollection();
-        for (Student st : this.students) {
-            if (st.getName().toLowerCase().contains(name.toLowerCase())) {
-                found.add(st);
+    // Substitui cada estudante (chave) desta colecção pelo estudante
+    // correspondente, na mesma posição, numa só passagem pela lista (ex:
+    // RosterDiff, quando o nome ou a data mudam, que não têm setters). Para
+    // os listeners é uma remoção seguida de uma inserção. Emails que já
+    // existam noutro estudante dão DuplicateValueException, sem alterar
+    // nada. Devolve quantos foram substituídos.
+    public int replaceAll(Map<Student, Student> replacements) {
+        checkWritable();
+        Map<Student, Student> found = new IdentityHashMap<>();
+        Set<String> newKeys = new HashSet<>();
+        for (var entry : replacements.entrySet()) {
+            Student old = entry.getKey();
+            Student st = entry.getValue();
+            if (!old.belongsTo(this)) {
+                continue;
+            }
+            String key = emailKey(st.getEmail());
+            Student other = this.byEmail.get(key);
+            if ((other != null && other != old) || !newKeys.add(key)) {
+                throw new DuplicateValueException("Duplicate email: " + st.getEmail());
+            }
+            found.put(old, st);
+        }
+        if (found.isEmpty()) {
+            return 0;
+        }
+        this.students.replaceAll(st -> found.getOrDefault(st, st));
+        this.gradeIndex.invalidate();
+        this.orderIndex.invalidate();
+        for (var entry : found.entrySet()) {
+            Student old = entry.getKey();
+            Student st = entry.getValue();
+            this.byEmail.remove(emailKey(old.getEmail()));
+            this.byEmail.put(emailKey(st.getEmail()), st);
+            this.stats.remove(old);
+            this.stats.add(st);
+            if (this.nameIndex != null) {
+                this.nameIndex.remove(old);
+                this.nameIndex.add(st);
+            }
+            old.detach(this);
+            st.attach(this);
+            for (var listener : this.listeners) {
+                listener.studentRemoved(old);
+                listener.studentAdded(st);
             }
         }
+        return found.size();
+    }
+
+    public void addListener(StudentCollectionListener listener) {
+        checkWritable();
+        this.listeners.add(listener);
+    }
+
+    public void removeListener(StudentCollectionListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    public Student searchByEmail(String email) {
+        long start = Metrics.start();
+        Student found = emailIndex().get(emailKey(email));
+        Metrics.SEARCH_BY_EMAIL.stop(start, found == null ? 0 : 1);
+        return found;
+    }
+
+    public StudentCollection searchByName(String name) {
+        return searchByName(name, false);
+    }
+
+    // Com ignoreAccents, "Joao" encontra "João" e vice-versa
+    public StudentCollection searchByName(String name, boolean ignoreAccents) {
+        long start = Metrics.start();
+        var found = new StudentCollection(nameIndex().contains(name, ignoreAccents));
+        Metrics.SEARCH_BY_NAME.stop(start, found.size());
+        return found;
+    }
+
+    // Por ordem alfabética, sem distinguir maiúsculas nem acentos
+    public StudentCollection searchByNamePrefix(String prefix) {
+        long start = Metrics.start();
+        var found = new StudentCollection(nameIndex().startsWith(prefix));
+        Metrics.SEARCH_BY_NAME_PREFIX.stop(start, found.size());
         return found;
     }
 
+    // Vista (sem cópia) sobre o índice ordenado: O(log n)
     public StudentCollection searchByGrades(double minGrade, double maxGrade) {
-        StudentCollection found = new StudentCollection();
-        for (Student st : this.students) {
-            double grade = st.getGrade();
-            if (grade >= minGrade && grade <= maxGrade) {
-                found.add(st);
-            }
-        }
+        long start = Metrics.start();
+        var found = new StudentCollection(this.gradeIndex.range(minGrade, maxGrade));
+        Metrics.SEARCH_BY_GRADES.stop(start, found.size());
         return found;
     }
 
+    // Pesquisa com vários critérios (ver StudentQuery), ex:
+    //     students.query().status(StudentStatus.BOLS).grades(120, 150)
+    //             .nameContains("Al").orderBy(StudentOrder.NAME).limit(25).list()
+    public StudentQuery query() {
+        return new StudentQuery(this);
+    }
+
+    public int countByGrades(double minGrade, double maxGrade) {
+        return this.gradeIndex.count(minGrade, maxGrade);
+    }
+
+    // Os k estudantes com melhor classificação, por ordem decrescente
+    public StudentCollection topGrades(int k) {
+        return new StudentCollection(this.gradeIndex.top(k));
+    }
+
+    // Número de estudantes com classificação inferior a grade
+    public int rankOf(double grade) {
+        return this.gradeIndex.rank(grade);
+    }
+
+    // Classificação correspondente ao percentil p (0 a 100)
+    public double percentile(double p) {
+        return this.gradeIndex.percentile(p);
+    }
+
+    // Os estudantes na posição cursor (0 para a primeira página) e seguintes
+    // da ordem pedida, no máximo pageSize. Só a página é copiada: as ordens
+    // por nome, email e classificação são calculadas uma vez e reutilizadas
+    // por todas as páginas até à alteração seguinte.
+    public StudentPage page(StudentOrder order, int cursor, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Invalid page size " + pageSize);
+        }
+        int total = this.students.size();
+        if (cursor < 0 || (cursor > 0 && cursor >= total)) {
+            throw new IndexOutOfBoundsException("Invalid cursor " + cursor + " (size " + total + ")");
+        }
+        int end = Math.min(total, cursor + pageSize);
+        List<Student> rows;
+        switch (order) {
+            case NAME:
+                rows = Arrays.asList(this.orderIndex.byName()).subList(cursor, end);
+                break;
+            case EMAIL:
+                rows = Arrays.asList(this.orderIndex.byEmail()).subList(cursor, end);
+                break;
+            case GRADE:
+                rows = this.gradeIndex.top(end).subList(cursor, end);
+                break;
+            default:
+                rows = this.students.subList(cursor, end);
+        }
+        // cópia: a página continua válida se a colecção mudar depois
+        return new StudentPage(List.copyOf(rows), order, cursor, pageSize, total);
+    }
+
+    public int size() {
+        return this.students.size();
+    }
+
     public boolean isEmpty() {
         return this.students.isEmpty();
     }
 
+    // O(1): mantida incrementalmente (ver GradeStatistics)
     public double average() {
-        double sum = 0;
-        for (Student st : this.students) {
-            sum += st.getGrade();
+        long start = Metrics.start();
+        double mean = statistics().getMean();
+        Metrics.AVERAGE.stop(start);
+        return mean;
+    }
+
+    public GradeStatistics statistics() {
+        var stats = this.stats;
+        return stats != null ? stats : buildStatistics();
+    }
+
+    // Chamados por Student.setEmail antes de alterar o email, para impedir
+    // emails duplicados (checkEmail, em todas as colecções do estudante) e
+    // manter o índice coerente (emailChanging)
+    void checkEmail(Student st, String newEmail) {
+        var other = this.byEmail.get(emailKey(newEmail));
+        if (other != null && other != st) {
+            throw new DuplicateValueException("Duplicate email: " + newEmail);
+        }
+    }
+
+    void emailChanging(Student st, String newEmail) {
+        String oldKey = emailKey(st.getEmail());
+        String newKey = emailKey(newEmail);
+        if (!oldKey.equals(newKey)) {
+            this.byEmail.put(newKey, st);
+            this.byEmail.remove(oldKey);
+        }
+        this.orderIndex.emailChanged();
+        for (var listener : this.listeners) {
+            listener.emailChanged(st, st.getEmail(), newEmail);
+        }
+    }
+
+    // Chamados por Student.setGrade/setStatus antes da alteração
+    void gradeChanging(Student st, double newGrade) {
+        this.gradeIndex.invalidate();
+        this.stats.gradeChanged(st, st.getGrade(), newGrade);
+        for (var listener : this.listeners) {
+            listener.gradeChanged(st, st.getGrade(), newGrade);
+        }
+    }
+
+    void statusChanging(Student st, String newStatus) {
+        this.stats.statusChanged(st, st.getStatus(), newStatus);
+        for (var listener : this.listeners) {
+            listener.statusChanged(st, st.getStatus(), newStatus);
+        }
+    }
+
+    // As alterações entre beginBatch e endBatch são notificadas aos
+    // listeners como um só bloco (ver BatchUpdate)
+    void beginBatch() {
+        checkWritable();
+        for (var listener : this.listeners) {
+            listener.batchStarted();
+        }
+    }
+
+    void endBatch() {
+        for (var listener : this.listeners) {
+            listener.batchFinished();
+        }
+    }
+
+    // Os emails válidos são só minúsculas (ver Utils.EMAIL_REGEX), pelo que
+    // toLowerCase devolve a própria string e não aloca nada no caso comum
+    static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    // Para StudentQuery: a lista e os índices desta colecção
+
+    static StudentCollection view(List<Student> found) {
+        return new StudentCollection(found);
+    }
+
+    List<Student> rows() {
+        return this.students;
+    }
+
+    GradeIndex gradeIndex() {
+        return this.gradeIndex;
+    }
+
+    OrderIndex orderIndex() {
+        return this.orderIndex;
+    }
+
+    Map<String, Student> emailIndex() {
+        if (this.byEmail != null) {
+            return this.byEmail;
+        }
+        var index = this.viewByEmail;
+        return index != null ? index : buildViewEmailIndex();
+    }
+
+    // O que é construído na primeira consulta é construído sob lock e
+    // publicado em campos volatile, para que leitores em simultâneo (ex:
+    // StudentServer, sob um read lock) não vejam nada a meio
+    private synchronized GradeStatistics buildStatistics() {
+        if (this.stats == null) {
+            // resultado de pesquisa: calculadas na primeira consulta
+            var stats = new GradeStatistics(this.gradeIndex);
+            for (Student st : this.students) {
+                stats.add(st);
+            }
+            this.stats = stats;
+        }
+        return this.stats;
+    }
+
+    // Resultados de pesquisa: índice construído apenas se for usado
+    private synchronized Map<String, Student> buildViewEmailIndex() {
+        if (this.viewByEmail == null) {
+            Map<String, Student> index = new HashMap<>();
+            for (Student st : this.students) {
+                index.putIfAbsent(emailKey(st.getEmail()), st);
+            }
+            this.viewByEmail = index;
+        }
+        return this.viewByEmail;
+    }
+
+    // Construído na primeira pesquisa por nome e depois mantido em add/remove
+    NameIndex nameIndex() {
+        var index = this.nameIndex;
+        return index != null ? index : buildNameIndex();
+    }
+
+    private synchronized NameIndex buildNameIndex() {
+        if (this.nameIndex == null) {
+            var index = new NameIndex();
+            for (Student st : this.students) {
+                index.add(st);
+            }
+            this.nameIndex = index;
+        }
+        return this.nameIndex;
+    }
+
+    private void checkWritable() {
+        if (this.readOnly) {
+            throw new UnsupportedOperationException("Search results are read-only");
         }
-        return sum / students.size();
     }
 
     // Iterador
@@ -90,6 +455,14 @@ public class StudentCollection implements Iterable<Student> {
         }
     }
 
-    private List<Student> students = new ArrayList();    // equivalente ao vector de C++
+    private final List<Student> students;    // equivalente ao vector de C++
+    private final Map<String, Student> byEmail;    // email (minúsculas) -> estudante
+    private volatile Map<String, Student> viewByEmail;
+    private final boolean readOnly;
+    private final GradeIndex gradeIndex;
+    private final OrderIndex orderIndex;
+    private volatile NameIndex nameIndex;
+    private volatile GradeStatistics stats;
+    private final List<StudentCollectionListener> listeners = new ArrayList<>();
 
 }
@@ -0,0 +1,30 @@
+package classify;
+
+// Notificado das alterações a uma StudentCollection (inserções, remoções e
+// alterações feitas pelos setters de Student). As alterações de campos são
+// notificadas depois de validadas e antes de o estudante ser alterado, com o
+// valor antigo e o novo. As alterações feitas entre batchStarted e
+// batchFinished (ex: BatchUpdate) formam um só bloco: tudo ou nada.
+public interface StudentCollectionListener {
+
+    default void studentAdded(Student st) {
+    }
+
+    default void studentRemoved(Student st) {
+    }
+
+    default void emailChanged(Student st, String oldEmail, String newEmail) {
+    }
+
+    default void gradeChanged(Student st, double oldGrade, double newGrade) {
+    }
+
+    default void statusChanged(Student st, String oldStatus, String newStatus) {
+    }
+
+    default void batchStarted() {
+    }
+
+    default void batchFinished() {
+    }
+}
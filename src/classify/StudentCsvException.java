@@ -0,0 +1,23 @@
+package classify;
+
+public class StudentCsvException extends IllegalArgumentException {
+    public StudentCsvException(long lineNumber, String errMsg) {
+        super("Line " + lineNumber + ": " + errMsg);
+        this.lineNumber = lineNumber;
+        this.reason = errMsg;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    // Mensagem sem o número da linha
+    public String getReason() {
+        return reason;
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final long lineNumber;
+    private final String reason;
+}
@@ -0,0 +1,312 @@
+package classify;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Leitor de ficheiros de turma (NOME,EMAIL,DATA,CLASSIFICAÇÃO,ESTATUTO).
+// Os campos são separados directamente nos bytes lidos, sem split nem
+// strip; data, classificação e estatuto são convertidos sem criar Strings.
+// Linhas inválidas são entregues ao errorHandler com o número da linha.
+public class StudentCsvReader {
+
+    public StudentCsvReader(InputStream in) {
+        this.in = in;
+    }
+
+    // Lê todas as linhas, entregando cada estudante a sink. Devolve o número
+    // de estudantes lidos. Erros de formato/validação (inclusive os
+    // lançados por sink, ex: email duplicado) vão para errorHandler.
+    public long read(
+            Consumer<Student> sink,
+            Consumer<StudentCsvException> errorHandler
+    ) throws IOException {
+        var buf = new byte[BUFFER_SIZE];
+        var parser = new Parser(sink, errorHandler);
+        int start = 0;
+        int end = 0;
+        while (true) {
+            if (end == buf.length) {
+                if (start == 0) {
+                    // linha maior do que o buffer
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                else {
+                    System.arraycopy(buf, start, buf, 0, end - start);
+                    end -= start;
+                    start = 0;
+                }
+            }
+            int n = this.in.read(buf, end, buf.length - end);
+            if (n < 0) {
+                parser.parse(ByteBuffer.wrap(buf), start, end, true);
+                return parser.rows;
+            }
+            end += n;
+            start = parser.parse(ByteBuffer.wrap(buf), start, end, false);
+        }
+    }
+
+    // Leitura em que o primeiro erro interrompe a leitura
+    public long read(Consumer<Student> sink) throws IOException {
+        return read(sink, ex -> { throw ex; });
+    }
+
+    // Separa e converte as linhas de um bloco de bytes. Pode ser usado sobre
+    // qualquer ByteBuffer (ex: uma zona de um ficheiro mapeado em memória).
+    static class Parser {
+
+        Parser(Consumer<Student> sink, Consumer<StudentCsvException> errorHandler) {
+            this(sink, errorHandler, 1);
+        }
+
+        Parser(
+                Consumer<Student> sink,
+                Consumer<StudentCsvException> errorHandler,
+                long firstLine
+        ) {
+            this.sink = sink;
+            this.errorHandler = errorHandler;
+            this.lineNumber = firstLine;
+        }
+
+        // Processa as linhas completas entre from e to e devolve a posição a
+        // seguir à última processada. Com endOfInput, a última linha não
+        // precisa de terminar em '\n'.
+        int parse(ByteBuffer buf, int from, int to, boolean endOfInput) {
+            int lineStart = from;
+            for (int i = from; i < to; i += 1) {
+                if (buf.get(i) == '\n') {
+                    parseLine(buf, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (endOfInput && lineStart < to) {
+                parseLine(buf, lineStart, to);
+                lineStart = to;
+            }
+            return lineStart;
+        }
+
+        private void parseLine(ByteBuffer buf, int start, int end) {
+            long line = this.lineNumber;
+            this.lineNumber += 1;
+            if (end > start && buf.get(end - 1) == '\r') {
+                end -= 1;
+            }
+            if (isBlank(buf, start, end)) {
+                return;
+            }
+
+            int field = 0;
+            int fieldStart = start;
+            for (int i = start; i <= end && field < FIELD_COUNT; i += 1) {
+                if (i == end || buf.get(i) == ',') {
+                    this.fieldStarts[field] = fieldStart;
+                    this.fieldEnds[field] = i;
+                    field += 1;
+                    fieldStart = i + 1;
+                }
+            }
+            if (field < FIELD_COUNT) {
+                error(line, "Expected " + FIELD_COUNT + " fields, found " + field);
+                return;
+            }
+            // campos a mais são ignorados, como no antigo split(",")
+
+            // campos inválidos são registados sem criar uma excepção por linha
+            // (error fica fora do try: um errorHandler que lança a
+            // StudentCsvException não pode voltar a ser apanhado aqui)
+            Student student = null;
+            String problem;
+            try {
+                String name = text(buf, 0);
+                String email = text(buf, 1);
+                LocalDate birthDate = date(buf, 2);
+                double grade = grade(buf, 3);
+                String status = status(buf, 4);
+                problem = StudentValidator.check(name, email, grade, status);
+                if (problem == null) {
+                    student = Student.restore(name, email, birthDate, grade, status);
+                }
+            }
+            catch (IllegalArgumentException | DateTimeException ex) {
+                problem = ex.getMessage();
+            }
+            if (problem != null) {
+                error(line, problem);
+                return;
+            }
+
+            try {
+                this.sink.accept(student);
+                this.rows += 1;
+            }
+            catch (IllegalArgumentException ex) {
+                error(line, ex.getMessage());
+            }
+        }
+
+        // Linha do último estudante entregue a sink (útil dentro de sink)
+        long lastLine() {
+            return this.lineNumber - 1;
+        }
+
+        // Número da próxima linha a processar
+        long nextLine() {
+            return this.lineNumber;
+        }
+
+        private void error(long line, String msg) {
+            this.errorHandler.accept(new StudentCsvException(line, msg));
+        }
+
+        // Campo sem espaços à volta
+        private String text(ByteBuffer buf, int field) {
+            int start = trimStart(buf, field);
+            int end = trimEnd(buf, field, start);
+            int len = end - start;
+            if (buf.hasArray()) {
+                return new String(buf.array(), buf.arrayOffset() + start, len, StandardCharsets.UTF_8);
+            }
+            if (this.scratch.length < len) {
+                this.scratch = new byte[Math.max(len, this.scratch.length * 2)];
+            }
+            for (int i = 0; i < len; i += 1) {
+                this.scratch[i] = buf.get(start + i);
+            }
+            return new String(this.scratch, 0, len, StandardCharsets.UTF_8);
+        }
+
+        // AAAA-MM-DD
+        private LocalDate date(ByteBuffer buf, int field) {
+            int start = trimStart(buf, field);
+            int end = trimEnd(buf, field, start);
+            if (end - start == 10 && buf.get(start + 4) == '-' && buf.get(start + 7) == '-') {
+                int year = digits(buf, start, start + 4);
+                int month = digits(buf, start + 5, start + 7);
+                int day = digits(buf, start + 8, start + 10);
+                if (year >= 0 && month >= 0 && day >= 0) {
+                    return LocalDate.of(year, month, day);
+                }
+            }
+            // formato inesperado: LocalDate.parse produz a mensagem de erro
+            return LocalDate.parse(text(buf, field));
+        }
+
+        // Inteiro ou decimal simples (ex: 150, 150.5); outros casos
+        // (expoentes, sinais) ficam para Double.parseDouble
+        private double grade(ByteBuffer buf, int field) {
+            int start = trimStart(buf, field);
+            int end = trimEnd(buf, field, start);
+            long value = 0;
+            long scale = 1;
+            boolean dot = false;
+            int i = start;
+            for (; i < end && i - start < 15; i += 1) {
+                byte b = buf.get(i);
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    if (dot) {
+                        scale *= 10;
+                    }
+                }
+                else if (b == '.' && !dot) {
+                    dot = true;
+                }
+                else {
+                    break;
+                }
+            }
+            if (i == end && end > start && !(dot && end - start == 1)) {
+                return scale == 1 ? value : (double) value / scale;
+            }
+            return Double.parseDouble(text(buf, field));
+        }
+
+        // Devolve a constante de Student.VALID_STUDENT_STATUS correspondente
+        private String status(ByteBuffer buf, int field) {
+            int start = trimStart(buf, field);
+            int end = trimEnd(buf, field, start);
+            for (String status : Student.VALID_STUDENT_STATUS) {
+                if (equalsAscii(buf, start, end, status)) {
+                    return status;
+                }
+            }
+            return text(buf, field);    // inválido: Student rejeita
+        }
+
+        private int trimStart(ByteBuffer buf, int field) {
+            int i = this.fieldStarts[field];
+            int end = this.fieldEnds[field];
+            while (i < end && isSpace(buf.get(i))) {
+                i += 1;
+            }
+            return i;
+        }
+
+        private int trimEnd(ByteBuffer buf, int field, int start) {
+            int i = this.fieldEnds[field];
+            while (i > start && isSpace(buf.get(i - 1))) {
+                i -= 1;
+            }
+            return i;
+        }
+
+        private static int digits(ByteBuffer buf, int start, int end) {
+            int value = 0;
+            for (int i = start; i < end; i += 1) {
+                byte b = buf.get(i);
+                if (b < '0' || b > '9') {
+                    return -1;
+                }
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        private static boolean equalsAscii(ByteBuffer buf, int start, int end, String str) {
+            if (end - start != str.length()) {
+                return false;
+            }
+            for (int i = 0; i < str.length(); i += 1) {
+                if (buf.get(start + i) != str.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isBlank(ByteBuffer buf, int start, int end) {
+            for (int i = start; i < end; i += 1) {
+                if (!isSpace(buf.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+
+        long rows;
+
+        private final Consumer<Student> sink;
+        private final Consumer<StudentCsvException> errorHandler;
+        private long lineNumber;
+        private final int[] fieldStarts = new int[FIELD_COUNT];
+        private final int[] fieldEnds = new int[FIELD_COUNT];
+        private byte[] scratch = new byte[128];
+    }
+
+    private static final int FIELD_COUNT = 5;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+}
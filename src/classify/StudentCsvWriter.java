@@ -0,0 +1,213 @@
+package classify;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+// Escrita de ficheiros de turma sem String.format por linha: os campos são
+// escritos directamente num buffer de bytes reutilizado (1 MiB), que é
+// despejado para um FileChannel. O ficheiro é escrito ao lado do destino e
+// depois renomeado, pelo que quem o lê nunca vê um ficheiro a meio.
+public class StudentCsvWriter {
+
+    public enum Layout {
+        // NOME,EMAIL,DATA,CLASSIFICAÇÃO,ESTATUTO (o formato lido no arranque)
+        SAVE,
+        // NOME,EMAIL,CLASSIFICAÇÃO,CLASSIFICAÇÃO QUALITATIVA
+        EXPORT
+    }
+
+    public StudentCsvWriter(Layout layout) {
+        this.layout = layout;
+    }
+
+    public void write(Path file, String header, Iterable<Student> students) throws IOException {
+        Path tmp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (var channel = FileChannel.open(
+                    tmp,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE
+            )) {
+                this.channel = channel;
+                this.buf.clear();
+                putText(header);
+                for (Student st : students) {
+                    putRow(st);
+                }
+                flush();
+                // a turma gravada substitui o diário (StudentJournal): tem
+                // de estar em disco antes de este ser esvaziado
+                channel.force(false);
+            }
+            finally {
+                this.channel = null;
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException ex) {
+            Files.deleteIfExists(tmp);
+            throw ex;
+        }
+    }
+
+    // Escrita para um destino já aberto, um estudante de cada vez (ver
+    // StudentExport), com o mesmo buffer
+    StudentExporter exporter(OutputStream out, String header) {
+        var target = Channels.newChannel(out);
+        return new StudentExporter() {
+            @Override
+            public void begin(GradeStatistics stats) throws IOException {
+                channel = target;
+                buf.clear();
+                putText(header);
+            }
+
+            @Override
+            public void add(Student st) throws IOException {
+                putRow(st);
+            }
+
+            @Override
+            public void end() throws IOException {
+                flush();
+                channel = null;
+            }
+        };
+    }
+
+    private void putRow(Student st) throws IOException {
+        putText(st.getName());
+        put((byte) ',');
+        putText(st.getEmail());
+        put((byte) ',');
+        if (this.layout == Layout.SAVE) {
+            putDate(st.getBirthDate());
+            put((byte) ',');
+            putExactGrade(st.getGrade());
+            put((byte) ',');
+            putText(st.getStatus());
+        }
+        else {
+            putGrade(st.getGrade());
+            put((byte) ',');
+            putText(st.getTextualGrade());
+        }
+        put((byte) '\n');
+    }
+
+    private void putText(String str) throws IOException {
+        int len = str.length();
+        if (len > BUFFER_SIZE) {
+            putBytes(str.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        ensure(len);
+        for (int i = 0; i < len; i += 1) {
+            char c = str.charAt(i);
+            if (c >= 0x80) {
+                // não ASCII: a partir daqui via encoder
+                putBytes(str.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            this.buf.put((byte) c);
+        }
+    }
+
+    // Igual a String.format("%.0f", grade) para classificações >= 0
+    // (arredondamento HALF_UP)
+    private void putGrade(double grade) throws IOException {
+        if (!(grade >= 0 && grade < 1e15)) {
+            putText(String.format("%.0f", grade));
+            return;
+        }
+        putDigits(Math.round(grade), 1);
+    }
+
+    // Na turma gravada a classificação não é arredondada: tem de ser relida
+    // igual à do StudentSnapshot (ex: 149.6 é "Suficiente", 150 é "Bom").
+    // Inteiros como em putGrade, as outras com Double.toString (o valor
+    // mais curto que é relido exactamente)
+    private void putExactGrade(double grade) throws IOException {
+        if (grade == Math.rint(grade)) {
+            putGrade(grade);
+        }
+        else {
+            putText(Double.toString(grade));
+        }
+    }
+
+    // AAAA-MM-DD, como LocalDate.toString para anos de 0 a 9999
+    private void putDate(LocalDate date) throws IOException {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            putText(date.toString());
+            return;
+        }
+        putDigits(year, 4);
+        put((byte) '-');
+        putDigits(date.getMonthValue(), 2);
+        put((byte) '-');
+        putDigits(date.getDayOfMonth(), 2);
+    }
+
+    private void putDigits(long value, int minDigits) throws IOException {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits += 1;
+        }
+        digits = Math.max(digits, minDigits);
+        ensure(digits);
+        int end = this.buf.position() + digits;
+        for (int i = end - 1; i >= end - digits; i -= 1) {
+            this.buf.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        this.buf.position(end);
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        int off = 0;
+        while (off < bytes.length) {
+            ensure(1);
+            int n = Math.min(this.buf.remaining(), bytes.length - off);
+            this.buf.put(bytes, off, n);
+            off += n;
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        ensure(1);
+        this.buf.put(b);
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (this.buf.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buf.flip();
+        while (this.buf.hasRemaining()) {
+            this.channel.write(this.buf);
+        }
+        this.buf.clear();
+    }
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Layout layout;
+    private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+    private WritableByteChannel channel;
+}
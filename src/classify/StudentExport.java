@@ -0,0 +1,118 @@
+package classify;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+// Exporta a turma para um ou mais ficheiros, no formato indicado pela
+// extensão de cada um (.html/.htm, .xlsx; qualquer outra: CSV como até
+// aqui), numa só passagem pelos estudantes. Como em StudentCsvWriter,
+// cada ficheiro é escrito ao lado do destino e só substitui o destino no
+// fim, se tudo correr bem. O mesmo destino não pode aparecer duas vezes
+// (os dois ficheiros temporários seriam o mesmo).
+public class StudentExport {
+
+    public enum Format {
+        CSV,
+        HTML,
+        XLSX;
+
+        public static Format forPath(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".html") || name.endsWith(".htm")) {
+                return HTML;
+            }
+            if (name.endsWith(".xlsx")) {
+                return XLSX;
+            }
+            return CSV;
+        }
+    }
+
+    private StudentExport() {
+    }
+
+    public static void export(StudentCollection students, List<Path> files) throws IOException {
+        var targets = new HashSet<Path>();
+        for (Path file : files) {
+            if (!targets.add(file.toAbsolutePath().normalize())) {
+                throw new DuplicateValueException("Duplicate export target: " + file);
+            }
+        }
+
+        long start = Metrics.start();
+        var stats = students.statistics();
+        List<Path> tmps = new ArrayList<>();
+        List<OutputStream> outputs = new ArrayList<>();
+        List<StudentExporter> exporters = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                Path tmp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+                tmps.add(tmp);
+                var out = new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE);
+                outputs.add(out);
+                exporters.add(newExporter(Format.forPath(file), out, stats));
+            }
+
+            for (var exporter : exporters) {
+                exporter.begin(stats);
+            }
+            for (Student st : students) {
+                for (var exporter : exporters) {
+                    exporter.add(st);
+                }
+            }
+            for (var exporter : exporters) {
+                exporter.end();
+            }
+            for (var out : outputs) {
+                out.close();
+            }
+            outputs.clear();
+            for (int i = 0; i < files.size(); i += 1) {
+                Files.move(tmps.get(i), files.get(i), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            tmps.clear();
+            Metrics.EXPORT.stop(start, students.size());
+        }
+        finally {
+            if (!tmps.isEmpty()) {
+                Metrics.EXPORT.failed(start);
+            }
+            for (var out : outputs) {
+                try {
+                    out.close();
+                }
+                catch (IOException ex) {
+                    // já a falhar
+                }
+            }
+            for (Path tmp : tmps) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    static StudentExporter newExporter(Format format, OutputStream out, GradeStatistics stats) {
+        switch (format) {
+            case HTML:
+                return new StudentHtmlExporter(out);
+            case XLSX:
+                return new StudentXlsxExporter(out);
+            default:
+                // cabeçalho com a média, como no enunciado
+                var grade = stats.getMean();
+                String header = String.format("MÉDIA %.1f %s\n\n", grade, Student.classifyGrade(grade).toUpperCase());
+                return new StudentCsvWriter(StudentCsvWriter.Layout.EXPORT).exporter(out, header);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+}
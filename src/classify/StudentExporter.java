@@ -0,0 +1,19 @@
+package classify;
+
+import java.io.IOException;
+
+// Exportação de uma turma, um estudante de cada vez: begin, add para cada
+// estudante e end. Cada implementação escreve à medida que recebe os
+// estudantes, sem os guardar, pelo que a memória usada não depende do
+// tamanho da turma; e várias podem ser alimentadas pela mesma passagem
+// pelos dados (ver StudentExport).
+public interface StudentExporter {
+
+    // stats: resumo da turma inteira (ex: média no cabeçalho)
+    void begin(GradeStatistics stats) throws IOException;
+
+    void add(Student st) throws IOException;
+
+    // Escreve o que faltar; o destino é fechado por quem o abriu
+    void end() throws IOException;
+}
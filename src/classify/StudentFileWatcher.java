@@ -0,0 +1,98 @@
+package classify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+
+// Vigia um ficheiro de turma com um WatchService (sobre a pasta onde está,
+// porque o WatchService não vigia ficheiros) e assinala quando foi alterado
+// por outro programa. A releitura fica a cargo de quem usa a turma (ver
+// RosterDiff), na thread que a altera.
+//
+// As escritas do próprio programa são ignoradas chamando markCurrent depois
+// de gravar: só conta como alteração um ficheiro com data ou tamanho
+// diferentes dos registados.
+public class StudentFileWatcher implements Closeable {
+
+    public StudentFileWatcher(Path file) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(
+                this.watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY
+        );
+        markCurrent();
+        this.thread = new Thread(this::watchLoop, "watcher " + this.file.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Houve alterações ao ficheiro desde o último markCurrent
+    public boolean hasChanged() throws IOException {
+        if (!this.signalled) {
+            return false;
+        }
+        String stamp = stamp();
+        if (stamp == null || stamp.equals(this.knownStamp)) {
+            // escrita do próprio programa, ou ficheiro a meio de ser substituído
+            this.signalled = false;
+            return false;
+        }
+        return true;
+    }
+
+    // O conteúdo actual do ficheiro já está em memória (acabou de ser lido
+    // ou gravado)
+    public void markCurrent() throws IOException {
+        this.signalled = false;
+        this.knownStamp = stamp();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                var key = this.watchService.take();
+                for (var event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || this.file.getFileName().equals(event.context())) {
+                        this.signalled = true;
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException ex) {
+            // terminado
+        }
+    }
+
+    private String stamp() throws IOException {
+        try {
+            var attrs = Files.readAttributes(this.file, BasicFileAttributes.class);
+            return attrs.lastModifiedTime() + "/" + attrs.size();
+        }
+        catch (NoSuchFileException ex) {
+            return null;
+        }
+    }
+
+    private final Path file;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean signalled;
+    private volatile String knownStamp;
+}
@@ -0,0 +1,129 @@
+package classify;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+// Exportação para uma página HTML com CSS (ponto 5.2.2 de docs/TODO.txt):
+// uma tabela com as mesmas colunas que a listagem, escrita linha a linha.
+class StudentHtmlExporter implements StudentExporter {
+
+    StudentHtmlExporter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void begin(GradeStatistics stats) throws IOException {
+        var average = stats.getMean();
+        this.out.write(HEAD);
+        this.out.write(String.format(
+                "<p class=\"summary\">MÉDIA %.1f %s &middot; %d estudantes</p>\n",
+                average, Student.classifyGrade(average).toUpperCase(), stats.getCount()
+        ));
+        this.out.write(TABLE_HEAD);
+    }
+
+    @Override
+    public void add(Student st) throws IOException {
+        var w = this.out;
+        w.write("<tr><td>");
+        escape(w, st.getName());
+        w.write("</td><td class=\"grade\">");
+        w.write(Long.toString(Math.round(st.getGrade())));
+        w.write("</td><td class=\"band ");
+        int band = st.getGradeBand();
+        w.write(BAND_CLASSES[band]);
+        w.write("\">");
+        escape(w, GradeBands.get().name(band));
+        w.write("</td><td>");
+        escape(w, st.getEmail());
+        w.write("</td></tr>\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        this.out.write("</tbody>\n</table>\n</body>\n</html>\n");
+        this.out.flush();
+    }
+
+    // Texto dentro de elementos e atributos
+    static void escape(Writer w, String str) throws IOException {
+        int start = 0;
+        for (int i = 0; i < str.length(); i += 1) {
+            String entity;
+            switch (str.charAt(i)) {
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '"':
+                    entity = "&quot;";
+                    break;
+                case '\'':
+                    entity = "&#39;";
+                    break;
+                default:
+                    continue;
+            }
+            w.write(str, start, i - start);
+            w.write(entity);
+            start = i + 1;
+        }
+        w.write(str, start, str.length() - start);
+    }
+
+    // Classe CSS de cada classificação qualitativa (GradeBands): o nome em
+    // minúsculas, sem acentos, com '-' em vez de espaços (ex: "muito-bom")
+    private static String[] bandClasses(GradeBands bands) {
+        var classes = new String[bands.size()];
+        for (int i = 0; i < classes.length; i += 1) {
+            classes[i] = NameIndex.stripAccents(bands.name(i).toLowerCase(Locale.ROOT)).replace(' ', '-');
+        }
+        return classes;
+    }
+
+    private static final String HEAD =
+            "<!DOCTYPE html>\n"
+            + "<html lang=\"pt\">\n"
+            + "<head>\n"
+            + "<meta charset=\"utf-8\">\n"
+            + "<title>Classificações</title>\n"
+            + "<style>\n"
+            + "body { font-family: sans-serif; margin: 2em; color: #222; }\n"
+            + "table { border-collapse: collapse; }\n"
+            + "th, td { border: 1px solid #ccc; padding: 0.3em 0.8em; }\n"
+            + "th { background: #eee; }\n"
+            + "tbody tr:nth-child(even) { background: #f7f7f7; }\n"
+            + "td.grade { text-align: right; }\n"
+            + "td.band { text-align: center; }\n"
+            + ".insuficiente { color: #b00020; }\n"
+            + ".suficiente { color: #8a6d00; }\n"
+            + ".bom { color: #1b5e20; }\n"
+            + ".excelente { color: #1b5e20; font-weight: bold; }\n"
+            + ".summary { font-weight: bold; }\n"
+            + "</style>\n"
+            + "</head>\n"
+            + "<body>\n"
+            + "<h1>Classificações</h1>\n";
+
+    private static final String TABLE_HEAD =
+            "<table>\n"
+            + "<thead><tr><th>Nome</th><th>Classificação<br>Quantitativa</th>"
+            + "<th>Classificação<br>Qualitativa</th><th>Email</th></tr></thead>\n"
+            + "<tbody>\n";
+
+    private static final String[] BAND_CLASSES = bandClasses(GradeBands.get());
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+}
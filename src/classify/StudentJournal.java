@@ -0,0 +1,489 @@
+package classify;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Diário (write-ahead log) das alterações a uma StudentCollection: cada
+// inserção, remoção e alteração de email/classificação/estatuto é
+// acrescentada ao fim do ficheiro, em vez de se reescrever a turma inteira.
+// No arranque o diário é aplicado à turma lida (replay) e depois compactado
+// (turma e snapshot gravados, diário esvaziado).
+//
+// Os registos são acumulados em memória e escritos por uma thread própria,
+// que faz um único force (fsync) para todos os registos pendentes (group
+// commit). sync() espera até que tudo o que foi registado esteja em disco.
+//
+// Formato de cada registo (big-endian):
+//
+//   int    tamanho do corpo
+//   corpo: byte operação e campos (strings como short + bytes UTF-8; os
+//          estudantes são identificados pelo email antes da alteração)
+//   int    CRC32 do corpo
+//
+// Um registo incompleto ou com CRC errado no fim do ficheiro (escrita
+// interrompida) é descartado no replay. Os registos de um bloco
+// (batchStarted/batchFinished, ex: BatchUpdate) ficam entre um registo
+// BEGIN e um COMMIT; um bloco sem COMMIT no fim do ficheiro é descartado
+// inteiro, pelo que o bloco é aplicado todo ou nada.
+//
+// O replay não pode ser repetido sobre uma turma que já inclua as
+// alterações: os registos identificam os estudantes pelo email, que pode
+// ser reutilizado (ex: GRADE a, EMAIL a -> b, ADD a aplicaria a
+// classificação ao novo a). Por isso a compactação nunca deixa no disco a
+// turma nova ao lado do diário antigo: a turma é gravada em
+// pendingPathFor(csv), o diário é esvaziado e só depois a turma gravada
+// substitui o CSV (ver compacted). Se o processo terminar a meio, recover
+// completa a compactação no arranque seguinte.
+public class StudentJournal implements StudentCollectionListener, Closeable {
+
+    // Ficheiro de diário associado a um ficheiro de turma
+    public static Path pathFor(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + ".journal");
+    }
+
+    // Turma gravada por uma compactação e ainda não instalada no lugar do
+    // CSV; quando existe, inclui todas as alterações do diário
+    public static Path pendingPathFor(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + ".new");
+    }
+
+    // Antes de ler a turma: completa uma compactação interrompida depois de
+    // a turma ter sido gravada (o diário, já incluído nela, é apagado).
+    // Devolve false se não havia nenhuma.
+    public static boolean recover(Path csvFile) throws IOException {
+        if (!Files.exists(pendingPathFor(csvFile))) {
+            return false;
+        }
+        Files.deleteIfExists(pathFor(csvFile));
+        install(csvFile);
+        return true;
+    }
+
+    // Substitui o CSV pela turma gravada em pendingPathFor(csvFile); o
+    // diário já tem de estar vazio
+    public static void install(Path csvFile) throws IOException {
+        Files.move(
+                pendingPathFor(csvFile), csvFile,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+        );
+    }
+
+    // Aplica os registos de file a target e devolve quantos foram lidos.
+    // target é a turma gravada antes do primeiro registo (ver recover); se
+    // o CSV tiver sido alterado por fora entretanto, inserções de emails
+    // existentes e alterações a emails inexistentes são ignoradas.
+    public static int replay(Path file, StudentCollection target) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        var buf = ByteBuffer.wrap(Files.readAllBytes(file));
+        var crc = new CRC32();
+        int records = 0;
+        List<ByteBuffer> batch = null;    // registos de um bloco ainda sem COMMIT
+        int batchStart = 0;
+        while (buf.remaining() >= 4) {
+            int start = buf.position();
+            int len = buf.getInt();
+            if (len <= 0 || len > buf.remaining() - 4) {
+                buf.position(start);
+                break;
+            }
+            var body = buf.slice();
+            body.limit(len);
+            buf.position(buf.position() + len);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buf.getInt()) {
+                buf.position(start);
+                break;
+            }
+            byte op = body.get(0);
+            if (op == BEGIN) {
+                if (batch != null) {
+                    throw new IOException("Corrupted journal: nested batch at record " + (records + 1) + ": " + file);
+                }
+                batch = new ArrayList<>();
+                batchStart = start;
+            }
+            else if (op == COMMIT) {
+                if (batch == null) {
+                    throw new IOException("Corrupted journal: commit without batch: " + file);
+                }
+                for (var rec : batch) {
+                    records += 1;
+                    apply(rec, target, file, records);
+                }
+                batch = null;
+            }
+            else if (batch != null) {
+                batch.add(body);
+            }
+            else {
+                records += 1;
+                apply(body, target, file, records);
+            }
+        }
+        if (batch != null) {
+            // bloco sem COMMIT (escrita interrompida): nenhum dos seus
+            // registos é aplicado
+            buf.position(batchStart);
+        }
+        if (buf.hasRemaining()) {
+            // registo incompleto no fim: descartado
+            try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(buf.position());
+            }
+        }
+        return records;
+    }
+
+    public static StudentJournal open(Path file) throws IOException {
+        return new StudentJournal(file);
+    }
+
+    private StudentJournal(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND
+        );
+        this.appended = this.channel.size();
+        this.durable = this.appended;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher " + file.getFileName());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Tamanho do diário em bytes, incluindo registos ainda não escritos
+    public long size() {
+        synchronized (this.lock) {
+            return this.appended;
+        }
+    }
+
+    // Espera até que todos os registos já feitos estejam em disco
+    public void sync() throws IOException {
+        synchronized (this.lock) {
+            long target = this.appended;
+            this.lock.notifyAll();
+            while (this.durable < target && this.failure == null) {
+                try {
+                    this.lock.wait();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while syncing journal", ex);
+                }
+            }
+            checkFailure();
+        }
+    }
+
+    // Depois de a turma, com todas as alterações registadas, ter sido
+    // gravada em pendingPathFor(csvFile): descarta todos os registos e
+    // instala a turma gravada. Se falhar, o diário deixa de confirmar
+    // alterações (sync falha), para que nenhuma alteração confirmada fique
+    // só nele: a turma gravada é instalada por recover no próximo arranque.
+    public void compacted(Path csvFile) throws IOException {
+        sync();
+        synchronized (this.lock) {
+            try {
+                this.channel.truncate(0);
+                this.channel.force(false);
+                this.appended = 0;
+                this.durable = 0;
+                install(csvFile);
+            }
+            catch (IOException ex) {
+                this.failure = ex;
+                throw ex;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        }
+        finally {
+            synchronized (this.lock) {
+                this.closed = true;
+                this.lock.notifyAll();
+            }
+            try {
+                this.flusher.join();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            this.channel.close();
+        }
+    }
+
+    // Registo das alterações (chamados pela StudentCollection)
+
+    @Override
+    public void studentAdded(Student st) {
+        var rec = begin(ADD);
+        putString(rec, st.getName());
+        putString(rec, st.getEmail());
+        rec.putInt(Math.toIntExact(st.getBirthDate().toEpochDay()));
+        rec.putDouble(st.getGrade());
+        rec.put((byte) Student.statusCode(st.getStatus()));
+        commit();
+    }
+
+    @Override
+    public void studentRemoved(Student st) {
+        var rec = begin(REMOVE);
+        putString(rec, st.getEmail());
+        commit();
+    }
+
+    @Override
+    public void emailChanged(Student st, String oldEmail, String newEmail) {
+        var rec = begin(EMAIL);
+        putString(rec, oldEmail);
+        putString(rec, newEmail);
+        commit();
+    }
+
+    @Override
+    public void gradeChanged(Student st, double oldGrade, double newGrade) {
+        var rec = begin(GRADE);
+        putString(rec, st.getEmail());
+        rec.putDouble(newGrade);
+        commit();
+    }
+
+    @Override
+    public void statusChanged(Student st, String oldStatus, String newStatus) {
+        var rec = begin(STATUS);
+        putString(rec, st.getEmail());
+        rec.put((byte) Student.statusCode(newStatus));
+        commit();
+    }
+
+    // Blocos (ex: BatchUpdate): só são aplicados no replay se o COMMIT
+    // estiver no diário
+
+    @Override
+    public void batchStarted() {
+        begin(BEGIN);
+        commit();
+    }
+
+    @Override
+    public void batchFinished() {
+        begin(COMMIT);
+        commit();
+    }
+
+    private static void apply(ByteBuffer body, StudentCollection target, Path file, int record) throws IOException {
+        try {
+            apply(body, target);
+        }
+        catch (BufferUnderflowException | IndexOutOfBoundsException
+               | DateTimeException | IllegalArgumentException ex) {
+            throw new IOException("Corrupted journal record " + record + ": " + file, ex);
+        }
+    }
+
+    private static void apply(ByteBuffer body, StudentCollection target) {
+        byte op = body.get();
+        if (op == ADD) {
+            String name = getString(body);
+            String email = getString(body);
+            var birthDate = LocalDate.ofEpochDay(body.getInt());
+            double grade = body.getDouble();
+            String status = Student.VALID_STUDENT_STATUS[body.get()];
+            if (target.searchByEmail(email) == null) {
+                target.add(Student.restore(name, email, birthDate, grade, status));
+            }
+            return;
+        }
+
+        Student st = target.searchByEmail(getString(body));
+        switch (op) {
+            case REMOVE:
+                if (st != null) {
+                    target.remove(st);
+                }
+                break;
+            case EMAIL:
+                String newEmail = getString(body);
+                if (st != null && target.searchByEmail(newEmail) == null) {
+                    st.setEmail(newEmail);
+                }
+                break;
+            case GRADE:
+                double grade = body.getDouble();
+                if (st != null) {
+                    st.setGrade(grade);
+                }
+                break;
+            case STATUS:
+                String status = Student.VALID_STUDENT_STATUS[body.get()];
+                if (st != null) {
+                    st.setStatus(status);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown journal operation " + op);
+        }
+    }
+
+    // Os registos são construídos em record e copiados para pending sob o
+    // lock; as alterações chegam todas da thread que altera a colecção
+    private ByteBuffer begin(byte op) {
+        this.record.clear();
+        this.record.position(4);
+        this.record.put(op);
+        return this.record;
+    }
+
+    private void putString(ByteBuffer rec, String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String too long for journal: " + str.length());
+        }
+        rec.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getShort();
+        if (len < 0 || len > buf.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + len);
+        }
+        var str = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return str;
+    }
+
+    private void commit() {
+        var rec = this.record;
+        int len = rec.position() - 4;
+        rec.putInt(0, len);
+        this.crc.reset();
+        this.crc.update(rec.array(), 4, len);
+        rec.putInt((int) this.crc.getValue());
+        rec.flip();
+        synchronized (this.lock) {
+            if (this.closed) {
+                throw new IllegalStateException("Journal is closed: " + this.file);
+            }
+            if (this.pending.remaining() < rec.remaining()) {
+                var bigger = ByteBuffer.allocate(
+                        Math.max(this.pending.capacity() * 2, this.pending.position() + rec.remaining())
+                );
+                this.pending.flip();
+                this.pending = bigger.put(this.pending);
+            }
+            this.pending.put(rec);
+            this.appended += rec.limit();
+            this.lock.notifyAll();
+        }
+    }
+
+    // Thread de escrita: troca o buffer pendente por um vazio, escreve-o e
+    // faz force; todos os sync() à espera desses registos acordam juntos
+    private void flushLoop() {
+        ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+        while (true) {
+            ByteBuffer batch;
+            long target;
+            synchronized (this.lock) {
+                while (this.pending.position() == 0 && !this.closed) {
+                    try {
+                        this.lock.wait();
+                    }
+                    catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+                if (this.pending.position() == 0) {
+                    return;
+                }
+                batch = this.pending;
+                this.pending = spare;
+                target = this.appended;
+            }
+
+            IOException failure = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    this.channel.write(batch);
+                }
+                this.channel.force(false);
+            }
+            catch (IOException ex) {
+                failure = ex;
+            }
+            batch.clear();
+            spare = batch.capacity() > MAX_SPARE_SIZE ? ByteBuffer.allocate(BUFFER_SIZE) : batch;
+
+            synchronized (this.lock) {
+                if (failure != null) {
+                    this.failure = failure;
+                }
+                else {
+                    this.durable = target;
+                }
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (this.failure != null) {
+            throw new IOException("Can't write journal " + this.file, this.failure);
+        }
+    }
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte EMAIL = 3;
+    private static final byte GRADE = 4;
+    private static final byte STATUS = 5;
+    private static final byte BEGIN = 6;
+    private static final byte COMMIT = 7;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_SPARE_SIZE = 4 * 1024 * 1024;
+    // tamanho, operação, nome e email (no máximo 32767 bytes cada), data,
+    // classificação, estatuto e CRC
+    private static final int MAX_RECORD_SIZE = 4 + 1 + 2 * (2 + Short.MAX_VALUE) + 4 + 8 + 1 + 4;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final Thread flusher;
+    private final Object lock = new Object();
+    private final ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private long appended;
+    private long durable;
+    private IOException failure;
+    private boolean closed;
+}
@@ -0,0 +1,13 @@
+package classify;
+
+// Ordens em que uma StudentCollection pode ser percorrida por páginas (ver
+// StudentCollection.page)
+public enum StudentOrder {
+    // ordem de inserção (a do ficheiro)
+    INSERTION,
+    // alfabética, sem distinguir maiúsculas nem acentos
+    NAME,
+    // da melhor para a pior classificação (empates pela ordem de inserção)
+    GRADE,
+    EMAIL,
+}
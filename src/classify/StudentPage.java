@@ -0,0 +1,64 @@
+package classify;
+
+import java.util.List;
+
+// Uma página de estudantes (ver StudentCollection.page). O cursor é a
+// posição do primeiro estudante da página na ordem pedida; getNextCursor e
+// getPreviousCursor dão os cursores das páginas vizinhas.
+public class StudentPage {
+
+    StudentPage(List<Student> students, StudentOrder order, int cursor, int pageSize, int total) {
+        this.students = students;
+        this.order = order;
+        this.cursor = cursor;
+        this.pageSize = pageSize;
+        this.total = total;
+    }
+
+    public List<Student> getStudents() {
+        return this.students;
+    }
+
+    public StudentOrder getOrder() {
+        return this.order;
+    }
+
+    public int getCursor() {
+        return this.cursor;
+    }
+
+    public int getTotal() {
+        return this.total;
+    }
+
+    public boolean hasNext() {
+        return this.cursor + this.students.size() < this.total;
+    }
+
+    public boolean hasPrevious() {
+        return this.cursor > 0;
+    }
+
+    public int getNextCursor() {
+        return hasNext() ? this.cursor + this.students.size() : -1;
+    }
+
+    public int getPreviousCursor() {
+        return hasPrevious() ? Math.max(0, this.cursor - this.pageSize) : -1;
+    }
+
+    // 1, 2, ...
+    public int getPageNumber() {
+        return (this.cursor + this.pageSize - 1) / this.pageSize + 1;
+    }
+
+    public int getPageCount() {
+        return Math.max(1, (this.total + this.pageSize - 1) / this.pageSize);
+    }
+
+    private final List<Student> students;
+    private final StudentOrder order;
+    private final int cursor;
+    private final int pageSize;
+    private final int total;
+}
@@ -0,0 +1,460 @@
+package classify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Pesquisa com vários critérios sobre uma StudentCollection (obtida com
+// StudentCollection.query()). Os critérios são cumulativos (E):
+//
+//     var found = students.query()
+//                         .status(StudentStatus.BOLS)
+//                         .grades(120, 150)
+//                         .nameContains("Al")
+//                         .orderBy(StudentOrder.NAME)
+//                         .limit(25)
+//                         .list();
+//
+// Antes de percorrer a turma, o planeador escolhe o critério com índice que
+// deixa menos candidatos (email: 1; intervalo de classificações: contagem
+// exacta em GradeIndex; nome: lista de trigramas mais curta em NameIndex);
+// os restantes critérios são aplicados a cada candidato, à medida que o
+// resultado é percorrido. Sem critério com índice, a turma é percorrida
+// pela ordem pedida (índices de OrderIndex/GradeIndex), sem ordenar nada.
+// Nenhuma colecção intermédia é criada; com limit, a pesquisa pára logo que
+// tenha resultados suficientes (a não ser que tenha de os ordenar).
+//
+// Sem orderBy, a ordem dos resultados é a do índice escolhido (ver
+// explain()).
+public class StudentQuery {
+
+    StudentQuery(StudentCollection students) {
+        this.students = students;
+    }
+
+    public StudentQuery email(String email) {
+        this.criteria.add(new EmailCriterion(email));
+        return this;
+    }
+
+    // Nome que contém namePart, sem distinguir maiúsculas nem acentos
+    public StudentQuery nameContains(String namePart) {
+        return nameContains(namePart, true);
+    }
+
+    public StudentQuery nameContains(String namePart, boolean ignoreAccents) {
+        this.criteria.add(new NameCriterion(namePart, ignoreAccents));
+        return this;
+    }
+
+    // Nome começado por prefix, sem distinguir maiúsculas nem acentos
+    public StudentQuery namePrefix(String prefix) {
+        this.criteria.add(new PrefixCriterion(prefix));
+        return this;
+    }
+
+    // Classificação entre minGrade e maxGrade (inclusive)
+    public StudentQuery grades(double minGrade, double maxGrade) {
+        this.criteria.add(new GradeCriterion(minGrade, maxGrade));
+        return this;
+    }
+
+    public StudentQuery status(StudentStatus status) {
+        this.criteria.add(new StatusCriterion(status));
+        return this;
+    }
+
+    // Outro critério, sem índice (aplicado a cada candidato)
+    public StudentQuery where(Predicate<Student> predicate) {
+        this.criteria.add(new Criterion() {
+            @Override
+            public boolean test(Student st) {
+                return predicate.test(st);
+            }
+
+            @Override
+            public String toString() {
+                return "where(...)";
+            }
+        });
+        return this;
+    }
+
+    public StudentQuery orderBy(StudentOrder order) {
+        this.order = order;
+        return this;
+    }
+
+    public StudentQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Invalid limit " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    // Os resultados, calculados à medida que são consumidos. A colecção não
+    // deve ser alterada enquanto o stream estiver a ser percorrido.
+    public Stream<Student> stream() {
+        Plan plan = plan();
+        Stream<Student> rows = plan.index != null ? plan.index.candidates(this.students) : scan(plan.scanOrder);
+        Predicate<Student> residual = residual(plan.index);
+        if (residual != null) {
+            rows = rows.filter(residual);
+        }
+        if (plan.sort) {
+            rows = sorted(rows, this.order);
+        }
+        if (this.limit >= 0) {
+            rows = rows.limit(this.limit);
+        }
+        return rows;
+    }
+
+    public List<Student> list() {
+        long start = Metrics.start();
+        List<Student> found = stream().collect(Collectors.toList());
+        Metrics.QUERY.stop(start, found.size());
+        return found;
+    }
+
+    // Colecção apenas de leitura, ex: para StudentCollection.page
+    public StudentCollection collect() {
+        return StudentCollection.view(list());
+    }
+
+    public long count() {
+        long start = Metrics.start();
+        long count = stream().count();
+        Metrics.QUERY.stop(start, count);
+        return count;
+    }
+
+    // Descrição do plano, ex:
+    //   "índice grades[120.0, 150.0] (~310 candidatos), filtro status=BOLS, ordenar por NAME, limite 25"
+    public String explain() {
+        Plan plan = plan();
+        var text = new StringBuilder();
+        if (plan.index != null) {
+            text.append("índice ").append(plan.index).append(" (~").append(plan.estimate).append(" candidatos)");
+        }
+        else {
+            text.append("percorrer ").append(this.students.size()).append(" estudantes");
+            if (plan.scanOrder != null && plan.scanOrder != StudentOrder.INSERTION) {
+                text.append(" por ").append(plan.scanOrder);
+            }
+        }
+        var filters = new ArrayList<String>();
+        for (var criterion : this.criteria) {
+            if (criterion != plan.index) {
+                filters.add(criterion.toString());
+            }
+        }
+        if (!filters.isEmpty()) {
+            text.append(", filtro ").append(String.join(" e ", filters));
+        }
+        if (plan.sort) {
+            text.append(", ordenar por ").append(this.order);
+        }
+        if (this.limit >= 0) {
+            text.append(", limite ").append(this.limit);
+        }
+        return text.toString();
+    }
+
+    // Planeador: o critério com índice com menos candidatos, desde que
+    // sejam menos do que a turma inteira e possam ser dados pela ordem
+    // pedida (ou ordenados a seguir: a ordem de inserção não pode ser
+    // reconstituída, pelo que aí só servem índices que a mantêm).
+    private Plan plan() {
+        var plan = new Plan();
+        int best = this.students.size();
+        for (var criterion : this.criteria) {
+            if (this.order == StudentOrder.INSERTION && !criterion.keepsInsertionOrder()) {
+                continue;
+            }
+            // os empates da ordem GRADE ficam pela ordem de inserção: uma
+            // ordenação (estável) só os mantém se os candidatos a tiverem
+            if (this.order == StudentOrder.GRADE && !criterion.keepsInsertionOrder()
+                && !criterion.isSortedBy(StudentOrder.GRADE)) {
+                continue;
+            }
+            int estimate = criterion.estimate(this.students);
+            if (estimate >= 0 && estimate < best) {
+                best = estimate;
+                plan.index = criterion;
+                plan.estimate = estimate;
+            }
+        }
+        if (plan.index == null) {
+            plan.scanOrder = this.order;
+        }
+        else if (this.order != null) {
+            plan.sort = !plan.index.isSortedBy(this.order);
+        }
+        return plan;
+    }
+
+    private Stream<Student> scan(StudentOrder order) {
+        if (order == null) {
+            return this.students.rows().stream();
+        }
+        switch (order) {
+            case NAME:
+                return Arrays.stream(this.students.orderIndex().byName());
+            case EMAIL:
+                return Arrays.stream(this.students.orderIndex().byEmail());
+            case GRADE:
+                return this.students.gradeIndex().top(this.students.size()).stream();
+            default:
+                return this.students.rows().stream();
+        }
+    }
+
+    // Todos os critérios excepto o do índice, ou null se não houver
+    private Predicate<Student> residual(Criterion index) {
+        Predicate<Student> residual = null;
+        for (var criterion : this.criteria) {
+            if (criterion != index) {
+                residual = residual == null ? criterion : residual.and(criterion);
+            }
+        }
+        return residual;
+    }
+
+    // Ordena apenas os resultados; as chaves de nome e email são calculadas
+    // uma vez por estudante (como em OrderIndex)
+    private static Stream<Student> sorted(Stream<Student> rows, StudentOrder order) {
+        switch (order) {
+            case NAME:
+                return rows.map(st -> new Keyed(OrderIndex.nameKey(st), st))
+                           .sorted(Comparator.comparing((Keyed k) -> k.key))
+                           .map(k -> k.student);
+            case EMAIL:
+                return rows.map(st -> new Keyed(StudentCollection.emailKey(st.getEmail()), st))
+                           .sorted(Comparator.comparing((Keyed k) -> k.key))
+                           .map(k -> k.student);
+            case GRADE:
+                return rows.sorted(Comparator.comparingDouble(Student::getGrade).reversed());
+            default:
+                return rows;
+        }
+    }
+
+    private static class Plan {
+        Criterion index;           // null: percorrer a turma
+        int estimate;
+        StudentOrder scanOrder;    // sem índice: ordem em que a turma é percorrida
+        boolean sort;              // com índice: ordenar os resultados
+    }
+
+    private static class Keyed {
+        Keyed(String key, Student student) {
+            this.key = key;
+            this.student = student;
+        }
+
+        final String key;
+        final Student student;
+    }
+
+    // Critérios
+
+    private abstract static class Criterion implements Predicate<Student> {
+        // Número (aproximado) de candidatos dados pelo índice, ou -1 se não
+        // houver índice para este critério
+        int estimate(StudentCollection students) {
+            return -1;
+        }
+
+        Stream<Student> candidates(StudentCollection students) {
+            throw new UnsupportedOperationException(this + " has no index");
+        }
+
+        boolean keepsInsertionOrder() {
+            return false;
+        }
+
+        boolean isSortedBy(StudentOrder order) {
+            return false;
+        }
+    }
+
+    private static class EmailCriterion extends Criterion {
+        EmailCriterion(String email) {
+            this.key = StudentCollection.emailKey(email);
+        }
+
+        @Override
+        public boolean test(Student st) {
+            return StudentCollection.emailKey(st.getEmail()).equals(this.key);
+        }
+
+        @Override
+        int estimate(StudentCollection students) {
+            return students.emailIndex().containsKey(this.key) ? 1 : 0;
+        }
+
+        @Override
+        Stream<Student> candidates(StudentCollection students) {
+            Student st = students.emailIndex().get(this.key);
+            return st == null ? Stream.empty() : Stream.of(st);
+        }
+
+        // no máximo um resultado: qualquer ordem serve
+        @Override
+        boolean keepsInsertionOrder() {
+            return true;
+        }
+
+        @Override
+        boolean isSortedBy(StudentOrder order) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "email=" + this.key;
+        }
+
+        private final String key;
+    }
+
+    private static class NameCriterion extends Criterion {
+        NameCriterion(String namePart, boolean ignoreAccents) {
+            this.namePart = namePart;
+            this.ignoreAccents = ignoreAccents;
+            String caseFolded = namePart.toLowerCase(Locale.ROOT);
+            this.query = ignoreAccents ? NameIndex.stripAccents(caseFolded) : caseFolded;
+        }
+
+        @Override
+        public boolean test(Student st) {
+            String name = st.getName().toLowerCase(Locale.ROOT);
+            return (this.ignoreAccents ? NameIndex.stripAccents(name) : name).contains(this.query);
+        }
+
+        @Override
+        int estimate(StudentCollection students) {
+            return students.nameIndex().estimateContains(this.namePart);
+        }
+
+        @Override
+        Stream<Student> candidates(StudentCollection students) {
+            return students.nameIndex().streamContains(this.namePart, this.ignoreAccents);
+        }
+
+        @Override
+        boolean keepsInsertionOrder() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "name~" + this.query;
+        }
+
+        private final String namePart;
+        private final boolean ignoreAccents;
+        private final String query;
+    }
+
+    private static class PrefixCriterion extends Criterion {
+        PrefixCriterion(String prefix) {
+            this.prefix = prefix;
+            this.key = NameIndex.stripAccents(prefix.toLowerCase(Locale.ROOT));
+        }
+
+        @Override
+        public boolean test(Student st) {
+            return OrderIndex.nameKey(st).startsWith(this.key);
+        }
+
+        @Override
+        int estimate(StudentCollection students) {
+            return students.nameIndex().estimateStartsWith(this.prefix);
+        }
+
+        @Override
+        Stream<Student> candidates(StudentCollection students) {
+            return students.nameIndex().streamStartsWith(this.prefix);
+        }
+
+        @Override
+        boolean isSortedBy(StudentOrder order) {
+            return order == StudentOrder.NAME;
+        }
+
+        @Override
+        public String toString() {
+            return "name^" + this.key;
+        }
+
+        private final String prefix;
+        private final String key;
+    }
+
+    private static class GradeCriterion extends Criterion {
+        GradeCriterion(double minGrade, double maxGrade) {
+            this.minGrade = minGrade;
+            this.maxGrade = maxGrade;
+        }
+
+        @Override
+        public boolean test(Student st) {
+            return st.getGrade() >= this.minGrade && st.getGrade() <= this.maxGrade;
+        }
+
+        @Override
+        int estimate(StudentCollection students) {
+            return students.gradeIndex().count(this.minGrade, this.maxGrade);
+        }
+
+        // da melhor para a pior, como StudentOrder.GRADE
+        @Override
+        Stream<Student> candidates(StudentCollection students) {
+            return students.gradeIndex().rangeDescending(this.minGrade, this.maxGrade).stream();
+        }
+
+        @Override
+        boolean isSortedBy(StudentOrder order) {
+            return order == StudentOrder.GRADE;
+        }
+
+        @Override
+        public String toString() {
+            return "grades[" + this.minGrade + ", " + this.maxGrade + "]";
+        }
+
+        private final double minGrade;
+        private final double maxGrade;
+    }
+
+    private static class StatusCriterion extends Criterion {
+        StatusCriterion(StudentStatus status) {
+            this.status = status;
+        }
+
+        @Override
+        public boolean test(Student st) {
+            return st.getStudentStatus() == this.status;
+        }
+
+        @Override
+        public String toString() {
+            return "status=" + this.status;
+        }
+
+        private final StudentStatus status;
+    }
+
+    private final StudentCollection students;
+    private final List<Criterion> criteria = new ArrayList<>();
+    private StudentOrder order;    // null: a do índice escolhido
+    private int limit = -1;        // -1: sem limite
+}
@@ -0,0 +1,501 @@
+package classify;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+// Servidor HTTP (com.sun.net.httpserver) com consultas e alterações a uma
+// StudentCollection em JSON, para usar a turma sem a consola:
+//
+//   GET  /students?email=E                      um estudante (404 se não existe)
+//   GET  /students?name=PARTE[&accents=ignore]  pesquisa por parte do nome
+//   GET  /students?prefix=INÍCIO                pesquisa por início do nome
+//   GET  /students?min=A&max=B                  classificações entre A e B (da melhor para a pior)
+//   GET  /students?top=K                        as K melhores classificações
+//   GET  /students?status=S                     estudantes com estatuto S
+//   GET  /students                              todos
+//   GET  /stats                                 estatísticas das classificações
+//   POST /update?email=E[&newEmail=N][&grade=G][&status=S]
+//
+// (os parâmetros do POST também podem vir no corpo, como formulário). Os
+// critérios das listas podem ser combinados (ex: name=Al&min=120&status=BOLS);
+// as listas aceitam limit=N e são enviadas por blocos (chunked), à medida
+// que são formatadas.
+//
+// Cada pedido corre numa thread virtual quando o JDK as tem (21+); nos
+// anteriores, num conjunto fixo de threads. As consultas correm sob o read
+// lock e as alterações sob o write lock de lock; as listas grandes só
+// bloqueiam a turma enquanto cada bloco é formatado. Com um diário
+// (StudentJournal) associado à turma, cada alteração só é confirmada depois
+// de estar em disco; com compactJournal, o diário é compactado (sob o write
+// lock) quando passa de um limite. Se o diário não puder ser escrito, o
+// pedido recebe 503 e o servidor deixa de aceitar alterações (as consultas
+// continuam), como a consola, que termina.
+public class StudentServer {
+
+    // Grava a turma e esvazia o diário (ex: ClassifyShell.compactJournal)
+    public interface JournalCompactor {
+        void compact() throws IOException;
+    }
+
+    static {
+        // Sem TCP_NODELAY, respostas pequenas esperam pelo ACK atrasado do
+        // cliente (Nagle): ~40 ms por pedido. Lida quando o HttpServer do
+        // JDK é carregado.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public StudentServer(
+            StudentCollection students,
+            ReadWriteLock lock,
+            StudentJournal journal,
+            InetSocketAddress address
+    ) throws IOException {
+        this.students = students;
+        this.lock = lock;
+        this.journal = journal;
+        this.executor = newExecutor();
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/students", this::handleStudents);
+        this.server.createContext("/stats", this::handleStats);
+        this.server.createContext("/update", this::handleUpdate);
+    }
+
+    // Depois de cada alteração, se o diário tiver mais de threshold bytes
+    public void compactJournal(long threshold, JournalCompactor compactor) {
+        this.compactThreshold = threshold;
+        this.compactor = compactor;
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    // Espera até delaySeconds que os pedidos em curso terminem
+    public void stop(int delaySeconds) {
+        this.server.stop(delaySeconds);
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    // Threads virtuais quando existem (Executors.newVirtualThreadPerTaskExecutor
+    // só existe a partir do JDK 21, daí a reflexão)
+    static ExecutorService newExecutor() {
+        try {
+            var factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        }
+        catch (ReflectiveOperationException ex) {
+            return Executors.newFixedThreadPool(
+                    Math.max(MIN_THREADS, Runtime.getRuntime().availableProcessors() * 8)
+            );
+        }
+    }
+
+    private void handleStudents(HttpExchange exchange) throws IOException {
+        try {
+            if (!checkMethod(exchange, "GET")) {
+                return;
+            }
+            var params = parseQuery(exchange.getRequestURI().getRawQuery());
+            String email = params.get("email");
+            if (email != null) {
+                Student st;
+                String json;
+                this.lock.readLock().lock();
+                try {
+                    st = this.students.searchByEmail(email);
+                    json = st == null ? null : appendStudent(new StringBuilder(), st).toString();
+                }
+                finally {
+                    this.lock.readLock().unlock();
+                }
+                if (json == null) {
+                    sendError(exchange, 404, "Student not found: " + email);
+                }
+                else {
+                    send(exchange, 200, json);
+                }
+                return;
+            }
+
+            Student[] found;
+            this.lock.readLock().lock();
+            try {
+                found = search(params);
+            }
+            finally {
+                this.lock.readLock().unlock();
+            }
+            streamStudents(exchange, found, found.length);
+        }
+        catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, ex.getMessage());
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    // Cópia das referências, para a lista poder ser enviada por blocos. Os
+    // critérios podem ser combinados (ver StudentQuery) e o limite é
+    // aplicado pela própria pesquisa.
+    private Student[] search(Map<String, String> params) {
+        var query = this.students.query();
+        if (params.containsKey("name")) {
+            query.nameContains(params.get("name"), "ignore".equals(params.get("accents")));
+        }
+        if (params.containsKey("prefix")) {
+            query.namePrefix(params.get("prefix"));
+        }
+        if (params.containsKey("min") || params.containsKey("max")) {
+            query.grades(
+                    parseDouble(params.getOrDefault("min", "0"), "min"),
+                    parseDouble(params.getOrDefault("max", "200"), "max")
+            );
+        }
+        if (params.containsKey("status")) {
+            var status = StudentStatus.of(params.get("status"));
+            if (status == null) {
+                throw new IllegalArgumentException("Invalid status " + params.get("status"));
+            }
+            query.status(status);
+        }
+        int limit = Integer.MAX_VALUE;
+        if (params.containsKey("top")) {
+            query.orderBy(StudentOrder.GRADE);
+            limit = Integer.parseInt(params.get("top"));
+        }
+        if (params.containsKey("limit")) {
+            limit = Math.min(limit, Integer.parseInt(params.get("limit")));
+        }
+        if (limit != Integer.MAX_VALUE) {
+            query.limit(Math.max(0, limit));
+        }
+        return query.stream().toArray(Student[]::new);
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!checkMethod(exchange, "GET")) {
+                return;
+            }
+            var json = new StringBuilder(256);
+            this.lock.readLock().lock();
+            try {
+                var stats = this.students.statistics();
+                json.append("{\"count\":").append(stats.getCount());
+                json.append(",\"mean\":");
+                appendNumber(json, stats.getMean());
+                json.append(",\"stdDev\":");
+                appendNumber(json, stats.getStdDev());
+                json.append(",\"min\":");
+                appendNumber(json, stats.getMin());
+                json.append(",\"max\":");
+                appendNumber(json, stats.getMax());
+                json.append(",\"median\":");
+                appendNumber(json, stats.getMedian());
+                json.append(",\"bands\":{");
+                for (int i = 0; i < GradeStatistics.BANDS.length; i += 1) {
+                    String band = GradeStatistics.BANDS[i];
+                    appendString(json.append(i == 0 ? "" : ","), band).append(':').append(stats.bandCount(i));
+                }
+                json.append("},\"status\":{");
+                for (int i = 0; i < Student.VALID_STUDENT_STATUS.length; i += 1) {
+                    String status = Student.VALID_STUDENT_STATUS[i];
+                    appendString(json.append(i == 0 ? "" : ","), status).append(':').append(stats.statusCount(status));
+                }
+                json.append("}}");
+            }
+            finally {
+                this.lock.readLock().unlock();
+            }
+            send(exchange, 200, json.toString());
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    private void handleUpdate(HttpExchange exchange) throws IOException {
+        try {
+            if (!checkMethod(exchange, "POST")) {
+                return;
+            }
+            if (this.journalFailure != null) {
+                sendError(exchange, 503, this.journalFailure);
+                return;
+            }
+            var params = parseQuery(exchange.getRequestURI().getRawQuery());
+            params.putAll(parseQuery(readBody(exchange.getRequestBody())));
+            String email = params.get("email");
+            if (email == null) {
+                sendError(exchange, 400, "Missing parameter email");
+                return;
+            }
+
+            String json = null;
+            int errorStatus = 0;
+            String error = null;
+            this.lock.writeLock().lock();
+            try {
+                var st = this.students.searchByEmail(email);
+                String newEmail = params.get("newEmail");
+                Student other = newEmail == null ? null : this.students.searchByEmail(newEmail);
+                if (st == null) {
+                    errorStatus = 404;
+                    error = "Student not found: " + email;
+                }
+                else if (other != null && other != st) {
+                    errorStatus = 409;
+                    error = "Duplicate email: " + newEmail;
+                }
+                else {
+                    json = update(st, newEmail, params.get("grade"), params.get("status"));
+                }
+            }
+            finally {
+                this.lock.writeLock().unlock();
+            }
+            if (error != null) {
+                sendError(exchange, errorStatus, error);
+                return;
+            }
+
+            // fora do lock: pedidos em simultâneo partilham o mesmo fsync
+            if (this.journal != null) {
+                try {
+                    this.journal.sync();
+                }
+                catch (IOException ex) {
+                    // a alteração já foi feita em memória mas não está em
+                    // disco: não se confirma esta nem mais nenhuma
+                    this.journalFailure = "Updates disabled: can't write journal " + this.journal.getFile();
+                    System.err.println(this.journalFailure + ": " + ex.getMessage());
+                    sendError(exchange, 503, "Update not persisted: can't write journal");
+                    return;
+                }
+            }
+            send(exchange, 200, json);
+            compactIfNeeded();
+        }
+        catch (IllegalArgumentException ex) {
+            sendError(exchange, 400, ex.getMessage());
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    // Uma só thread compacta; as outras, já com o write lock, vêem o diário
+    // vazio. Se falhar, as alterações continuam no diário e volta a tentar
+    // na alteração seguinte.
+    private void compactIfNeeded() {
+        if (this.compactor == null || this.journal.size() <= this.compactThreshold) {
+            return;
+        }
+        this.lock.writeLock().lock();
+        try {
+            if (this.journal.size() > this.compactThreshold) {
+                this.compactor.compact();
+            }
+        }
+        catch (IOException ex) {
+            System.err.println("Can't compact journal " + this.journal.getFile() + ": " + ex.getMessage());
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    // Valida todos os valores antes de alterar o que quer que seja
+    private static String update(Student st, String newEmail, String grade, String status) {
+        double newGrade = grade == null ? Double.NaN : parseDouble(grade, "grade");
+        if (newEmail != null) {
+            Utils.validateEmail(newEmail);
+        }
+        if (grade != null) {
+            Student.validateGrade(newGrade);
+        }
+        if (status != null) {
+            Student.validateStatus(status);
+        }
+
+        if (newEmail != null) {
+            st.setEmail(newEmail);
+        }
+        if (grade != null) {
+            st.setGrade(newGrade);
+        }
+        if (status != null) {
+            st.setStatus(status);
+        }
+        return appendStudent(new StringBuilder(), st).toString();
+    }
+
+    // Envia um array JSON por blocos de BATCH_ROWS estudantes; o read lock
+    // só é mantido enquanto cada bloco é formatado
+    private void streamStudents(HttpExchange exchange, Student[] rows, int count) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+        var json = new StringBuilder(BATCH_ROWS * 128);
+        json.append('[');
+        for (int from = 0; from < count; from += BATCH_ROWS) {
+            int to = Math.min(count, from + BATCH_ROWS);
+            this.lock.readLock().lock();
+            try {
+                for (int i = from; i < to; i += 1) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    appendStudent(json, rows[i]);
+                }
+            }
+            finally {
+                this.lock.readLock().unlock();
+            }
+            body.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            json.setLength(0);
+        }
+        json.append(']');
+        body.write(json.toString().getBytes(StandardCharsets.UTF_8));
+        body.close();
+    }
+
+    private static StringBuilder appendStudent(StringBuilder json, Student st) {
+        appendString(json.append("{\"name\":"), st.getName());
+        appendString(json.append(",\"email\":"), st.getEmail());
+        json.append(",\"birthDate\":\"").append(st.getBirthDate()).append('"');
+        json.append(",\"grade\":");
+        appendNumber(json, st.getGrade());
+        appendString(json.append(",\"textualGrade\":"), st.getTextualGrade());
+        appendString(json.append(",\"status\":"), st.getStatus());
+        return json.append('}');
+    }
+
+    private static StringBuilder appendString(StringBuilder json, String str) {
+        json.append('"');
+        for (int i = 0; i < str.length(); i += 1) {
+            char c = str.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            }
+            else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            }
+            else {
+                json.append(c);
+            }
+        }
+        return json.append('"');
+    }
+
+    // Inteiros sem casas decimais; NaN (ex: média sem estudantes) como null
+    private static void appendNumber(StringBuilder json, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            json.append("null");
+        }
+        else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            json.append((long) value);
+        }
+        else {
+            json.append(value);
+        }
+    }
+
+    private static double parseDouble(String value, String name) {
+        try {
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid " + name + " " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        var params = new HashMap<String, String>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(
+                    URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8)
+            );
+        }
+        return params;
+    }
+
+    private static String readBody(InputStream body) throws IOException {
+        byte[] bytes = body.readNBytes(MAX_BODY_SIZE + 1);
+        if (bytes.length > MAX_BODY_SIZE) {
+            throw new IllegalArgumentException("Request body too large");
+        }
+        return new String(bytes, StandardCharsets.UTF_8).strip();
+    }
+
+    private static boolean checkMethod(HttpExchange exchange, String method) throws IOException {
+        if (exchange.getRequestMethod().toUpperCase(Locale.ROOT).equals(method)) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", method);
+        sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+        return false;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String msg) throws IOException {
+        send(exchange, status, appendString(new StringBuilder("{\"error\":"), msg).append('}').toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (var body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int BATCH_ROWS = 1024;
+    private static final int MAX_BODY_SIZE = 64 * 1024;
+    private static final int MIN_THREADS = 16;
+
+    private final StudentCollection students;
+    private final ReadWriteLock lock;
+    private final StudentJournal journal;
+    private final ExecutorService executor;
+    private final HttpServer server;
+    private JournalCompactor compactor;
+    private long compactThreshold;
+    private volatile String journalFailure;    // erro a devolver a /update depois de o diário falhar
+}
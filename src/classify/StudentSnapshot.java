@@ -0,0 +1,230 @@
+package classify;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+// Cópia binária de uma StudentCollection, para arrancar sem voltar a ler e
+// validar o CSV. Formato (big-endian):
+//
+//   int    MAGIC ("CLSS")
+//   short  VERSION
+//   int    número de estudantes
+//   por estudante: short + bytes UTF-8 do nome, short + bytes UTF-8 do
+//                  email, int dia (epoch), double classificação, byte
+//                  estatuto (posição em Student.VALID_STUDENT_STATUS)
+//   long   CRC32 de tudo o que está para trás
+//
+// Escrita e leitura passam por um buffer de 1 MiB e o CRC é calculado por
+// blocos. O CSV continua a ser o formato de intercâmbio: a cópia só é usada
+// se for mais recente do que ele.
+public class StudentSnapshot {
+
+    // Ficheiro de snapshot associado a um ficheiro de turma
+    public static Path pathFor(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + ".snap");
+    }
+
+    // Há snapshot e é mais recente do que o CSV
+    public static boolean isFresh(Path csvFile) throws IOException {
+        Path snapshot = pathFor(csvFile);
+        return Files.exists(snapshot)
+               && Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(csvFile)) > 0;
+    }
+
+    // Escreve num ficheiro temporário e substitui o anterior de uma só vez
+    public static void write(Path file, StudentCollection students) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(
+                tmp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            var out = new Output(channel);
+            out.ensure(10).putInt(MAGIC).putShort(VERSION).putInt(students.size());
+            for (Student st : students) {
+                out.putString(st.getName());
+                out.putString(st.getEmail());
+                out.ensure(13)
+                   .putInt(Math.toIntExact(st.getBirthDate().toEpochDay()))
+                   .putDouble(st.getGrade())
+                   .put((byte) Student.statusCode(st.getStatus()));
+            }
+            out.finish();
+            channel.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Lê para uma colecção nova. Ficheiros truncados, de outra versão ou
+    // com checksum errado dão IOException.
+    public static StudentCollection read(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var in = new Input(channel, channel.size() - 8);
+            var header = in.need(10);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            int count = header.getInt();
+            var students = new StudentCollection();
+            for (int i = 0; i < count; i += 1) {
+                String name = in.getString();
+                String email = in.getString();
+                var buf = in.need(13);
+                var birthDate = LocalDate.ofEpochDay(buf.getInt());
+                double grade = buf.getDouble();
+                int status = buf.get();
+                if (status < 0 || status >= Student.VALID_STUDENT_STATUS.length) {
+                    throw new IOException("Corrupted snapshot: " + file);
+                }
+                students.add(Student.restore(
+                        name, email, birthDate, grade, Student.VALID_STUDENT_STATUS[status]
+                ));
+            }
+            if (in.checksum() != in.trailer()) {
+                throw new IOException("Corrupted snapshot (checksum mismatch): " + file);
+            }
+            return students;
+        }
+        catch (EOFException ex) {
+            throw new IOException("Truncated snapshot: " + file, ex);
+        }
+        catch (IllegalArgumentException ex) {
+            throw new IOException("Corrupted snapshot (" + ex.getMessage() + "): " + file, ex);
+        }
+    }
+
+    private static class Output {
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer ensure(int bytes) throws IOException {
+            if (this.buf.remaining() < bytes) {
+                flush();
+            }
+            return this.buf;
+        }
+
+        void putString(String str) throws IOException {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("String too long for snapshot: " + str.length());
+            }
+            ensure(2 + bytes.length).putShort((short) bytes.length).put(bytes);
+        }
+
+        void finish() throws IOException {
+            flush();
+            this.buf.putLong(this.crc.getValue());
+            this.buf.flip();
+            while (this.buf.hasRemaining()) {
+                this.channel.write(this.buf);
+            }
+        }
+
+        private void flush() throws IOException {
+            this.buf.flip();
+            this.crc.update(this.buf.duplicate());
+            while (this.buf.hasRemaining()) {
+                this.channel.write(this.buf);
+            }
+            this.buf.clear();
+        }
+
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+    }
+
+    // Leitura por blocos até dataEnd (o trailer é lido à parte); o CRC de
+    // cada bloco é actualizado quando o bloco é carregado
+    private static class Input {
+        Input(FileChannel channel, long dataEnd) throws EOFException {
+            if (dataEnd < 0) {
+                throw new EOFException();
+            }
+            this.channel = channel;
+            this.dataEnd = dataEnd;
+            this.buf.limit(0);
+        }
+
+        ByteBuffer need(int bytes) throws IOException {
+            if (this.buf.remaining() >= bytes) {
+                return this.buf;
+            }
+            this.buf.compact();
+            int kept = this.buf.position();
+            long left = this.dataEnd - this.filePos;
+            if (this.buf.remaining() > left) {
+                this.buf.limit(kept + (int) left);
+            }
+            while (this.buf.hasRemaining()) {
+                int n = this.channel.read(this.buf, this.filePos);
+                if (n < 0) {
+                    break;
+                }
+                this.filePos += n;
+            }
+            this.buf.flip();
+            var block = this.buf.duplicate();
+            block.position(kept);
+            this.crc.update(block);
+            if (this.buf.remaining() < bytes) {
+                throw new EOFException();
+            }
+            return this.buf;
+        }
+
+        String getString() throws IOException {
+            int len = need(2).getShort();
+            if (len < 0) {
+                throw new IOException("Corrupted snapshot");
+            }
+            var buf = need(len);
+            var str = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+            buf.position(buf.position() + len);
+            return str;
+        }
+
+        long checksum() {
+            return this.crc.getValue();
+        }
+
+        long trailer() throws IOException {
+            if (this.buf.hasRemaining() || this.filePos != this.dataEnd) {
+                throw new IOException("Unexpected data at end of snapshot");
+            }
+            var trailer = ByteBuffer.allocate(8);
+            while (trailer.hasRemaining()) {
+                if (this.channel.read(trailer, this.dataEnd + trailer.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            return trailer.flip().getLong();
+        }
+
+        private final FileChannel channel;
+        private final long dataEnd;
+        private long filePos;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+    }
+
+    private static final int MAGIC = 0x434C5353;    // "CLSS"
+    private static final short VERSION = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+}
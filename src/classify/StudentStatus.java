@@ -0,0 +1,28 @@
+package classify;
+
+// Estatutos de um estudante, pela mesma ordem que
+// Student.VALID_STUDENT_STATUS (a posição é o código gravado em snapshots e
+// no diário)
+public enum StudentStatus {
+    REG,
+    TRAB,
+    BOLS;
+
+    // Estatuto com este nome (ex: "REG"), ou null se não existir. O switch
+    // compara hashCode e depois equals: sem listas nem percorrer valores().
+    public static StudentStatus of(String status) {
+        if (status == null) {
+            return null;
+        }
+        switch (status) {
+            case "REG":
+                return REG;
+            case "TRAB":
+                return TRAB;
+            case "BOLS":
+                return BOLS;
+            default:
+                return null;
+        }
+    }
+}
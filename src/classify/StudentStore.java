@@ -0,0 +1,30 @@
+package classify;
+
+// Armazenamento alternativo de estudantes, para turmas muito grandes. Os
+// estudantes devolvidos são vistas sobre os dados guardados.
+public interface StudentStore extends Iterable<Student> {
+
+    // Copia os dados de st; emails repetidos dão DuplicateValueException
+    void add(Student st);
+
+    Student get(int row);
+
+    int size();
+
+    Student searchByEmail(String email);
+
+    // Classificação e estatuto (posição em Student.VALID_STUDENT_STATUS) da
+    // linha row (ex: GradeStatistics.of). Os armazenamentos por colunas lêem
+    // directamente os dados guardados, sem criar uma vista.
+    default double gradeAt(int row) {
+        return get(row).getGrade();
+    }
+
+    default int statusCodeAt(int row) {
+        return Student.statusCode(get(row).getStatus());
+    }
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
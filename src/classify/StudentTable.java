@@ -0,0 +1,118 @@
+package classify;
+
+import java.util.Formatter;
+
+// Desenha uma página da listagem de estudantes (cabeçalho, linhas e
+// rodapé) num único StringBuilder, reutilizado de página para página: a
+// página é escrita de uma só vez, em vez de um printf por linha. As linhas
+// são alinhadas à mão (sem Formatter), com o mesmo aspecto que
+// "%-30s | %15.0f | %15s | %-30s" e Utils.center. As colunas das
+// classificações (0 a 200 e as de GradeBands) são formatadas uma única vez
+// e o rodapé das estatísticas só quando estas mudam: desenhar uma página
+// não aloca quase nada.
+class StudentTable {
+
+    CharSequence render(StudentPage page, GradeStatistics stats) {
+        var sb = this.buffer;
+        sb.setLength(0);
+        padRight(sb, "NOME", 30).append(" | ");
+        padLeft(sb, "Classificação", 15).append(" | ");
+        padLeft(sb, "Classificação", 15).append(" | ");
+        center(sb, "Email", 30).append('\n');
+        padRight(sb, " ", 30).append(" | ");
+        padLeft(sb, "Quantitativa", 15).append(" | ");
+        padLeft(sb, "Qualitativa", 15).append(" |\n");
+        // melhor em: https://stackoverflow.com/a/1900485
+        // e https://kodejava.org/how-do-i-align-string-print-out-in-left-right-center-alignment/
+        sb.append("-------------------------------+-----------------+-----------------+---------------------------\n");
+        for (Student st : page.getStudents()) {
+            padRight(sb, st.getName(), 30).append(" | ");
+            gradeCell(sb, st.getGrade()).append(" | ");
+            sb.append(BAND_CELLS[st.getGradeBand()]).append(" | ");
+            center(sb, st.getEmail(), 30).append('\n');
+        }
+
+        // rodapé (ponto 1.1 de docs/TODO.txt)
+        int first = page.getCursor() + 1;
+        int last = page.getCursor() + page.getStudents().size();
+        sb.append("\nPÁGINA ").append(page.getPageNumber()).append(" DE ").append(page.getPageCount());
+        sb.append(" (").append(first).append('-').append(last).append(" de ").append(page.getTotal()).append(")\n");
+        sb.append(statisticsFooter(stats));
+        sb.append('\n');
+        return sb;
+    }
+
+    // As estatísticas só são formatadas de novo depois de uma alteração à
+    // turma, não em cada página
+    private String statisticsFooter(GradeStatistics stats) {
+        if (stats == this.footerStats && stats.version() == this.footerVersion) {
+            return this.footer;
+        }
+        var text = new StringBuilder(256);
+        var formatter = new Formatter(text);
+        var average = stats.getMean();
+        formatter.format("MÉDIA: %5.2f %-15s\n", average, Student.classifyGrade(average));
+        formatter.format(
+                "ESTUDANTES: %d  MÍNIMO: %.0f  MÁXIMO: %.0f  MEDIANA: %.1f  DESVIO PADRÃO: %.2f\n",
+                stats.getCount(), stats.getMin(), stats.getMax(), stats.getMedian(), stats.getStdDev()
+        );
+        var bands = GradeBands.get();
+        for (int i = 0; i < bands.size(); i += 1) {
+            padRight(text, bands.name(i) + ":", 15).append(' ').append(stats.bandCount(i)).append('\n');
+        }
+        this.footer = text.toString();
+        this.footerStats = stats;
+        this.footerVersion = stats.version();
+        return this.footer;
+    }
+
+    private static StringBuilder gradeCell(StringBuilder sb, double grade) {
+        long rounded = Math.round(grade);
+        if (rounded >= 0 && rounded < GRADE_CELLS.length) {
+            return sb.append(GRADE_CELLS[(int) rounded]);
+        }
+        return padLeft(sb, Long.toString(rounded), 15);
+    }
+
+    private static StringBuilder padRight(StringBuilder sb, String str, int len) {
+        sb.append(str);
+        return spaces(sb, len - str.length());
+    }
+
+    private static StringBuilder padLeft(StringBuilder sb, String str, int len) {
+        return spaces(sb, len - str.length()).append(str);
+    }
+
+    // Como Utils.center, mas um texto que não cabe é escrito tal como está
+    private static StringBuilder center(StringBuilder sb, String str, int len) {
+        int start = (len - str.length()) / 2;
+        spaces(sb, start).append(str);
+        return spaces(sb, len - str.length() - Math.max(start, 0));
+    }
+
+    private static StringBuilder spaces(StringBuilder sb, int count) {
+        for (int i = 0; i < count; i += 1) {
+            sb.append(' ');
+        }
+        return sb;
+    }
+
+    // Classificações 0 a 200, alinhadas à direita em 15 caracteres
+    private static final String[] GRADE_CELLS = new String[GradeBands.MAX_GRADE + 1];
+    // Classificações qualitativas, centradas em 15 caracteres
+    private static final String[] BAND_CELLS = new String[GradeBands.get().size()];
+
+    static {
+        for (int i = 0; i < GRADE_CELLS.length; i += 1) {
+            GRADE_CELLS[i] = padLeft(new StringBuilder(15), Integer.toString(i), 15).toString();
+        }
+        for (int i = 0; i < BAND_CELLS.length; i += 1) {
+            BAND_CELLS[i] = center(new StringBuilder(15), GradeBands.get().name(i), 15).toString();
+        }
+    }
+
+    private final StringBuilder buffer = new StringBuilder(8 * 1024);
+    private String footer;
+    private GradeStatistics footerStats;
+    private long footerVersion;
+}
@@ -0,0 +1,166 @@
+package classify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+// Validação dos campos de um estudante sem expressões regulares: nome e
+// email são verificados por autómatos escritos à mão, um carácter de cada
+// vez, sem criar Matcher nem outros objectos. Aceitam exactamente o mesmo
+// que as expressões originais:
+//
+//   nome:  ^[a-zA-Z]{2,} [a-zA-Z]{2,}$
+//   email: Utils.EMAIL_REGEX
+//
+// check devolve a mensagem de erro em vez de lançar excepção, o que permite
+// validar um ficheiro inteiro (validate) sem criar uma excepção por linha
+// inválida.
+public class StudentValidator {
+
+    private StudentValidator() {
+    }
+
+    // Dois nomes de duas ou mais letras (ASCII) separados por um espaço
+    public static boolean isValidName(String name) {
+        int n = name.length();
+        int space = -1;
+        for (int i = 0; i < n; i += 1) {
+            char c = name.charAt(i);
+            if (c == ' ' && space < 0) {
+                space = i;
+            }
+            else if (!isAsciiLetter(c)) {
+                return false;
+            }
+        }
+        return space >= 2 && n - space - 1 >= 2;
+    }
+
+    // Parte local: átomos separados por pontos (sem pontos no início, no
+    // fim nem seguidos). Domínio: duas ou mais etiquetas separadas por
+    // pontos, de letras minúsculas, dígitos e '-', que não começam nem
+    // acabam em '-'.
+    public static boolean isValidEmail(String email) {
+        int n = email.length();
+        int i = 0;
+        boolean afterDot = true;    // início: como depois de um ponto
+        for (; i < n; i += 1) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                break;
+            }
+            if (c == '.') {
+                if (afterDot) {
+                    return false;
+                }
+                afterDot = true;
+            }
+            else if (c < 128 && LOCAL_CHARS[c]) {
+                afterDot = false;
+            }
+            else {
+                return false;
+            }
+        }
+        if (i == n || afterDot) {
+            return false;           // sem '@', parte local vazia ou acaba em '.'
+        }
+
+        int dots = 0;
+        int labelLength = 0;
+        char last = '@';
+        for (i += 1; i < n; i += 1) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0 || last == '-') {
+                    return false;
+                }
+                dots += 1;
+                labelLength = 0;
+            }
+            else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                labelLength += 1;
+            }
+            else if (c == '-' && labelLength > 0) {
+                labelLength += 1;
+            }
+            else {
+                return false;
+            }
+            last = c;
+        }
+        return dots > 0 && labelLength > 0 && last != '-';
+    }
+
+    public static void validateName(String name) {
+        if (!isValidName(name)) {
+            throw new IllegalArgumentException("Invalid name " + name);
+        }
+    }
+
+    public static void validateEmail(String email) {
+        if (!isValidEmail(email)) {
+            throw new IllegalArgumentException("Invalid email " + email);
+        }
+    }
+
+    // Mensagem do primeiro campo inválido, ou null se forem todos válidos
+    // (mesmas mensagens e ordem que o construtor de Student)
+    static String check(String name, String email, double grade, String status) {
+        if (!isValidName(name)) {
+            return "Invalid name " + name;
+        }
+        if (!isValidEmail(email)) {
+            return "Invalid email " + email;
+        }
+        if (!(grade >= 0 && grade <= 200)) {
+            return "Invalid grade " + grade;
+        }
+        if (StudentStatus.of(status) == null) {
+            return "Invalid status " + status;
+        }
+        return null;
+    }
+
+    // Valida um ficheiro de turma sem o carregar: todos os erros (campos
+    // inválidos, emails repetidos), não apenas o primeiro
+    public static ValidationReport validate(Path csv) throws IOException {
+        long start = System.nanoTime();
+        var errors = new ArrayList<StudentCsvException>();
+        Set<String> emails = new HashSet<>();
+        long rows;
+        try (var input = Files.newInputStream(csv)) {
+            rows = new StudentCsvReader(input).read(
+                    st -> {
+                        if (!emails.add(StudentCollection.emailKey(st.getEmail()))) {
+                            throw new DuplicateValueException("Duplicate email: " + st.getEmail());
+                        }
+                    },
+                    errors::add
+            );
+        }
+        return new ValidationReport(rows, errors, System.nanoTime() - start);
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    // Caracteres permitidos na parte local (antes do '@')
+    private static final boolean[] LOCAL_CHARS = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c += 1) {
+            LOCAL_CHARS[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c += 1) {
+            LOCAL_CHARS[c] = true;
+        }
+        for (char c : "!#$%&'*+/=?^_`{|}~-".toCharArray()) {
+            LOCAL_CHARS[c] = true;
+        }
+    }
+}
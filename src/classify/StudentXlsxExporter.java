@@ -0,0 +1,365 @@
+package classify;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Exportação para Excel (ponto 5.2.1 de docs/TODO.txt), sem bibliotecas:
+// um ficheiro XLSX é um zip de documentos XML (SpreadsheetML). As folhas
+// são escritas linha a linha à medida que os estudantes chegam; uma folha
+// do Excel tem no máximo 1 048 576 linhas, pelo que os estudantes que não
+// cabem seguem em folhas novas. O livro, que lista as folhas, e os tipos
+// são escritos em end, quando já se sabe quantas são. Os textos vão dentro
+// de cada célula (inlineStr), em vez de numa tabela de strings partilhada
+// que obrigaria a ter todos em memória.
+class StudentXlsxExporter implements StudentExporter {
+
+    StudentXlsxExporter(OutputStream out) {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.zip.setLevel(Deflater.BEST_SPEED);
+    }
+
+    @Override
+    public void begin(GradeStatistics stats) throws IOException {
+        entry("_rels/.rels", ROOT_RELS);
+        entry("xl/styles.xml", STYLES);
+        startSheet();
+    }
+
+    @Override
+    public void add(Student st) throws IOException {
+        if (this.row == LAST_STUDENT_ROW) {
+            endSheet();
+            startSheet();
+        }
+        this.row += 1;
+        putRaw("<row r=\"");
+        putDigits(this.row);
+        putRaw("\">");
+        text(0, st.getName(), STYLE_NONE);
+        text(1, st.getEmail(), STYLE_NONE);
+        cellStart(2, STYLE_DATE);
+        putRaw("><v>");
+        putDigits(st.getBirthDate().toEpochDay() + EXCEL_EPOCH_DAY);
+        putRaw("</v></c>");
+        cellStart(3, STYLE_NONE);
+        putRaw("><v>");
+        putNumber(st.getGrade());
+        putRaw("</v></c>");
+        text(4, st.getTextualGrade(), STYLE_NONE);
+        text(5, st.getStatus(), STYLE_NONE);
+        putRaw("</row>\n");
+    }
+
+    @Override
+    public void end() throws IOException {
+        // linha da média (na última folha), calculada pelo Excel sobre a
+        // coluna D de todas as folhas
+        int last = this.row;
+        this.row += 2;
+        putRaw("<row r=\"");
+        putDigits(this.row);
+        putRaw("\">");
+        text(2, "MÉDIA", STYLE_HEADER);
+        if (last > 1) {
+            var formula = new StringBuilder("AVERAGE(");
+            for (int sheet = 1; sheet < this.sheets; sheet += 1) {
+                formula.append('\'').append(sheetName(sheet)).append("'!D2:D").append(LAST_STUDENT_ROW).append(',');
+            }
+            formula.append("D2:D").append(last).append(')');
+            putRaw("<c r=\"D" + this.row + "\"><f>");
+            putEscaped(formula.toString());
+            putRaw("</f></c>");
+        }
+        putRaw("</row>\n");
+        endSheet();
+
+        var types = new StringBuilder(CONTENT_TYPES_HEAD);
+        var sheets = new StringBuilder(WORKBOOK_HEAD);
+        var rels = new StringBuilder(WORKBOOK_RELS_HEAD);
+        for (int sheet = 1; sheet <= this.sheets; sheet += 1) {
+            types.append("<Override PartName=\"/xl/worksheets/sheet").append(sheet)
+                 .append(".xml\" ContentType=\"").append(WORKSHEET_TYPE).append("\"/>");
+            sheets.append("<sheet name=\"").append(sheetName(sheet)).append("\" sheetId=\"").append(sheet)
+                  .append("\" r:id=\"rId").append(sheet).append("\"/>");
+            rels.append("<Relationship Id=\"rId").append(sheet).append("\" Type=\"").append(REL_NS)
+                .append("/worksheet\" Target=\"worksheets/sheet").append(sheet).append(".xml\"/>");
+        }
+        rels.append("<Relationship Id=\"rId").append(this.sheets + 1).append("\" Type=\"").append(REL_NS)
+            .append("/styles\" Target=\"styles.xml\"/>");
+        entry("[Content_Types].xml", types.append(CONTENT_TYPES_TAIL).toString());
+        entry("xl/workbook.xml", sheets.append(WORKBOOK_TAIL).toString());
+        entry("xl/_rels/workbook.xml.rels", rels.append("</Relationships>").toString());
+        this.zip.finish();
+    }
+
+    // Nova folha, com a linha de cabeçalho
+    private void startSheet() throws IOException {
+        this.sheets += 1;
+        this.zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + this.sheets + ".xml"));
+        putText(SHEET_HEAD);
+        this.row = 1;
+        putRaw("<row r=\"1\">");
+        for (int col = 0; col < COLUMNS.length; col += 1) {
+            text(col, COLUMNS[col], STYLE_HEADER);
+        }
+        putRaw("</row>\n");
+    }
+
+    private void endSheet() throws IOException {
+        putRaw("</sheetData>\n</worksheet>\n");
+        flush();
+        this.zip.closeEntry();
+    }
+
+    private static String sheetName(int sheet) {
+        return sheet == 1 ? SHEET_NAME : SHEET_NAME + " (" + sheet + ")";
+    }
+
+    private void entry(String name, String content) throws IOException {
+        this.zip.putNextEntry(new ZipEntry(name));
+        putText(content);
+        flush();
+        this.zip.closeEntry();
+    }
+
+    private void text(int col, String value, String style) throws IOException {
+        cellStart(col, style);
+        putRaw(" t=\"inlineStr\"><is><t>");
+        putEscaped(value);
+        putRaw("</t></is></c>");
+    }
+
+    private void cellStart(int col, String style) throws IOException {
+        putRaw("<c r=\"");
+        put((byte) ('A' + col));
+        putDigits(this.row);
+        put((byte) '"');
+        putRaw(style);
+    }
+
+    // Como em StudentCsvWriter: tudo é escrito num buffer de bytes
+    // reutilizado, que é passado ao zip quando enche
+
+    // Texto ASCII sem nada a escapar (marcação)
+    private void putRaw(String str) throws IOException {
+        int len = str.length();
+        ensure(len);
+        for (int i = 0; i < len; i += 1) {
+            this.buf[this.pos++] = (byte) str.charAt(i);
+        }
+    }
+
+    private void putText(String str) throws IOException {
+        putBytes(str.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Texto XML: sem os caracteres de controlo que o XML não admite
+    private void putEscaped(String str) throws IOException {
+        int len = str.length();
+        for (int i = 0; i < len; i += 1) {
+            char c = str.charAt(i);
+            if (c >= 0x80) {
+                // não ASCII: o resto via encoder
+                putEscapedSlow(str.substring(i));
+                return;
+            }
+            if (c == '&') {
+                putRaw("&amp;");
+            }
+            else if (c == '<') {
+                putRaw("&lt;");
+            }
+            else if (c == '>') {
+                putRaw("&gt;");
+            }
+            else if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                put((byte) c);
+            }
+        }
+    }
+
+    private void putEscapedSlow(String str) throws IOException {
+        var escaped = new StringBuilder(str.length() + 16);
+        for (int i = 0; i < str.length(); i += 1) {
+            char c = str.charAt(i);
+            if (c == '&') {
+                escaped.append("&amp;");
+            }
+            else if (c == '<') {
+                escaped.append("&lt;");
+            }
+            else if (c == '>') {
+                escaped.append("&gt;");
+            }
+            else if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                escaped.append(c);
+            }
+        }
+        putText(escaped.toString());
+    }
+
+    // Classificações inteiras (o caso comum) sem passar por Double.toString
+    private void putNumber(double value) throws IOException {
+        if (value >= 0 && value < 1e15 && value == Math.rint(value)) {
+            putDigits((long) value);
+        }
+        else {
+            putRaw(Double.toString(value));
+        }
+    }
+
+    private void putDigits(long value) throws IOException {
+        if (value < 0) {
+            putRaw(Long.toString(value));
+            return;
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits += 1;
+        }
+        ensure(digits);
+        int end = this.pos + digits;
+        for (int i = end - 1; i >= this.pos; i -= 1) {
+            this.buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        this.pos = end;
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        int off = 0;
+        while (off < bytes.length) {
+            ensure(1);
+            int n = Math.min(this.buf.length - this.pos, bytes.length - off);
+            System.arraycopy(bytes, off, this.buf, this.pos, n);
+            this.pos += n;
+            off += n;
+        }
+    }
+
+    private void put(byte b) throws IOException {
+        ensure(1);
+        this.buf[this.pos++] = b;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (this.buf.length - this.pos < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        this.zip.write(this.buf, 0, this.pos);
+        this.pos = 0;
+    }
+
+    // Dias entre 1899-12-30 (dia 0 das datas do Excel) e 1970-01-01
+    private static final long EXCEL_EPOCH_DAY = 25569;
+
+    // Uma folha tem no máximo 1 048 576 linhas; a média fica duas linhas
+    // abaixo do último estudante
+    private static final int LAST_STUDENT_ROW = 1_048_576 - 2;
+
+    private static final String SHEET_NAME = "Classificações";
+
+    private static final String[] COLUMNS = {
+            "Nome", "Email", "Data de nascimento", "Classificação", "Classificação qualitativa", "Estatuto"
+    };
+
+    // Índices em cellXfs (STYLES)
+    private static final String STYLE_NONE = "";
+    private static final String STYLE_DATE = " s=\"1\"";
+    private static final String STYLE_HEADER = " s=\"2\"";
+
+    private static final String XML_DECL = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PKG_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private static final String WORKSHEET_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml";
+
+    // Tipos, livro e relações do livro: as folhas são acrescentadas em end
+    private static final String CONTENT_TYPES_HEAD =
+            XML_DECL
+            + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+            + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+            + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+            + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>";
+
+    private static final String CONTENT_TYPES_TAIL =
+            "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+            + "</Types>";
+
+    private static final String ROOT_RELS =
+            XML_DECL
+            + "<Relationships xmlns=\"" + PKG_REL_NS + "\">"
+            + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>";
+
+    private static final String WORKBOOK_HEAD =
+            XML_DECL
+            + "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\">"
+            + "<sheets>";
+
+    private static final String WORKBOOK_TAIL =
+            "</sheets>"
+            // a fórmula da média não tem valor guardado: calculada ao abrir
+            + "<calcPr fullCalcOnLoad=\"1\"/>"
+            + "</workbook>";
+
+    private static final String WORKBOOK_RELS_HEAD =
+            XML_DECL
+            + "<Relationships xmlns=\"" + PKG_REL_NS + "\">";
+
+    // Estilos: 0 normal, 1 data (AAAA-MM-DD), 2 negrito (cabeçalho)
+    private static final String STYLES =
+            XML_DECL
+            + "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+            + "<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"yyyy-mm-dd\"/></numFmts>"
+            + "<fonts count=\"2\">"
+            + "<font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+            + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+            + "</fonts>"
+            + "<fills count=\"2\">"
+            + "<fill><patternFill patternType=\"none\"/></fill>"
+            + "<fill><patternFill patternType=\"gray125\"/></fill>"
+            + "</fills>"
+            + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+            + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+            + "<cellXfs count=\"3\">"
+            + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+            + "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+            + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+            + "</cellXfs>"
+            + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+            + "</styleSheet>";
+
+    // Cabeçalho da folha: primeira linha fixa e larguras das colunas
+    private static final String SHEET_HEAD =
+            XML_DECL
+            + "<worksheet xmlns=\"" + MAIN_NS + "\">"
+            + "<sheetViews><sheetView workbookViewId=\"0\">"
+            + "<pane ySplit=\"1\" topLeftCell=\"A2\" activePane=\"bottomLeft\" state=\"frozen\"/>"
+            + "</sheetView></sheetViews>"
+            + "<cols>"
+            + "<col min=\"1\" max=\"1\" width=\"32\" customWidth=\"1\"/>"
+            + "<col min=\"2\" max=\"2\" width=\"32\" customWidth=\"1\"/>"
+            + "<col min=\"3\" max=\"3\" width=\"18\" customWidth=\"1\"/>"
+            + "<col min=\"4\" max=\"4\" width=\"14\" customWidth=\"1\"/>"
+            + "<col min=\"5\" max=\"5\" width=\"24\" customWidth=\"1\"/>"
+            + "<col min=\"6\" max=\"6\" width=\"10\" customWidth=\"1\"/>"
+            + "</cols>\n"
+            + "<sheetData>\n";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipOutputStream zip;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int sheets;
+    private int row;
+}
@@ -1,6 +1,7 @@
 package classify;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Scanner;
@@ -13,10 +14,9 @@ public class Utils {
             "*@(?:[a-z0-9](?:[a-z0-9-]*[a-z0-9])?\\.)+[a-z0-9](?:[a-z0-9-]*[a-z0-9])?$"
     ;
 
+    // Equivalente a EMAIL_REGEX, sem expressões regulares (ver StudentValidator)
     public static void validateEmail(String email) {
-        if (!email.matches(Utils.EMAIL_REGEX)) {
-            throw new IllegalArgumentException("Invalid email " + email);
-        }
+        StudentValidator.validateEmail(email);
     }
 
     public static Optional<Integer> acceptInt(String msg) {
@@ -94,14 +94,13 @@ public class Utils {
                     len, str.length()
             ));
         }
-        String init = " ".repeat(len);
-        StringBuilder sb = new StringBuilder(init);
+        // um só array, copiado uma vez para a String (sem " ".repeat nem
+        // StringBuilder intermédios)
+        char[] chars = new char[len];
         int start = (len - str.length())/2;
-        int end = start + str.length();
-        for (int i = start, j = 0; i < end; i += 1, j += 1) {
-            sb.setCharAt(i, str.charAt(j));
-        }
-        return sb.toString();
+        Arrays.fill(chars, ' ');
+        str.getChars(0, str.length(), chars, start);
+        return new String(chars);
     }
 
     public static void clearScreen() {
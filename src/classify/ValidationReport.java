@@ -0,0 +1,42 @@
+package classify;
+
+import java.util.Collections;
+import java.util.List;
+
+// Resultado de StudentValidator.validate: linhas válidas e todos os erros
+// encontrados no ficheiro
+public class ValidationReport {
+    ValidationReport(long validRows, List<StudentCsvException> errors, long elapsedNanos) {
+        this.validRows = validRows;
+        this.errors = Collections.unmodifiableList(errors);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getValidRows() {
+        return validRows;
+    }
+
+    public List<StudentCsvException> getErrors() {
+        return errors;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d linhas válidas, %d inválidas (%.1f ms)",
+                validRows, errors.size(), elapsedNanos / 1e6
+        );
+    }
+
+    private final long validRows;
+    private final List<StudentCsvException> errors;
+    private final long elapsedNanos;
+}